@@ -0,0 +1,57 @@
+// Writes a gzip (.gz) and a brotli (.br) copy next to each compressible
+// file of the production build, so Spring can serve the copy that matches
+// the request's Accept-Encoding without compressing anything at request
+// time (see spring.web.resources.chain.compressed and StaticAssetFilter).
+//
+//   node scripts/compress.js build
+//
+// Small files, and files that don't shrink by at least 10%, are left alone.
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const COMPRESSIBLE = /\.(js|css|html|json|map|svg|txt|ico)$/;
+const MIN_BYTES = 1024;
+const MAX_RATIO = 0.9;
+
+const encoders = {
+  ".gz": (data) => zlib.gzipSync(data, { level: zlib.constants.Z_BEST_COMPRESSION }),
+  ".br": (data) =>
+    zlib.brotliCompressSync(data, {
+      params: {
+        [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+        [zlib.constants.BROTLI_PARAM_SIZE_HINT]: data.length,
+      },
+    }),
+};
+
+function* files(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(file);
+    } else if (COMPRESSIBLE.test(entry.name)) {
+      yield file;
+    }
+  }
+}
+
+const root = process.argv[2] || "build";
+let before = 0;
+let written = 0;
+for (const file of files(root)) {
+  const data = fs.readFileSync(file);
+  if (data.length < MIN_BYTES) {
+    continue;
+  }
+  before += data.length;
+  for (const [extension, encode] of Object.entries(encoders)) {
+    const encoded = encode(data);
+    if (encoded.length <= data.length * MAX_RATIO) {
+      fs.writeFileSync(file + extension, encoded);
+      written++;
+    }
+  }
+}
+console.log(`compress: wrote ${written} .gz/.br files for ${before} bytes of assets under ${root}`);
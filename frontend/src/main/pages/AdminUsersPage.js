@@ -1,22 +1,74 @@
-import React from "react";
+import React, { useState } from "react";
+import { Button, Form } from "react-bootstrap";
 import BasicLayout from "main/layouts/BasicLayout/BasicLayout";
 import UsersTable from "main/components/Users/UsersTable"
 
 import { useBackend } from "main/utils/useBackend";
+
+// The backend sends users a page at a time, in order of email; each page
+// carries the cursor of the next one (null on the last page).  cursors
+// holds the cursor of every page before this one, so Previous can go back.
 const AdminUsersPage = () => {
 
-    const { data: users, error: _error, status: _status } =
+    const [emailPrefix, setEmailPrefix] = useState("");
+    const [cursors, setCursors] = useState([]);
+    const [after, setAfter] = useState(null);
+
+    const params = after ? { emailPrefix, after } : { emailPrefix };
+
+    const { data: page, error: _error, status: _status } =
         useBackend(
             // Stryker disable next-line all : don't test internal caching of React Query
-            ["/api/admin/users"],
-            { method: "GET", url: "/api/admin/users" },
-            []
+            ["/api/admin/users", emailPrefix, after],
+            { method: "GET", url: "/api/admin/users", params },
+            { items: [], nextCursor: null }
         );
 
+    const search = (event) => {
+        setEmailPrefix(event.target.value);
+        setCursors([]);
+        setAfter(null);
+    };
+
+    const next = () => {
+        setCursors([...cursors, after]);
+        setAfter(page.nextCursor);
+    };
+
+    const previous = () => {
+        setAfter(cursors[cursors.length - 1]);
+        setCursors(cursors.slice(0, -1));
+    };
+
     return (
         <BasicLayout>
             <h2>Users</h2>
-            <UsersTable users={users} />
+            <Form.Group className="mb-3" >
+                <Form.Label htmlFor="emailPrefix">Email starts with</Form.Label>
+                <Form.Control
+                    data-testid="AdminUsersPage-emailPrefix"
+                    id="emailPrefix"
+                    type="text"
+                    value={emailPrefix}
+                    onChange={search}
+                />
+            </Form.Group>
+            <UsersTable users={page.items} />
+            <Button
+                data-testid="AdminUsersPage-previous"
+                className="me-2"
+                disabled={cursors.length === 0}
+                onClick={previous}
+            >
+                Previous
+            </Button>
+            <Button
+                data-testid="AdminUsersPage-next"
+                disabled={!page.nextCursor}
+                onClick={next}
+            >
+                Next
+            </Button>
         </BasicLayout>
     );
 };
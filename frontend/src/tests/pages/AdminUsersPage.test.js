@@ -1,4 +1,4 @@
-import { render, waitFor } from "@testing-library/react";
+import { fireEvent, render, waitFor } from "@testing-library/react";
 import { QueryClient, QueryClientProvider } from "react-query";
 import { MemoryRouter } from "react-router-dom";
 import AdminUsersPage from "main/pages/AdminUsersPage";
@@ -25,7 +25,7 @@ describe("AdminUsersPage tests", () => {
 
     test("renders without crashing on three users", async () => {
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/admin/users").reply(200, usersFixtures.threeUsers);
+        axiosMock.onGet("/api/admin/users").reply(200, { items: usersFixtures.threeUsers, nextCursor: null });
 
         const { getByText } = render(
             <QueryClientProvider client={queryClient}>
@@ -42,6 +42,72 @@ describe("AdminUsersPage tests", () => {
 
     });
 
+    test("pages through the users with Next and Previous", async () => {
+        const queryClient = new QueryClient();
+        const [first, second, third] = usersFixtures.threeUsers;
+        axiosMock.onGet("/api/admin/users", { params: { emailPrefix: "" } })
+            .reply(200, { items: [first], nextCursor: "cursor-1" });
+        axiosMock.onGet("/api/admin/users", { params: { emailPrefix: "", after: "cursor-1" } })
+            .reply(200, { items: [second, third], nextCursor: null });
+
+        const { getByTestId } = render(
+            <QueryClientProvider client={queryClient}>
+                <MemoryRouter>
+                    <AdminUsersPage />
+                </MemoryRouter>
+            </QueryClientProvider>
+        );
+
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("1"));
+        expect(getByTestId("AdminUsersPage-previous")).toBeDisabled();
+        expect(getByTestId("AdminUsersPage-next")).toBeEnabled();
+
+        fireEvent.click(getByTestId("AdminUsersPage-next"));
+
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("2"));
+        expect(getByTestId(`${testId}-cell-row-1-col-id`)).toHaveTextContent("3");
+        expect(getByTestId("AdminUsersPage-next")).toBeDisabled();
+        expect(getByTestId("AdminUsersPage-previous")).toBeEnabled();
+
+        fireEvent.click(getByTestId("AdminUsersPage-previous"));
+
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("1"));
+        expect(getByTestId("AdminUsersPage-previous")).toBeDisabled();
+    });
+
+    test("searches by email prefix from the first page", async () => {
+        const queryClient = new QueryClient();
+        const [first, second, third] = usersFixtures.threeUsers;
+        axiosMock.onGet("/api/admin/users", { params: { emailPrefix: "" } })
+            .reply(200, { items: [first, second], nextCursor: "cursor-1" });
+        axiosMock.onGet("/api/admin/users", { params: { emailPrefix: "", after: "cursor-1" } })
+            .reply(200, { items: [third], nextCursor: null });
+        axiosMock.onGet("/api/admin/users", { params: { emailPrefix: "pconrad" } })
+            .reply(200, { items: [second], nextCursor: null });
+
+        const { getByTestId, queryByTestId } = render(
+            <QueryClientProvider client={queryClient}>
+                <MemoryRouter>
+                    <AdminUsersPage />
+                </MemoryRouter>
+            </QueryClientProvider>
+        );
+
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("1"));
+        fireEvent.click(getByTestId("AdminUsersPage-next"));
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("3"));
+
+        fireEvent.change(getByTestId("AdminUsersPage-emailPrefix"), { target: { value: "pconrad" } });
+
+        await waitFor(() => expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("2"));
+        expect(queryByTestId(`${testId}-cell-row-1-col-id`)).not.toBeInTheDocument();
+        expect(getByTestId("AdminUsersPage-emailPrefix")).toHaveValue("pconrad");
+        expect(getByTestId("AdminUsersPage-previous")).toBeDisabled();
+        expect(getByTestId("AdminUsersPage-next")).toBeDisabled();
+        expect(axiosMock.history.get.some((request) => request.params?.emailPrefix === "pconrad" && !request.params.after))
+            .toBe(true);
+    });
+
     test("renders empty table when backend unavailable", async () => {
         const queryClient = new QueryClient();
         axiosMock.onGet("/api/admin/users").timeout();
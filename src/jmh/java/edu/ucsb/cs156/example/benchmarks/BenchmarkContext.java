@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.stream.Stream;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+
+/**
+ * The persistence layer (entities, repositories, second-level cache, all
+ * configured from application.properties) and the current user service,
+ * on an in-memory H2 database, without the web tier.
+ */
+final class BenchmarkContext {
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @EntityScan(basePackageClasses = User.class)
+  @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+  @Import({ CurrentUserServiceImpl.class, GrantedAuthoritiesService.class })
+  static class Config {
+  }
+
+  private BenchmarkContext() {
+  }
+
+  /** Starts a context; properties are name=value pairs that override application.properties. */
+  static ConfigurableApplicationContext start(String... properties) {
+    String[] args = Stream.concat(
+        Stream.of(
+            // a fresh in-memory database, and not the development profile's SQL logging
+            "spring.profiles.active=benchmark",
+            "spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime(),
+            "spring.jpa.hibernate.ddl-auto=create",
+            "springfox.documentation.enabled=false",
+            "spring.devtools.restart.enabled=false",
+            "spring.main.banner-mode=off"),
+        Stream.of(properties))
+        .map(p -> "--" + p)
+        .toArray(String[]::new);
+    return new SpringApplicationBuilder(Config.class).web(WebApplicationType.NONE).run(args);
+  }
+}
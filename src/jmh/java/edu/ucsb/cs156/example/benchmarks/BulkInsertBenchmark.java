@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+
+/**
+ * Rows inserted per second, one save per row (what POST /api/games/post
+ * does for each row) against one saveAll for all of them (what POST
+ * /api/games/bulk does), with JDBC batching as configured in
+ * application.properties.  The table is emptied after each iteration.
+ *
+ * mvn -P benchmark test-compile exec:exec@jmh -Djmh.include=BulkInsert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+  private static final int ROWS = 1000;
+
+  private ConfigurableApplicationContext context;
+  private GameRepository gameRepository;
+  private JdbcTemplate jdbc;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    gameRepository = context.getBean(GameRepository.class);
+    jdbc = context.getBean(JdbcTemplate.class);
+  }
+
+  @TearDown(Level.Iteration)
+  public void emptyTable() {
+    jdbc.update("DELETE FROM games");
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void savePerRow() {
+    for (Game game : games()) {
+      gameRepository.save(game);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Iterable<Game> saveAll() {
+    return gameRepository.saveAll(games());
+  }
+
+  private static List<Game> games() {
+    List<Game> games = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      games.add(Game.builder().name("game " + i).description("description " + i).genre("genre " + (i % 10))
+          .build());
+    }
+    return games;
+  }
+}
@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+/**
+ * CurrentUserServiceImpl.getCurrentUser once per (simulated) request for a
+ * logged in user whose row already exists, with the user cache on and,
+ * with cacheSeconds=0, off (every call reads the users table).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurrentUserBenchmark {
+
+  @Param({ "300", "0" })
+  int cacheSeconds;
+
+  private ConfigurableApplicationContext context;
+  private CurrentUserService currentUserService;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start(
+        "app.admin.emails=admin@ucsb.edu",
+        "app.currentUser.cacheSeconds=" + cacheSeconds);
+    currentUserService = context.getBean(CurrentUserService.class);
+    // JMH may call the benchmark on a different thread from this one
+    SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+    DefaultOAuth2User principal = new DefaultOAuth2User(List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", "1000", "email", "user@ucsb.edu", "name", "User", "email_verified", true), "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+    // the first call inserts the users row
+    currentUserService.getCurrentUser();
+  }
+
+  @TearDown
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    context.close();
+  }
+
+  @Benchmark
+  public CurrentUser getCurrentUser() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    try {
+      return currentUserService.getCurrentUser();
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+  }
+}
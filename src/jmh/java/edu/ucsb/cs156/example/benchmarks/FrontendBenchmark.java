@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Requests/sec for what a browser fetches before any API call: the SPA
+ * shell for a client-side route, and a content-hashed bundle, against the
+ * whole app.  The frontend build is stood in for by the fixtures in
+ * src/test/resources/public.
+ *
+ * mvn -P benchmark test-compile exec:exec@jmh -Djmh.include=Frontend
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class FrontendBenchmark {
+
+  @Param({ "/games/list", "/static/js/main.5e1f2a3b.js" })
+  String path;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient client;
+  private HttpRequest request;
+
+  @Setup
+  public void setUp() throws Exception {
+    context = new SpringApplicationBuilder(HttpLoadBenchmark.Config.class).run(
+        "--spring.profiles.active=benchmark",
+        "--spring.datasource.url=jdbc:h2:mem:frontend-" + System.nanoTime(),
+        "--spring.jpa.hibernate.ddl-auto=create",
+        "--springfox.documentation.enabled=false",
+        "--spring.devtools.restart.enabled=false",
+        "--spring.main.banner-mode=off",
+        "--app.admin.emails=admin@ucsb.edu",
+        "--server.port=0");
+
+    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Accept-Encoding", "gzip, deflate, br")
+        .build();
+    int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    if (status != 200) {
+      throw new IllegalStateException(path + " returned " + status);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int request() throws Exception {
+    return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+  }
+}
@@ -0,0 +1,180 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+
+/**
+ * Requests/sec from 256 concurrent clients against the whole app (security
+ * filters, LoggingAspect, @PreAuthorize controllers, repositories) with
+ * Tomcat's platform thread pool and with app.threads.virtual=true.
+ *
+ * The second-level and query caches are off so that /api/games/all reads
+ * the database on every call; dbMillis adds that much latency to every SQL
+ * statement, as a slow database would.  The virtual-thread runs need a
+ * Java 21 JVM, e.g.
+ * JAVA_HOME=/path/to/jdk21 PATH=$JAVA_HOME/bin:$PATH mvn -P benchmark test-compile exec:exec@jmh -Djmh.include=HttpLoad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @EntityScan(basePackageClasses = Game.class)
+  @EnableJpaRepositories(basePackageClasses = GameRepository.class)
+  @ComponentScan(basePackageClasses = ExampleApplication.class, excludeFilters = {
+      @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+      @ComponentScan.Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.(testconfig|benchmarks)\\..*")
+  })
+  @Import(LoginController.class)
+  static class Config {
+  }
+
+  /** Logs the caller in as an ordinary user, as the OAuth login would. */
+  @RestController
+  public static class LoginController {
+    @GetMapping("/benchmark/login")
+    public String login(HttpServletRequest request) {
+      DefaultOAuth2User principal = new DefaultOAuth2User(
+          List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_MEMBER")),
+          Map.of("sub", "1000", "email", "user@ucsb.edu", "name", "User", "email_verified", true), "sub");
+      SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+      securityContext.setAuthentication(new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+      request.getSession(true).setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+          securityContext);
+      return "ok";
+    }
+  }
+
+  /** Sleeps before each SQL statement is prepared, while the connection is held. */
+  public static class SlowDatabase implements StatementInspector {
+    static volatile long millis;
+
+    @Override
+    public String inspect(String sql) {
+      if (millis > 0) {
+        try {
+          Thread.sleep(millis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return sql;
+    }
+  }
+
+  @Param({ "platform", "virtual" })
+  String threads;
+
+  @Param({ "/api/games/all", "/api/currentUser" })
+  String path;
+
+  @Param({ "0", "20" })
+  long dbMillis;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient client;
+  private HttpRequest request;
+
+  @Setup
+  public void setUp() throws Exception {
+    context = new SpringApplicationBuilder(Config.class).run(
+        "--spring.profiles.active=benchmark",
+        "--spring.datasource.url=jdbc:h2:mem:load-" + System.nanoTime(),
+        "--spring.jpa.hibernate.ddl-auto=create",
+        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SlowDatabase.class.getName(),
+        "--springfox.documentation.enabled=false",
+        "--spring.devtools.restart.enabled=false",
+        "--spring.main.banner-mode=off",
+        "--app.admin.emails=admin@ucsb.edu",
+        "--app.threads.virtual=" + threads.equals("virtual"),
+        "--server.port=0");
+    List<Game> games = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      games.add(Game.builder().name("Game " + i).description("An open world adventure, part " + i)
+          .genre("Adventure").build());
+    }
+    context.getBean(GameRepository.class).saveAll(games);
+    SlowDatabase.millis = dbMillis;
+
+    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    HttpResponse<String> login = client.send(
+        HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/benchmark/login")).build(),
+        HttpResponse.BodyHandlers.ofString());
+    String session = login.headers().allValues("Set-Cookie").stream()
+        .filter(cookie -> cookie.startsWith("JSESSIONID="))
+        .map(cookie -> cookie.split(";")[0])
+        .findFirst().orElseThrow();
+    request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Cookie", session)
+        .build();
+    int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    if (status != 200) {
+      throw new IllegalStateException(path + " returned " + status);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    SlowDatabase.millis = 0;
+    context.close();
+  }
+
+  @Benchmark
+  public int request() throws Exception {
+    return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+  }
+}
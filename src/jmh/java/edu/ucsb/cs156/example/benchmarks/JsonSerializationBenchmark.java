@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.User;
+
+/**
+ * Serializing an /all response: a list of entities written with an
+ * ObjectMapper configured the way Spring Boot configures the app's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+  @Param({ "games", "movies", "ucsbdates", "users" })
+  String entity;
+
+  @Param({ "10", "1000" })
+  int rows;
+
+  private ObjectMapper mapper;
+  private List<?> list;
+
+  @Setup
+  public void setUp() {
+    mapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    Instant modified = Instant.parse("2023-05-01T10:15:30Z");
+    IntFunction<?> row = switch (entity) {
+      case "games" -> i -> Game.builder().id(i).name("Game " + i).description("An open world adventure, part " + i)
+          .genre("Adventure").version(1L).lastModified(modified).build();
+      case "movies" -> i -> Movie.builder().id(i).name("Movie " + i).year("2001")
+          .summary("A hobbit sets out to destroy a ring, part " + i).version(1L).lastModified(modified).build();
+      case "ucsbdates" -> i -> UCSBDate.builder().id(i).quarterYYYYQ("20232").name("Date " + i)
+          .localDateTime(LocalDateTime.parse("2023-04-03T08:00:00").plusHours(i)).version(1L).lastModified(modified)
+          .build();
+      case "users" -> i -> User.builder().id(i).email("user" + i + "@ucsb.edu").googleSub("1000" + i)
+          .pictureUrl("https://lh3.googleusercontent.com/a/" + i).fullName("User " + i).givenName("User")
+          .familyName(Integer.toString(i)).emailVerified(true).locale("en").hostedDomain("ucsb.edu").build();
+      default -> throw new IllegalArgumentException("unknown entity " + entity);
+    };
+    list = IntStream.range(0, rows).mapToObj(row).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public byte[] serializeList() throws Exception {
+    return mapper.writeValueAsBytes(list);
+  }
+}
@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+
+/**
+ * What LoggingAspect.logControllers adds to a controller call: the same
+ * handler called directly and through a proxy advised by the aspect, with
+ * and without a current HTTP request.
+ *
+ * The aspect is the current LoggingAspect (through an async appender, as in
+ * logback-spring.xml), the same sampling every 100th call, or "legacy", the
+ * aspect as it was before per-handler metadata, parameterized logging and
+ * the async appender (a synchronous appender).  Log lines go to a file (see
+ * logback-test.xml).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  public static class Handler {
+    @GetMapping("/api/games/all")
+    public int handle(int x) {
+      return x + 1;
+    }
+  }
+
+  /** LoggingAspect as it was: stoplist scan, eager formatted, synchronous appender. */
+  @Aspect
+  public static class LegacyLoggingAspect {
+    private static final Logger log = LoggerFactory.getLogger("benchmarks.legacy");
+
+    private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
+        "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+
+    @Before("@annotation(org.springframework.web.bind.annotation.GetMapping)")
+    public void logControllers(JoinPoint joinPoint) {
+      getCurrentHttpRequest().ifPresent(
+          request -> {
+            String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
+            if (!stoplist.contains(declaringTypeName)) {
+              log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
+                  joinPoint.getSignature().getName(), declaringTypeName));
+            }
+          });
+    }
+
+    private static Optional<HttpServletRequest> getCurrentHttpRequest() {
+      return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
+          .filter(ServletRequestAttributes.class::isInstance)
+          .map(ServletRequestAttributes.class::cast)
+          .map(ServletRequestAttributes::getRequest);
+    }
+  }
+
+  @Param({ "true", "false" })
+  boolean inRequest;
+
+  @Param({ "current", "sampled", "legacy" })
+  String aspect;
+
+  private Handler direct;
+  private Handler advised;
+  private int x;
+
+  @Setup
+  public void setUp() {
+    direct = new Handler();
+    AspectJProxyFactory factory = new AspectJProxyFactory(new Handler());
+    factory.setProxyTargetClass(true);
+    switch (aspect) {
+      case "current" -> factory.addAspect(new LoggingAspect());
+      case "sampled" -> {
+        LoggingAspect sampledAspect = new LoggingAspect();
+        sampledAspect.setSampled(List.of("Handler:100"));
+        factory.addAspect(sampledAspect);
+      }
+      case "legacy" -> factory.addAspect(new LegacyLoggingAspect());
+      default -> throw new IllegalArgumentException("unknown aspect " + aspect);
+    }
+    advised = factory.getProxy();
+    if (inRequest) {
+      RequestContextHolder.setRequestAttributes(
+          new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/games/all")));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public int direct() {
+    return direct.handle(x++);
+  }
+
+  @Benchmark
+  public int advised() {
+    return advised.handle(x++);
+  }
+}
@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.config.RateLimitFilter;
+
+/**
+ * What RateLimitFilter adds to each /api request: the filter in front of
+ * a chain that does nothing, against the chain alone, from 8 threads
+ * spread over some number of users.
+ *
+ * With "allowed" limits every request goes through; with "throttled" every
+ * request is turned away with a 429 (and its JSON body).  At 50,000
+ * requests a second a request may take up to 20 us of one core, so the
+ * filter is negligible if it takes a small fraction of that.
+ *
+ * mvn -P benchmark test-compile exec:exec@jmh -Djmh.include=RateLimit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimitBenchmark {
+
+  private static final FilterChain NOTHING = (request, response) -> ((HttpServletResponse) response).setStatus(200);
+
+  @Param({ "1", "10000" })
+  int users;
+
+  @Param({ "allowed", "throttled" })
+  String limits;
+
+  private RateLimitFilter filter;
+
+  /** Each thread's requests, from users picked at random. */
+  @State(Scope.Thread)
+  public static class Requests {
+    final MockHttpServletRequest[] requests = new MockHttpServletRequest[1024];
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    int next;
+
+    @Setup
+    public void setUp(RateLimitBenchmark benchmark) {
+      for (int i = 0; i < requests.length; i++) {
+        requests[i] = new MockHttpServletRequest("GET", "/api/games/all");
+        String user = "user" + ThreadLocalRandom.current().nextInt(benchmark.users);
+        requests[i].setUserPrincipal(new UsernamePasswordAuthenticationToken(user, null));
+      }
+    }
+
+    MockHttpServletRequest next() {
+      response.reset();
+      return requests[next++ & (requests.length - 1)];
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    // "allowed": a billion requests a second; "throttled": one, then one a day
+    boolean allowed = limits.equals("allowed");
+    long capacity = allowed ? 1_000_000_000L : 1;
+    double perSecond = allowed ? 1e9 : 1.0 / 86_400;
+    filter = new RateLimitFilter(new ObjectMapper(), capacity, perSecond, capacity, perSecond, capacity, perSecond);
+  }
+
+  @Benchmark
+  public int chainOnly(Requests r) throws Exception {
+    NOTHING.doFilter(r.next(), r.response);
+    return r.response.getStatus();
+  }
+
+  @Benchmark
+  public int rateLimited(Requests r) throws Exception {
+    filter.doFilter(r.next(), r.response, NOTHING);
+    return r.response.getStatus();
+  }
+}
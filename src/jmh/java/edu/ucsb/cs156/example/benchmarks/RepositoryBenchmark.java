@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+
+/**
+ * GameRepository findAll / findById against H2 at several table sizes,
+ * with and without the second-level and query cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  @Param({ "100", "1000", "10000" })
+  int rows;
+
+  @Param({ "true", "false" })
+  boolean cache;
+
+  private ConfigurableApplicationContext context;
+  private GameRepository gameRepository;
+  private long[] ids;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start(
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+        "spring.jpa.properties.hibernate.cache.use_query_cache=" + cache);
+    gameRepository = context.getBean(GameRepository.class);
+    List<Game> games = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      games.add(Game.builder().name("Game " + i).description("An open world adventure, part " + i)
+          .genre("Adventure").build());
+    }
+    ids = new long[rows];
+    int i = 0;
+    for (Game game : gameRepository.saveAll(games)) {
+      ids[i++] = game.getId();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Iterable<Game> findAll() {
+    return gameRepository.findAll();
+  }
+
+  @Benchmark
+  public Game findById() {
+    return gameRepository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]).orElseThrow();
+  }
+}
@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.models.SearchResults;
+import edu.ucsb.cs156.example.services.SearchIndexService;
+
+/**
+ * SearchIndexService.search on an index of a million rows whose words are
+ * drawn from a 20,000 word vocabulary with a skewed (Zipf-like)
+ * distribution, so some words appear in a large share of the rows.  The
+ * queries are the most common word, a common pair, a rare word, and a
+ * common and a rare word; sampled, so the results include percentiles.
+ *
+ * The rows go straight into the index (onSave), not through the database.
+ *
+ * mvn -P benchmark test-compile exec:exec@jmh -Djmh.include=Search
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+  private static final int ROWS = 1_000_000;
+  private static final int VOCABULARY = 20_000;
+
+  @Param({ "w0", "w1 w2", "w15000", "w0 w15000" })
+  String query;
+
+  private ConfigurableApplicationContext context;
+  private SearchIndexService searchIndex;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    searchIndex = context.getAutowireCapableBeanFactory().createBean(SearchIndexService.class);
+    Random random = new Random(42);
+    for (long id = 1; id <= ROWS; id++) {
+      searchIndex.onSave(Game.builder().id(id).name(words(random, 3)).description(words(random, 8))
+          .genre(words(random, 1)).version(0L).build());
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public SearchResults search() {
+    return searchIndex.search(query, List.of(), 0, 20);
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      // Zipf-like: word k is drawn with probability roughly proportional to 1/(k+1)
+      int word = (int) Math.floor(Math.pow(VOCABULARY + 1, random.nextDouble())) - 1;
+      text.append('w').append(word).append(' ');
+    }
+    return text.toString();
+  }
+}
@@ -1,20 +1,47 @@
 package edu.ucsb.cs156.example.aop;
 
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Logs one line per controller call: "===== GET /api/games/all handled by
+ * allGames in edu.ucsb.cs156.example.controllers.GamesController".
+ *
+ * What to log for a handler method is worked out on its first call and
+ * kept; after that a call costs a map lookup and, when the line is logged,
+ * one parameterized log call (the appender in logback-spring.xml is async).
+ *
+ * Handlers are named by controller (simple or fully qualified class name)
+ * or by controller and method, e.g. GamesController.allGames:
+ * <ul>
+ * <li><code>app.requestLogging.stoplist</code>: handlers never logged</li>
+ * <li><code>app.requestLogging.sampled</code>: handler:N pairs; only every
+ * Nth call of the handler is logged.  These are checked when the
+ * application starts, which fails on a malformed pair.</li>
+ * <li><code>app.requestLogging.maxPerSecond</code>: at most this many lines
+ * per second per handler (0 for no limit)</li>
+ * </ul>
+ */
 @Slf4j
 @Aspect
 @Component
@@ -29,25 +56,131 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  @Setter
+  @Value("${app.requestLogging.stoplist:FrontendProxyController,FrontendController}")
+  List<String> stoplist = new ArrayList<>(List.of("FrontendProxyController", "FrontendController"));
+
+  @Value("${app.requestLogging.sampled:}")
+  List<String> sampled = new ArrayList<>();
+
+  // handler name to N, from sampled
+  private Map<String, Long> sampleEvery = Map.of();
+
+  @Setter
+  @Value("${app.requestLogging.maxPerSecond:0}")
+  int maxPerSecond;
+
+  private final Map<Method, HandlerLog> handlers = new ConcurrentHashMap<>();
+
+  public void setSampled(List<String> sampled) {
+    this.sampled = sampled;
+    parseSampled();
+  }
+
+  @PostConstruct
+  void parseSampled() {
+    Map<String, Long> every = new HashMap<>();
+    for (String entry : sampled) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      int colon = entry.lastIndexOf(':');
+      long n = colon > 0 ? parseOrZero(entry.substring(colon + 1).trim()) : 0;
+      if (n < 1 || entry.substring(0, colon).isBlank()) {
+        throw new IllegalArgumentException(
+            "app.requestLogging.sampled: expected handler:N, with N a whole number of at least 1, but got '%s'"
+                .formatted(entry));
+      }
+      every.put(entry.substring(0, colon).trim(), n);
+    }
+    sampleEvery = every;
+    handlers.clear();
+  }
 
   @Before(pointcut)
   public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    HandlerLog handler = handlers.get(method);
+    if (handler == null) {
+      handler = handlers.computeIfAbsent(method, this::describe);
+    }
+    if (!handler.shouldLog()) {
+      return;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletAttributes) {
+      HttpServletRequest request = servletAttributes.getRequest();
+      log.info("===== {} {} handled by {} in {}", request.getMethod(), request.getRequestURI(),
+          handler.methodName, handler.typeName);
+    }
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static long parseOrZero(String number) {
+    try {
+      return Long.parseLong(number);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private HandlerLog describe(Method method) {
+    Class<?> type = method.getDeclaringClass();
+    List<String> names = List.of(type.getSimpleName(), type.getName(),
+        type.getSimpleName() + "." + method.getName(), type.getName() + "." + method.getName());
+    if (stoplist.stream().map(String::trim).anyMatch(names::contains)) {
+      return new HandlerLog(method, false, 1, 0);
+    }
+    long every = 1;
+    for (String name : names) {
+      every = sampleEvery.getOrDefault(name, every);
+    }
+    return new HandlerLog(method, true, every, maxPerSecond);
+  }
+
+  /** What to log for one handler method, and its sampling / rate limit counters. */
+  private static final class HandlerLog {
+    final String methodName;
+    final String typeName;
+    private final boolean enabled;
+    private final long every;
+    private final int maxPerSecond;
+    private final AtomicLong calls = new AtomicLong();
+    // (second << 32) | lines logged in that second
+    private final AtomicLong window = new AtomicLong();
+
+    HandlerLog(Method method, boolean enabled, long every, int maxPerSecond) {
+      this.methodName = method.getName();
+      this.typeName = method.getDeclaringClass().getName();
+      this.enabled = enabled;
+      this.every = every;
+      this.maxPerSecond = maxPerSecond;
+    }
+
+    boolean shouldLog() {
+      if (!enabled) {
+        return false;
+      }
+      if (every > 1 && calls.getAndIncrement() % every != 0) {
+        return false;
+      }
+      return maxPerSecond <= 0 || takeFromWindow();
+    }
+
+    private boolean takeFromWindow() {
+      long second = System.currentTimeMillis() / 1000;
+      while (true) {
+        long current = window.get();
+        long next = (current >>> 32) == second ? current + 1 : (second << 32) | 1;
+        if ((next & 0xffffffffL) > maxPerSecond) {
+          return false;
+        }
+        if (window.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
   }
 }
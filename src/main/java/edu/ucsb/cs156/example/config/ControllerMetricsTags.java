@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.method.HandlerMethod;
+
+import edu.ucsb.cs156.example.controllers.ApiController;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Adds entity and operation tags to the http.server.requests timer for
+ * handlers in edu.ucsb.cs156.example.controllers: entity is the last
+ * segment of the controller's base path (games, ucsbdates, users, ...) and
+ * operation the handler method's name (allGames, postGame, ...).  Other
+ * requests are tagged entity=none, operation=none.
+ */
+@Component
+public class ControllerMetricsTags implements WebMvcTagsContributor {
+  static final Tags NONE = Tags.of("entity", "none", "operation", "none");
+
+  private final Map<Method, Tags> tags = new ConcurrentHashMap<>();
+
+  @Override
+  public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Throwable exception) {
+    return tagsFor(handler);
+  }
+
+  @Override
+  public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+    return tagsFor(handler);
+  }
+
+  Tags tagsFor(Object handler) {
+    if (!(handler instanceof HandlerMethod handlerMethod)) {
+      return NONE;
+    }
+    return tags.computeIfAbsent(handlerMethod.getMethod(), ControllerMetricsTags::describe);
+  }
+
+  private static Tags describe(Method method) {
+    Class<?> type = method.getDeclaringClass();
+    if (!type.getPackageName().equals(ApiController.class.getPackageName())) {
+      return NONE;
+    }
+    return Tags.of("entity", entity(type), "operation", method.getName());
+  }
+
+  static String entity(Class<?> controller) {
+    RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(controller, RequestMapping.class);
+    if (mapping != null && mapping.path().length > 0) {
+      String path = mapping.path()[0].replaceAll("/+$", "");
+      String last = path.substring(path.lastIndexOf('/') + 1);
+      if (!last.isEmpty()) {
+        return last;
+      }
+    }
+    return controller.getSimpleName().replaceFirst("Controller$", "").toLowerCase();
+  }
+}
@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.config;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relays the React dev server's hot-reload socket (/ws), so that in
+ * development the browser needs nothing but the app's own port; see
+ * FrontendProxyController for the rest of the dev server's traffic.
+ * Each browser socket gets its own socket to the dev server, and
+ * messages are passed through in both directions until either closes.
+ */
+@Slf4j
+@Profile("development")
+@Configuration
+@EnableWebSocket
+public class DevServerSocketProxy implements WebSocketConfigurer {
+  static final String PATH = "/ws";
+  private static final String UPSTREAM = "upstream";
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Value("${app.frontend.devServerUrl:http://localhost:3000}")
+  String devServerUrl;
+
+  @Override
+  public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+    registry.addHandler(new Relay(), PATH);
+  }
+
+  class Relay extends AbstractWebSocketHandler {
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+      // the dev server's messages arrive on HttpClient threads; the
+      // decorator serializes the sends to the browser
+      WebSocketSession browser = new ConcurrentWebSocketSessionDecorator(session, 10_000, 1024 * 1024);
+      URI uri = URI.create(devServerUrl.replaceFirst("^http", "ws") + PATH);
+      WebSocket upstream = client.newWebSocketBuilder()
+          .buildAsync(uri, new ToBrowser(browser))
+          .exceptionally(e -> {
+            log.warn("Can't reach the dev server's socket at {}: {}", uri, e.getMessage());
+            close(browser, CloseStatus.SERVER_ERROR);
+            return null;
+          })
+          .join();
+      session.getAttributes().put(UPSTREAM, upstream);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+      WebSocket upstream = upstream(session);
+      if (upstream != null) {
+        upstream.sendText(message.getPayload(), message.isLast()).join();
+      }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+      WebSocket upstream = upstream(session);
+      if (upstream != null) {
+        upstream.sendBinary(message.getPayload(), message.isLast()).join();
+      }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+      WebSocket upstream = upstream(session);
+      if (upstream != null) {
+        upstream.abort();
+      }
+    }
+
+    private WebSocket upstream(WebSocketSession session) {
+      return (WebSocket) session.getAttributes().get(UPSTREAM);
+    }
+  }
+
+  static class ToBrowser implements WebSocket.Listener {
+    private final WebSocketSession browser;
+
+    ToBrowser(WebSocketSession browser) {
+      this.browser = browser;
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      send(webSocket, new TextMessage(data, last));
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+      ByteBuffer copy = ByteBuffer.allocate(data.remaining()).put(data).flip();
+      send(webSocket, new BinaryMessage(copy, last));
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+      close(browser, new CloseStatus(statusCode, reason));
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+      close(browser, CloseStatus.SERVER_ERROR);
+    }
+
+    private void send(WebSocket webSocket, WebSocketMessage<?> message) {
+      try {
+        browser.sendMessage(message);
+        webSocket.request(1);
+      } catch (Exception e) {
+        webSocket.abort();
+        close(browser, CloseStatus.SERVER_ERROR);
+      }
+    }
+  }
+
+  static void close(WebSocketSession session, CloseStatus status) {
+    try {
+      session.close(status);
+    } catch (Exception e) {
+      // already closed
+    }
+  }
+}
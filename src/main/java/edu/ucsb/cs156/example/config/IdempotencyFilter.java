@@ -0,0 +1,187 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Makes POSTs to /api/** that carry an Idempotency-Key header safe to
+ * retry: the first request with a key runs, and later ones get its
+ * response back (with Idempotent-Replayed: true) without reaching the
+ * controller.  A retry that arrives while the first request is still
+ * running waits for it, up to <code>app.idempotency.waitSeconds</code>.
+ *
+ * Keys are per user, and a key may only be reused for the same request:
+ * the same path and parameters.  JSON and multipart bodies are not
+ * compared.  Responses are kept for <code>app.idempotency.ttlSeconds</code>,
+ * in at most <code>app.idempotency.maxBytes</code> of heap, except 5xx
+ * and 429 responses and requests that throw, which are run again when
+ * retried.  A body longer than <code>app.idempotency.maxBodyBytes</code>
+ * (a large bulk response, say) isn't kept: its replays get the status and
+ * ETag, an empty body and Idempotent-Body-Omitted: true, but the request
+ * still isn't run twice.
+ *
+ * Runs after Spring Security, so the user is known and requests that are
+ * turned away never claim a key.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+  static final String HEADER = "Idempotency-Key";
+  static final String REPLAYED = "Idempotent-Replayed";
+  static final String BODY_OMITTED = "Idempotent-Body-Omitted";
+  static final int MAX_KEY_LENGTH = 255;
+
+  private final ObjectMapper mapper;
+  private final IdempotencyStore store;
+  private final Duration waitTimeout;
+
+  public IdempotencyFilter(ObjectMapper mapper,
+      @Value("${app.idempotency.maxBytes:67108864}") long maxBytes,
+      @Value("${app.idempotency.maxBodyBytes:1048576}") int maxBodyBytes,
+      @Value("${app.idempotency.ttlSeconds:86400}") long ttlSeconds,
+      @Value("${app.idempotency.waitSeconds:30}") long waitSeconds) {
+    this.mapper = mapper;
+    this.store = new IdempotencyStore(maxBytes, maxBodyBytes, Duration.ofSeconds(ttlSeconds));
+    this.waitTimeout = Duration.ofSeconds(waitSeconds);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getMethod().equals("POST")
+        || request.getHeader(HEADER) == null
+        || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String key = request.getHeader(HEADER);
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      error(response, HttpStatus.BAD_REQUEST, "BadRequestException",
+          "%s must be 1 to %d characters".formatted(HEADER, MAX_KEY_LENGTH));
+      return;
+    }
+    Principal user = request.getUserPrincipal();
+    String scopedKey = (user == null ? "" : user.getName()) + "\n" + key;
+    String fingerprint = fingerprint(request);
+    long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+    while (true) {
+      IdempotencyStore.Claim claim = store.claim(scopedKey, fingerprint);
+      if (!claim.entry().fingerprint().equals(fingerprint)) {
+        error(response, HttpStatus.UNPROCESSABLE_ENTITY, "IdempotencyKeyReused",
+            "%s %s was already used for a different request".formatted(HEADER, key));
+        return;
+      }
+      if (claim.mine()) {
+        runFirst(request, response, chain, scopedKey, claim.entry());
+        return;
+      }
+      IdempotencyStore.StoredResponse stored;
+      try {
+        stored = IdempotencyStore.await(claim.entry(), Duration.ofNanos(deadline - System.nanoTime()));
+      } catch (TimeoutException | InterruptedException e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        error(response, HttpStatus.CONFLICT, "IdempotencyKeyInProgress",
+            "the request with %s %s is still running; try again later".formatted(HEADER, key));
+        return;
+      }
+      if (stored != null) {
+        replay(stored, response);
+        return;
+      }
+      // the first request failed and gave the key up; claim it again
+    }
+  }
+
+  private void runFirst(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+      String scopedKey, IdempotencyStore.Entry entry) throws ServletException, IOException {
+    ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+    boolean kept = false;
+    try {
+      chain.doFilter(request, wrapper);
+      int status = wrapper.getStatus();
+      if (!request.isAsyncStarted() && status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+        store.complete(scopedKey, entry, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+            wrapper.getHeader(HttpHeaders.ETAG), wrapper.getContentAsByteArray()));
+        kept = true;
+      }
+    } finally {
+      if (!kept) {
+        store.abandon(scopedKey, entry);
+      }
+      wrapper.copyBodyToResponse();
+    }
+  }
+
+  private static void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response)
+      throws IOException {
+    response.setStatus(stored.status());
+    if (stored.contentType() != null) {
+      response.setContentType(stored.contentType());
+    }
+    if (stored.eTag() != null) {
+      response.setHeader(HttpHeaders.ETAG, stored.eTag());
+    }
+    response.setHeader(REPLAYED, "true");
+    if (stored.bodyOmitted()) {
+      response.setHeader(BODY_OMITTED, "true");
+    }
+    response.setContentLength(stored.body().length);
+    response.getOutputStream().write(stored.body());
+  }
+
+  private void error(HttpServletResponse response, HttpStatus status, String type, String message)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    mapper.writeValue(response.getOutputStream(), Map.of("type", type, "message", message));
+  }
+
+  /**
+   * The method, path and parameters (but not the CSRF token) of a
+   * request.  The parameters of a multipart request are left out, so that
+   * the (possibly very large) upload isn't parsed here.
+   */
+  static String fingerprint(HttpServletRequest request) {
+    StringBuilder fingerprint = new StringBuilder(request.getMethod()).append(' ').append(request.getRequestURI());
+    String contentType = request.getContentType();
+    if (contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+      if (request.getQueryString() != null) {
+        fingerprint.append('?').append(request.getQueryString());
+      }
+      return fingerprint.toString();
+    }
+    Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+    // a fresh CSRF token may come with each retry
+    CsrfToken csrf = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+    if (csrf != null) {
+      parameters.remove(csrf.getParameterName());
+    }
+    parameters.forEach((name, values) ->
+        fingerprint.append('\n').append(name).append('=').append(Arrays.toString(values)));
+    return fingerprint.toString();
+  }
+}
@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * The first response to each idempotency key, kept for ttl after its
+ * request finished, in at most maxBytes of heap (least recently used go
+ * first).  A response body longer than maxBodyBytes isn't kept: the key
+ * still is, and replays get the status and headers with an empty body.
+ *
+ * A key is claimed by the first request to arrive with it, before its
+ * handler runs; the claim is one atomic putIfAbsent on a map of the
+ * requests still running, which only locks the key's bin, so requests
+ * with different keys never wait for each other.  Later requests with the
+ * key get the claim's future and wait on it outside any lock.  Running
+ * requests are never evicted (there are only as many as there are request
+ * threads); only once a request finishes does its response move to the
+ * bounded cache.
+ */
+class IdempotencyStore {
+  /** What a key costs on top of its body: the strings, the entry and the cache's node. */
+  static final int ENTRY_OVERHEAD = 256;
+
+  /**
+   * What a replay sends back; body is empty, and bodyOmitted true, if the
+   * response was too long to keep.
+   */
+  record StoredResponse(int status, String contentType, String eTag, byte[] body, boolean bodyOmitted) {
+    StoredResponse(int status, String contentType, String eTag, byte[] body) {
+      this(status, contentType, eTag, body, false);
+    }
+
+    StoredResponse withoutBody() {
+      return new StoredResponse(status, contentType, eTag, new byte[0], true);
+    }
+  }
+
+  /**
+   * A claimed key: the request it was claimed for and, once that request
+   * finishes, its response; null if it failed and the key was given up.
+   */
+  record Entry(String fingerprint, CompletableFuture<StoredResponse> response) {
+  }
+
+  /** The entry for a key and whether this request is the one that claimed it. */
+  record Claim(Entry entry, boolean mine) {
+  }
+
+  private final int maxBodyBytes;
+  private final ConcurrentMap<String, Entry> running = new ConcurrentHashMap<>();
+  private final Cache<String, Entry> finished;
+
+  IdempotencyStore(long maxBytes, int maxBodyBytes, Duration ttl) {
+    this(maxBytes, maxBodyBytes, ttl, Ticker.systemTicker());
+  }
+
+  IdempotencyStore(long maxBytes, int maxBodyBytes, Duration ttl, Ticker ticker) {
+    this.maxBodyBytes = maxBodyBytes;
+    finished = Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumWeight(maxBytes)
+        .<String, Entry>weigher((key, entry) -> weight(key, entry))
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Claim the key for a request.  If the claim is the caller's, it must
+   * complete or abandon it; otherwise it holds the earlier request's entry.
+   */
+  Claim claim(String key, String fingerprint) {
+    Entry mine = new Entry(fingerprint, new CompletableFuture<>());
+    Entry existing = running.putIfAbsent(key, mine);
+    if (existing != null) {
+      return new Claim(existing, false);
+    }
+    // complete() keeps the response before it lets go of the key, so a
+    // request that finished before this claim is found here
+    Entry done = finished.getIfPresent(key);
+    if (done != null) {
+      // anyone who saw this claim in the meantime tries again, and finds done
+      abandon(key, mine);
+      return new Claim(done, false);
+    }
+    return new Claim(mine, true);
+  }
+
+  /** Keep the response for replays and wake up the requests waiting on it. */
+  void complete(String key, Entry entry, StoredResponse response) {
+    StoredResponse kept = response.body().length > maxBodyBytes ? response.withoutBody() : response;
+    entry.response().complete(kept);
+    finished.put(key, entry);
+    running.remove(key, entry);
+  }
+
+  /**
+   * Forget a claim whose request failed, so that a retry runs it again;
+   * requests waiting on it try to claim the key themselves.
+   */
+  void abandon(String key, Entry entry) {
+    running.remove(key, entry);
+    entry.response().complete(null);
+  }
+
+  /**
+   * The response of a claimed request, waiting up to timeout for it to
+   * finish; null if the claim was abandoned.
+   */
+  static StoredResponse await(Entry entry, Duration timeout) throws TimeoutException, InterruptedException {
+    try {
+      return entry.response().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private static int weight(String key, Entry entry) {
+    StoredResponse response = entry.response().getNow(null);
+    int body = response == null ? 0 : response.body().length;
+    return ENTRY_OVERHEAD + 2 * (key.length() + entry.fingerprint().length()) + body;
+  }
+
+  long size() {
+    finished.cleanUp();
+    return running.size() + finished.estimatedSize();
+  }
+
+  /** The bytes the finished responses are reckoned to take. */
+  long weight() {
+    finished.cleanUp();
+    return finished.policy().eviction().orElseThrow().weightedSize().orElse(0);
+  }
+}
@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+
+/**
+ * Security for /actuator/prometheus, ahead of SecurityConfig.  A
+ * Prometheus server can't log in with Google, so it sends HTTP Basic
+ * credentials, <code>app.metrics.username</code> and
+ * <code>.password</code> (METRICS_USERNAME / METRICS_PASSWORD), which
+ * give the METRICS role and nothing else.  The password may be given
+ * encoded, e.g. <code>{bcrypt}$2a$10$...</code>; otherwise it is taken as
+ * is.  Admins logged in with Google may still look at the endpoint.  With
+ * no password set, there is no scrape user at all.
+ *
+ * Scrapes don't keep cookies, so no session is created for them.
+ */
+@Configuration
+@Order(1)
+public class MetricsSecurityConfig extends WebSecurityConfigurerAdapter {
+  static final String METRICS = "METRICS";
+
+  private final String username;
+  private final String password;
+
+  public MetricsSecurityConfig(
+      @Value("${app.metrics.username:prometheus}") String username,
+      @Value("${app.metrics.password:}") String password) {
+    this.username = username;
+    this.password = password;
+  }
+
+  @Override
+  protected void configure(HttpSecurity http) throws Exception {
+    http.requestMatcher(EndpointRequest.to("prometheus"))
+        .authorizeRequests(authorize -> authorize.anyRequest().hasAnyRole(METRICS, "ADMIN"))
+        .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.NEVER))
+        .csrf(csrf -> csrf.disable());
+    if (!password.isBlank()) {
+      http.httpBasic();
+    }
+  }
+
+  @Override
+  protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+    if (password.isBlank()) {
+      return;
+    }
+    auth.inMemoryAuthentication()
+        .passwordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder())
+        .withUser(username)
+        .password(password.startsWith("{") ? password : "{noop}" + password)
+        .roles(METRICS);
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Limits how fast each logged in user may call /api/**, so that one user
+ * can't take all of the database connections.  Requests over the limit
+ * get 429 with a Retry-After header (in seconds) and never reach the
+ * controller.
+ *
+ * There is a separate limit (see RateLimiter) for each group of endpoints:
+ * /api/admin/** ("admin"), other GETs ("reads") and other writes
+ * ("writes"), set by <code>app.rateLimit.&lt;group&gt;.capacity</code>
+ * (the burst allowed) and <code>.perSecond</code> (the sustained rate).
+ * Users are told apart by the principal's name: the OAuth sub.  Requests
+ * from nobody in particular are left alone; they don't get past the
+ * method security on /api/** anyway.
+ *
+ * Runs after Spring Security, so the user is known, and before
+ * IdempotencyFilter, so a throttled retry doesn't claim its key.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+  static final String READS = "reads";
+  static final String WRITES = "writes";
+  static final String ADMIN = "admin";
+
+  private final ObjectMapper mapper;
+  private final RateLimiter limiter;
+
+  public RateLimitFilter(ObjectMapper mapper,
+      @Value("${app.rateLimit.reads.capacity:100}") long readsCapacity,
+      @Value("${app.rateLimit.reads.perSecond:20}") double readsPerSecond,
+      @Value("${app.rateLimit.writes.capacity:30}") long writesCapacity,
+      @Value("${app.rateLimit.writes.perSecond:5}") double writesPerSecond,
+      @Value("${app.rateLimit.admin.capacity:20}") long adminCapacity,
+      @Value("${app.rateLimit.admin.perSecond:2}") double adminPerSecond) {
+    this.mapper = mapper;
+    this.limiter = new RateLimiter(Map.of(
+        READS, new RateLimiter.Limit(readsCapacity, readsPerSecond),
+        WRITES, new RateLimiter.Limit(writesCapacity, writesPerSecond),
+        ADMIN, new RateLimiter.Limit(adminCapacity, adminPerSecond)));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Principal user = request.getUserPrincipal();
+    if (user == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    String group = groupOf(request);
+    long wait = limiter.acquire(group, user.getName());
+    if (wait == 0) {
+      chain.doFilter(request, response);
+      return;
+    }
+    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    mapper.writeValue(response.getOutputStream(), Map.of(
+        "type", "TooManyRequests",
+        "message", "too many %s requests; try again in %d seconds".formatted(group, seconds)));
+  }
+
+  static String groupOf(HttpServletRequest request) {
+    if (request.getRequestURI().startsWith(request.getContextPath() + "/api/admin/")) {
+      return ADMIN;
+    }
+    String method = request.getMethod();
+    return method.equals("GET") || method.equals("HEAD") ? READS : WRITES;
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * A token bucket per user and group of endpoints.  Each bucket holds up to
+ * capacity tokens and gains perSecond of them a second; a request takes
+ * one, or is turned away if there are none.
+ *
+ * A bucket is one AtomicLong, the time at which it will be full again
+ * (the "generic cell rate algorithm"), updated with compareAndSet, so no
+ * request ever blocks on another.  Buckets live in a Caffeine cache and
+ * are dropped once nobody has used them for longer than the slowest group
+ * takes to refill: by then they are full, which is also how a new bucket
+ * starts, so nothing is lost.
+ */
+class RateLimiter {
+
+  /** The size and refill rate of one group's buckets. */
+  record Limit(long capacity, double perSecond) {
+    Limit {
+      if (capacity < 1 || !(perSecond > 0)) {
+        throw new IllegalArgumentException(
+            "rate limits need a capacity of at least 1 and a positive rate; got %d and %s"
+                .formatted(capacity, perSecond));
+      }
+    }
+
+    /** Nanoseconds per token. */
+    long interval() {
+      return Math.max(1, Math.round(1e9 / perSecond));
+    }
+
+    /** Nanoseconds for an empty bucket to fill. */
+    long refill() {
+      return capacity * interval();
+    }
+  }
+
+  static final class Bucket {
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    /** Take a token; returns 0, or how many nanoseconds until there is one. */
+    long take(long now, long interval, long refill) {
+      while (true) {
+        long full = fullAt.get();
+        long next = Math.max(full, now) + interval;
+        long wait = next - now - refill;
+        if (wait > 0) {
+          return wait;
+        }
+        if (fullAt.compareAndSet(full, next)) {
+          return 0;
+        }
+      }
+    }
+  }
+
+  private final Map<String, Limit> limits;
+  private final Ticker ticker;
+  private final Cache<String, Bucket> buckets;
+
+  RateLimiter(Map<String, Limit> limits) {
+    this(limits, Ticker.systemTicker());
+  }
+
+  RateLimiter(Map<String, Limit> limits, Ticker ticker) {
+    this.limits = Map.copyOf(limits);
+    this.ticker = ticker;
+    long idle = limits.values().stream().mapToLong(Limit::refill).max().orElse(0);
+    buckets = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofNanos(idle))
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Take a token from the user's bucket for the group; returns 0 if the
+   * request may go ahead, otherwise how many nanoseconds until it may.
+   */
+  long acquire(String group, String user) {
+    Limit limit = limits.get(group);
+    Bucket bucket = buckets.get(group + "\n" + user, key -> new Bucket());
+    return bucket.take(ticker.read(), limit.interval(), limit.refill());
+  }
+
+  long size() {
+    buckets.cleanUp();
+    return buckets.estimatedSize();
+  }
+}
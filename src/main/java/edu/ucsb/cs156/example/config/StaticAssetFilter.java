@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Serves the content-hashed part of the frontend build (/static/**) ahead
+ * of Spring Security and the DispatcherServlet.  These files are public
+ * and never change, so there is nothing for the OAuth, CSRF and session
+ * filters to do: no session is looked up and no XSRF-TOKEN cookie set.
+ *
+ * A given URL never changes, so browsers may keep it for a year without
+ * revalidating.  The precompressed copy (.br or .gz, made by
+ * frontend/scripts/compress.js) that the request's Accept-Encoding allows
+ * is sent; nothing is compressed at request time.  The other files of the
+ * build (index.html, manifest.json, ...) are left to FrontendController and
+ * Boot's default resource handler (spring.web.resources.*).  In development
+ * FrontendProxyController hands all of it to the React dev server instead.
+ */
+@Profile("!development")
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class StaticAssetFilter extends OncePerRequestFilter {
+  static final String PREFIX = "/static/";
+
+  /** CacheControl has no immutable() until Spring 6. */
+  static final CacheControl IMMUTABLE = new CacheControl() {
+    @Override
+    public String getHeaderValue() {
+      return CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable";
+    }
+  };
+
+  private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+  private final ResourceHttpRequestHandler handler = new ResourceHttpRequestHandler();
+
+  public StaticAssetFilter(ServletContext servletContext) throws Exception {
+    handler.setLocations(List.of(new ClassPathResource("public/static/")));
+    handler.setResourceResolvers(List.of(
+        new CachingResourceResolver(new ConcurrentMapCache("static-assets")),
+        new EncodedResourceResolver(),
+        new PathResourceResolver()));
+    handler.setCacheControl(IMMUTABLE);
+    handler.setServletContext(servletContext);
+    handler.afterPropertiesSet();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !(request.getMethod().equals("GET") || request.getMethod().equals("HEAD"))
+        || !urlPathHelper.getPathWithinApplication(request).startsWith(PREFIX);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String path = urlPathHelper.getPathWithinApplication(request);
+    request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, path.substring(PREFIX.length()));
+    // so http.server.requests has a uri tag for these
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, PREFIX + "**");
+    response.setHeader("X-Content-Type-Options", "nosniff");
+    handler.handleRequest(request, response);
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * The roles granted on top of the OAuth provider's authorities when a user
+ * logs in: ROLE_ADMIN for admins (app.admin.emails or users.admin), and
+ * ROLE_MEMBER for ucsb.edu accounts.  Shared by SecurityConfig and the
+ * reactive tier's ReactiveSecurityConfig.
+ */
+public final class UserRoles {
+  private UserRoles() {
+  }
+
+  public static Set<GrantedAuthority> rolesFor(String email, boolean admin) {
+    Set<GrantedAuthority> roles = new HashSet<>();
+    if (admin) {
+      roles.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    }
+    if (email.endsWith("@ucsb.edu")) {
+      roles.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
+    }
+    return roles;
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * With <code>app.threads.virtual=true</code>, Tomcat runs each request
+ * (filters, the controller and the repository calls under it) on its own
+ * virtual thread instead of its fixed pool of platform threads, so a
+ * request blocked on the database holds no platform thread.
+ *
+ * Requests then queue for a connection in Hikari, so
+ * spring.datasource.hikari.maximum-pool-size is what bounds the work in
+ * flight.  JDBC drivers block inside synchronized code, which pins a
+ * virtual thread to its carrier, so the carrier pool is made at least as
+ * large as the connection pool.
+ *
+ * Needs Java 21 or later; startup fails on older JVMs.  The build targets
+ * Java 17, so the Java 21 API is called reflectively.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+  static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+  static final String MAX_POOL_SIZE = "jdk.virtualThreadScheduler.maxPoolSize";
+
+  @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+  int connectionPoolSize;
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutorCustomizer() {
+    sizeCarrierPool(connectionPoolSize);
+    ExecutorService executor = newVirtualThreadPerTaskExecutor("http-vt-");
+    log.info("Handling requests on virtual threads ({}={}, {} database connections)",
+        PARALLELISM, System.getProperty(PARALLELISM), connectionPoolSize);
+    return protocolHandler -> protocolHandler.setExecutor(executor);
+  }
+
+  /**
+   * The scheduler reads these once, when the first virtual thread starts;
+   * values set on the command line win.
+   */
+  static void sizeCarrierPool(int connectionPoolSize) {
+    int parallelism = Math.max(Runtime.getRuntime().availableProcessors(), connectionPoolSize);
+    if (System.getProperty(PARALLELISM) == null) {
+      System.setProperty(PARALLELISM, Integer.toString(parallelism));
+    }
+    if (System.getProperty(MAX_POOL_SIZE) == null) {
+      System.setProperty(MAX_POOL_SIZE, Integer.toString(Math.max(256, parallelism)));
+    }
+  }
+
+  static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+      Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("app.threads.virtual=true needs Java 21 or later, this is Java "
+          + Runtime.version().feature(), e);
+    }
+  }
+}
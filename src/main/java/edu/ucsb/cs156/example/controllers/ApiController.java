@@ -1,23 +1,93 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import net.bytebuddy.implementation.bytecode.Throw;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
 
+import edu.ucsb.cs156.example.models.BulkResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.repositories.BulkWriteRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.entities.Versioned;
 import lombok.extern.slf4j.Slf4j;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
 
 @Slf4j
 public abstract class ApiController {
+  protected static final int MAX_PAGE_SIZE = 1000;
+  protected static final int MAX_BULK_SIZE = 10000;
+
+  // browsers may keep a copy of a conditional GET but must revalidate it
+  // (If-None-Match) before every use
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+  // smaller responses aren't worth compressing
+  private static final int GZIP_MIN_BYTES = 1024;
+
+  /**
+   * A /all response body, with the table ETag and the count of writes
+   * through this controller it was made for.
+   */
+  private record SerializedRows(String eTag, long writes, byte[] json, byte[] gzip) {
+  }
+
+  private final AtomicReference<SerializedRows> cachedRows = new AtomicReference<>();
+  private final AtomicLong writes = new AtomicLong();
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private ObjectMapper mapper;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
@@ -26,6 +96,344 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Pageable for a keyset page query: always the first page of the
+   * remaining rows, with one extra row so we can tell whether there is
+   * a next page.
+   */
+  protected Pageable keysetPageable(int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new BadRequestException("limit must be between 1 and %d".formatted(MAX_PAGE_SIZE));
+    }
+    return PageRequest.of(0, limit + 1);
+  }
+
+  /**
+   * The rows of a page ordered by name: rows with a name in (name, id)
+   * order, then those whose name is NULL in id order.  Each part is its own
+   * seek, a range of the (name, id) index, because a single query with
+   * an OR for the NULL names can't start part way through the index.
+   * named(pageable) returns the named rows after the cursor; unnamed(id,
+   * pageable) the NULL-name rows after id.  A cursor without a key is
+   * already among the NULL names; otherwise they follow once the named
+   * rows run out, starting after firstId.
+   */
+  protected <T, ID> List<T> nameOrderedRows(String key, ID id, ID firstId, Pageable pageable,
+      Function<Pageable, List<T>> named, BiFunction<ID, Pageable, List<T>> unnamed) {
+    if (key == null) {
+      return unnamed.apply(id, pageable);
+    }
+    List<T> rows = new ArrayList<>(named.apply(pageable));
+    int missing = pageable.getPageSize() - rows.size();
+    if (missing > 0) {
+      rows.addAll(unnamed.apply(firstId, PageRequest.of(0, missing)));
+    }
+    return rows;
+  }
+
+  protected <T> KeysetPage<T> keysetPage(List<T> rows, int limit, Function<T, String> cursorOf) {
+    boolean hasNext = rows.size() > limit;
+    List<T> items = hasNext ? rows.subList(0, limit) : rows;
+    String nextCursor = hasNext ? cursorOf.apply(items.get(items.size() - 1)) : null;
+    return KeysetPage.<T>builder()
+      .items(items)
+      .nextCursor(nextCursor)
+      .build();
+  }
+
+  /**
+   * Save every acceptable item in one call to saveAll (one transaction, so
+   * the inserts go out as JDBC batches) and report what happened to each
+   * item.  Items that are null or already carry an id are rejected.
+   */
+  protected <T> List<BulkResult> bulkCreate(List<T> items, CrudRepository<T, ?> repository, Function<T, Long> idOf) {
+    checkBulkSize(items.size());
+
+    List<BulkResult> results = new ArrayList<>(items.size());
+    List<T> accepted = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      T item = items.get(i);
+      if (item == null) {
+        results.add(BulkResult.builder().index(i).status(BulkResult.REJECTED).message("item is null").build());
+      } else if (idOf.apply(item) != 0) {
+        results.add(BulkResult.builder().index(i).status(BulkResult.REJECTED).message("id must not be set").build());
+      } else {
+        accepted.add(item);
+        results.add(null);
+      }
+    }
+
+    Iterator<T> saved = repository.saveAll(accepted).iterator();
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null) {
+        results.set(i, BulkResult.builder().index(i).status(BulkResult.CREATED).id(idOf.apply(saved.next())).build());
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Apply each item to the row with the same id: the rows are loaded with
+   * one query and written back as batched UPDATEs in one transaction.
+   * copy(row, item) copies the editable fields from the item to the row.
+   * Items that are null, have no id or repeat an earlier item's id are
+   * rejected.
+   */
+  protected <T, ID> List<BulkResult> bulkUpdate(List<T> items, BulkWriteRepository<T, ID> repository,
+      Function<T, ID> idOf, BiConsumer<T, T> copy, Class<T> entityClass) {
+    checkBulkSize(items.size());
+
+    List<BulkResult> results = new ArrayList<>(items.size());
+    Map<ID, T> changes = new LinkedHashMap<>();
+    for (int i = 0; i < items.size(); i++) {
+      T item = items.get(i);
+      if (item == null) {
+        results.add(BulkResult.builder().index(i).status(BulkResult.REJECTED).message("item is null").build());
+      } else if (idOf.apply(item) == null) {
+        results.add(BulkResult.builder().index(i).status(BulkResult.REJECTED).message("id must be set").build());
+      } else if (changes.putIfAbsent(idOf.apply(item), item) != null) {
+        results.add(BulkResult.builder().index(i).status(BulkResult.REJECTED).id(idOf.apply(item))
+            .message("id appears more than once").build());
+      } else {
+        results.add(null);
+      }
+    }
+
+    Set<ID> updated = new HashSet<>();
+    for (T row : repository.updateRows(changes.keySet(), row -> copy.accept(row, changes.get(idOf.apply(row))))) {
+      updated.add(idOf.apply(row));
+    }
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null) {
+        results.set(i, foundOrNot(i, idOf.apply(items.get(i)), updated, BulkResult.UPDATED, entityClass));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Delete the rows with the given ids with one DELETE statement and report
+   * which of them were there.
+   */
+  protected <ID> List<BulkResult> bulkDelete(List<ID> ids, BulkWriteRepository<?, ID> repository,
+      Class<?> entityClass) {
+    checkBulkSize(ids.size());
+    if (ids.contains(null)) {
+      throw new BadRequestException("ids must not be blank");
+    }
+
+    Set<ID> deleted = new HashSet<>(repository.deleteRows(new LinkedHashSet<>(ids)));
+    if (!deleted.isEmpty()) {
+      eventPublisher.publishEvent(new RowsDeletedEvent(entityClass, deleted));
+    }
+
+    List<BulkResult> results = new ArrayList<>(ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      results.add(foundOrNot(i, ids.get(i), deleted, BulkResult.DELETED, entityClass));
+    }
+    return results;
+  }
+
+  /**
+   * Delete one row with a single DELETE statement, without loading it.
+   */
+  protected <ID> void deleteRow(ID id, BulkWriteRepository<?, ID> repository, Class<?> entityClass) {
+    if (!repository.deleteRow(id)) {
+      throw new EntityNotFoundException(entityClass, id);
+    }
+    eventPublisher.publishEvent(new RowsDeletedEvent(entityClass, List.of(id)));
+  }
+
+  private static void checkBulkSize(int size) {
+    if (size > MAX_BULK_SIZE) {
+      throw new BadRequestException("at most %d items may be sent at once".formatted(MAX_BULK_SIZE));
+    }
+  }
+
+  private static <ID> BulkResult foundOrNot(int index, ID id, Set<ID> found, String status, Class<?> entityClass) {
+    if (found.contains(id)) {
+      return BulkResult.builder().index(index).status(status).id(id).build();
+    }
+    return BulkResult.builder().index(index).status(BulkResult.NOT_FOUND).id(id)
+        .message(EntityNotFoundException.message(entityClass, id)).build();
+  }
+
+  /**
+   * Apply a JSON merge patch (RFC 7396) to one row, provided the row still
+   * has the ETag the client sent in If-Match.  Only the editable fields may
+   * appear in the patch; a null value clears a field.
+   *
+   * The entities are @DynamicUpdate, so the UPDATE sets only the columns
+   * the patch changed.  Its WHERE clause checks the @Version as well, so an
+   * edit committed between our read and our write also ends in 412.
+   */
+  protected <T extends Versioned, ID> ResponseEntity<T> mergePatch(ID id, String ifMatch, JsonNode patch,
+      List<String> editable, BulkWriteRepository<T, ID> repository, Class<T> entityClass) {
+    if (!patch.isObject()) {
+      throw new BadRequestException("a merge patch must be a JSON object");
+    }
+    patch.fieldNames().forEachRemaining(field -> {
+      if (!editable.contains(field)) {
+        throw new BadRequestException("%s cannot be changed; expected any of %s".formatted(field, editable));
+      }
+    });
+
+    T row = repository.updateRow(id, current -> {
+      if (!matchesAny(ifMatch, eTagOf(current))) {
+        throw new PreconditionFailedException(entityClass, id);
+      }
+      try {
+        mapper.readerForUpdating(current).readValue(patch);
+      } catch (JsonProcessingException e) {
+        throw new BadRequestException(e.getOriginalMessage());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }).orElseThrow(() -> new EntityNotFoundException(entityClass, id));
+
+    return ResponseEntity.ok().eTag(eTagOf(row)).cacheControl(REVALIDATE).body(row);
+  }
+
+  /** Strong comparison against an If-Match list; weak tags never match. */
+  private static boolean matchesAny(String ifMatch, String eTag) {
+    for (String tag : ifMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.equals("*") || candidate.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The strong ETag of one row: its version and last-modified time. */
+  private static String eTagOf(Versioned row) {
+    return "\"%d-%d\"".formatted(
+      row.getVersion() == null ? 0 : row.getVersion(),
+      row.getLastModified() == null ? 0 : row.getLastModified().toEpochMilli());
+  }
+
+  /**
+   * Answer a GET for one row conditionally.  The strong ETag is the row's
+   * version and last-modified time, so a client holding the current copy
+   * gets an empty 304 Not Modified instead of the row.
+   */
+  protected <T extends Versioned> ResponseEntity<T> ifModified(WebRequest request, T row) {
+    long lastModified = row.getLastModified() == null ? -1 : row.getLastModified().toEpochMilli();
+    return conditionalGet(request, eTagOf(row), lastModified, () -> row);
+  }
+
+  /**
+   * Answer a GET for a whole table conditionally.  The weak ETag comes from
+   * the table's row count and newest lastModified, so the rows are only
+   * loaded when the client's copy is out of date.  No Last-Modified header
+   * is sent: deleting a row does not move the newest lastModified.
+   *
+   * The JSON (and, for larger tables, a gzip copy of it) is kept with the
+   * ETag it was made for and sent as is, without running findAll or
+   * Jackson, until the table changes.  It is also kept with the number of
+   * writes this controller had finished before the rows were loaded (see
+   * countWrites), and is made again once another one finishes, in case a
+   * write doesn't move the ETag: an update in the same millisecond as the
+   * last one.  Counting writes only once they finish means rows loaded
+   * while a write was running are never kept past it.
+   *
+   * tableVersion is query cached in this JVM, so a write made by another
+   * instance of the application isn't seen until the query cache entry
+   * expires (see application.conf), like the rest of the second-level
+   * cache.
+   */
+  protected <T> ResponseEntity<byte[]> ifModified(WebRequest request, TableVersion version,
+      Supplier<Iterable<T>> rows) {
+    String eTag = version.eTag();
+    if (request.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
+    long writesBefore = writes.get();
+    SerializedRows cached = cachedRows.get();
+    if (cached == null || !cached.eTag().equals(eTag) || cached.writes() != writesBefore) {
+      cached = serialize(eTag, writesBefore, rows.get());
+      cachedRows.set(cached);
+    }
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+        .cacheControl(REVALIDATE)
+        .contentType(MediaType.APPLICATION_JSON)
+        .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (cached.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+      return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+    }
+    return ok.body(cached.json());
+  }
+
+  /**
+   * Runs before each handler of the controller; any request that may
+   * write is counted once it has finished (and its transactions have
+   * committed), which makes ifModified load the rows again.
+   */
+  @ModelAttribute
+  public void countWrites(HttpServletRequest request) {
+    String method = request.getMethod();
+    if (!(method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS"))) {
+      RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+          getClass().getName() + ".writes", writes::incrementAndGet, RequestAttributes.SCOPE_REQUEST);
+    }
+  }
+
+  private SerializedRows serialize(String eTag, long writesBefore, Object rows) {
+    try {
+      byte[] json = mapper.writeValueAsBytes(rows);
+      if (json.length < GZIP_MIN_BYTES) {
+        return new SerializedRows(eTag, writesBefore, json, null);
+      }
+      ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+      try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+        out.write(json);
+      }
+      return new SerializedRows(eTag, writesBefore, json, gzip.toByteArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Whether an Accept-Encoding header allows gzip (and doesn't give it q=0). */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  private <T> ResponseEntity<T> conditionalGet(WebRequest request, String eTag, long lastModified, Supplier<T> body) {
+    // checkNotModified also sets the ETag and Last-Modified response headers
+    if (request.checkNotModified(eTag, lastModified)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(body.get());
+  }
+
+  @ExceptionHandler({ BadRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequest(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ PreconditionFailedException.class, ObjectOptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailed(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
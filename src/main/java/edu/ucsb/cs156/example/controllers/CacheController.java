@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.services.CacheStatisticsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@Api(description = "Second-level cache statistics (admin only)")
+@RequestMapping("/api/admin/cache")
+@RestController
+public class CacheController extends ApiController {
+    @Autowired
+    CacheStatisticsService cacheStatisticsService;
+
+    @ApiOperation(value = "Hit, miss, put and eviction counts for each cache region since startup")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/stats")
+    public CacheStats stats() {
+        return cacheStatisticsService.getStatistics();
+    }
+}
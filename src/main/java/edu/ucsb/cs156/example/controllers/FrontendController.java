@@ -1,16 +1,109 @@
 package edu.ucsb.cs156.example.controllers;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.WebRequest;
 
+/**
+ * Client-side routes get the SPA shell, the build's index.html.  It is
+ * read once, with its precompressed copies, when the app starts, and
+ * answered from memory with an ETag, so a reload costs a 304.
+ */
 @Profile("!development")
 @Controller
 public class FrontendController {
-  @GetMapping("/**/{path:[^\\.]*}")
-  public String index() {
-    return "forward:/index.html";
+  // content codings of the precompressed copies, brotli (the smaller) first
+  private static final List<String> ENCODINGS = List.of("br", "gzip");
+  private static final Map<String, String> SUFFIXES = Map.of("br", ".br", "gzip", ".gz");
+
+  private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+  private final Map<String, Shell> shells = new HashMap<>();
+
+  private record Shell(byte[] body, String eTag) {
+  }
+
+  public FrontendController(@Value("classpath:/public/index.html") Resource indexHtml) throws IOException {
+    if (!indexHtml.exists()) {
+      return;
+    }
+    byte[] identity = StreamUtils.copyToByteArray(indexHtml.getInputStream());
+    String hash = DigestUtils.md5DigestAsHex(identity);
+    for (String encoding : ENCODINGS) {
+      Resource encoded = indexHtml.createRelative(indexHtml.getFilename() + SUFFIXES.get(encoding));
+      if (encoded.exists()) {
+        shells.put(encoding, new Shell(StreamUtils.copyToByteArray(encoded.getInputStream()),
+            "\"%s-%s\"".formatted(hash, encoding)));
+      }
+    }
+    shells.put("identity", new Shell(identity, "\"%s\"".formatted(hash)));
+  }
+
+  @GetMapping({ "/", "/**/{path:[^\\.]*}" })
+  public ResponseEntity<byte[]> index(WebRequest request,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    if (shells.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    String encoding = negotiate(acceptEncoding);
+    Shell shell = shells.get(encoding);
+    if (request.checkNotModified(shell.eTag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .cacheControl(REVALIDATE)
+          .varyBy(HttpHeaders.ACCEPT_ENCODING)
+          .build();
+    }
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(MediaType.TEXT_HTML)
+        .cacheControl(REVALIDATE)
+        .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (!encoding.equals("identity")) {
+      response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+    }
+    return response.body(shell.body());
+  }
+
+  private String negotiate(String acceptEncoding) {
+    if (acceptEncoding != null) {
+      for (String encoding : ENCODINGS) {
+        if (shells.containsKey(encoding) && accepts(acceptEncoding, encoding)) {
+          return encoding;
+        }
+      }
+    }
+    return "identity";
+  }
+
+  /** Whether the Accept-Encoding header lists this coding (with q > 0). */
+  static boolean accepts(String acceptEncoding, String coding) {
+    for (String part : acceptEncoding.split(",")) {
+      String[] params = part.trim().split(";");
+      if (params[0].trim().equalsIgnoreCase(coding)) {
+        for (int i = 1; i < params.length; i++) {
+          if (params[i].trim().matches("q=0(\\.0*)?")) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
   }
 
   @GetMapping("/csrf")
@@ -1,37 +1,102 @@
 package edu.ucsb.cs156.example.controllers;
 
-import org.springframework.cloud.gateway.mvc.ProxyExchange;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.ResourceAccessException;
-
-import java.net.ConnectException;
 
+/**
+ * In development the React dev server (npm start) serves the frontend and
+ * the app passes everything that isn't the API through to it, so both are
+ * on one origin.  Responses are streamed through byte for byte (bundles
+ * and source maps are never held in memory), over keep-alive connections
+ * that the one HttpClient pools and shares between requests.  The
+ * hot-reload socket is relayed by DevServerSocketProxy.
+ */
 @Profile("development")
 @RestController
 public class FrontendProxyController {
-  @GetMapping({"/", "/{path:^(?!api|oauth2|swagger-ui).*}/**"})
-  public ResponseEntity<String> proxy(ProxyExchange<String> proxy) {
-    String path = proxy.path("/");
+  // hop-by-hop headers, and ones HttpClient sets itself
+  private static final Set<String> NOT_FORWARDED = Set.of(
+      "connection", "keep-alive", "proxy-connection", "transfer-encoding", "te", "trailer", "upgrade",
+      "host", "content-length", "expect", "cookie", "authorization");
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(2))
+      .build();
+
+  @Value("${app.frontend.devServerUrl:http://localhost:3000}")
+  String devServerUrl;
+
+  @GetMapping({"/", "/{path:^(?!api|oauth2|swagger-ui|ws$).*}/**"})
+  public void proxy(HttpServletRequest request, HttpServletResponse response)
+      throws IOException, InterruptedException {
+    String query = request.getQueryString();
+    HttpRequest.Builder upstream = HttpRequest.newBuilder(
+        URI.create(devServerUrl + request.getRequestURI() + (query == null ? "" : "?" + query)))
+        .method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+    for (String name : Collections.list(request.getHeaderNames())) {
+      if (!NOT_FORWARDED.contains(name.toLowerCase())) {
+        for (String value : Collections.list(request.getHeaders(name))) {
+          upstream.header(name, value);
+        }
+      }
+    }
+
+    HttpResponse<InputStream> proxied;
     try {
-      return proxy.uri("http://localhost:3000/" + path).get();
-    } catch (ResourceAccessException e) {
-      if (e.getCause() instanceof ConnectException) {
-        String instructions = """
-                <p>Failed to connect to the frontend server...</p>
-                <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
-                <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
-                <p>Or, you may click to access: </p>
-                <ul>
-                  <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
-                  <li><a href='/h2-console'>/h2-console</a></li>
-                </ul>""";
-
-        return ResponseEntity.ok(instructions);
+      proxied = client.send(upstream.build(), HttpResponse.BodyHandlers.ofInputStream());
+    } catch (ConnectException e) {
+      sendInstructions(response);
+      return;
+    }
+
+    try (InputStream body = proxied.body()) {
+      response.setStatus(proxied.statusCode());
+      for (Map.Entry<String, List<String>> header : proxied.headers().map().entrySet()) {
+        if (!NOT_FORWARDED.contains(header.getKey().toLowerCase())) {
+          for (String value : header.getValue()) {
+            response.addHeader(header.getKey(), value);
+          }
+        }
       }
-      throw e;
+      proxied.headers().firstValueAsLong("content-length").ifPresent(response::setContentLengthLong);
+      body.transferTo(response.getOutputStream());
     }
   }
+
+  private void sendInstructions(HttpServletResponse response) throws IOException {
+    String instructions = """
+            <p>Failed to connect to the frontend server...</p>
+            <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
+            <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
+            <p>Or, you may click to access: </p>
+            <ul>
+              <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
+              <li><a href='/h2-console'>/h2-console</a></li>
+            </ul>""";
+
+    response.setContentType(MediaType.TEXT_HTML_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.getWriter().write(instructions);
+  }
 }
@@ -1,27 +1,42 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import javax.validation.Valid;
+import java.util.List;
 
 
 @Api(description = "Games")
@@ -30,25 +45,64 @@ import javax.validation.Valid;
 @Slf4j
 public class GamesController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "description", "genre");
+
     @Autowired
     GameRepository gameRepository;
 
-    @ApiOperation(value = "List all games")
+    @Autowired
+    ExportService exportService;
+
+    @ApiOperation(value = "List all games", response = Game.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Game> allGames() {
-        Iterable<Game> games = gameRepository.findAll();
-        return games;
+    public ResponseEntity<byte[]> allGames(WebRequest request) {
+        return ifModified(request, gameRepository.tableVersion(), gameRepository::findAll);
+    }
+
+    @ApiOperation(value = "List games one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Game> pageGames(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Game> rows = switch (sort) {
+            case "id" -> gameRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> gameRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    gameRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, g -> KeysetCursor.of(sort.equals("name") ? g.getName() : null, g.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all games as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGames(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, gameRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"games.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single game")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Game getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Game> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
                 Game game = gameRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
-        return game;
+        return ifModified(request, game);
     }
 
     @ApiOperation(value = "Create a new game")
@@ -70,17 +124,31 @@ public class GamesController extends ApiController {
         return savedGame;
     }
 
+    @ApiOperation(value = "Create many games at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postGamesBulk(
+            @RequestBody List<Game> incoming) {
+        return bulkCreate(incoming, gameRepository, Game::getId);
+    }
+
     @ApiOperation(value = "Delete a game")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteGame(
             @ApiParam("id") @RequestParam Long id) {
-        Game game = gameRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
-                gameRepository.delete(game);
+        deleteRow(id, gameRepository, Game.class);
         return genericMessage("Game with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many games at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteGames(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, gameRepository, Game.class);
+    }
+
     @ApiOperation(value = "Update a single game")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -92,12 +160,34 @@ public class GamesController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(Game.class, id));
 
 
-        game.setName(incoming.getName());  
-        game.setDescription(incoming.getDescription());
-        game.setGenre(incoming.getGenre());
+        copyFields(game, incoming);
 
         gameRepository.save(game);
 
         return game;
     }
+
+    @ApiOperation(value = "Change some fields of a game (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Game> patchGame(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/games?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, gameRepository, Game.class);
+    }
+
+    @ApiOperation(value = "Update many games at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putGamesBulk(
+            @RequestBody List<Game> incoming) {
+        return bulkUpdate(incoming, gameRepository, Game::getId, GamesController::copyFields, Game.class);
+    }
+
+    private static void copyFields(Game game, Game incoming) {
+        game.setName(incoming.getName());
+        game.setDescription(incoming.getDescription());
+        game.setGenre(incoming.getGenre());
+    }
 }
@@ -1,28 +1,50 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Grocery;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.GroceryRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.CsvImportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 
 @Api(description = "Groceries")
@@ -31,26 +53,68 @@ import javax.validation.Valid;
 @Slf4j
 public class GroceriesController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "price", "expiration");
+
     @Autowired
     GroceryRepository groceryRepository;
 
-    @ApiOperation(value = "List all groceries")
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    CsvImportService csvImportService;
+
+    @ApiOperation(value = "List all groceries", response = Grocery.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Grocery> allGroceries() {
-        Iterable<Grocery> groceries = groceryRepository.findAll();
-        return groceries;
+    public ResponseEntity<byte[]> allGroceries(WebRequest request) {
+        return ifModified(request, groceryRepository.tableVersion(), groceryRepository::findAll);
+    }
+
+    @ApiOperation(value = "List groceries one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Grocery> pageGroceries(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Grocery> rows = switch (sort) {
+            case "id" -> groceryRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> groceryRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    groceryRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, g -> KeysetCursor.of(sort.equals("name") ? g.getName() : null, g.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all groceries as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGroceries(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, groceryRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"groceries.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single grocery")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Grocery getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Grocery> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
         Grocery grocery = groceryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Grocery.class, id));
 
-        return grocery;
+        return ifModified(request, grocery);
     }
 
     @ApiOperation(value = "Create a new grocery")
@@ -76,18 +140,41 @@ public class GroceriesController extends ApiController {
         return savedGrocery;
     }
 
+    @ApiOperation(value = "Create many groceries at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postGroceriesBulk(
+            @RequestBody List<Grocery> incoming) {
+        return bulkCreate(incoming, groceryRepository, Grocery::getId);
+    }
+
+    @ApiOperation(value = "Import groceries from a CSV file with a header row (name,price,expiration); other columns are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportReport importGroceries(
+            @ApiParam("CSV file") @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return csvImportService.importCsv(in, GroceriesController::groceryFromCsv, groceryRepository);
+        }
+    }
+
     @ApiOperation(value = "Delete a Grocery")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteGrocery(
             @ApiParam("id") @RequestParam Long id) {
-        Grocery grocery = groceryRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Grocery.class, id));
-
-        groceryRepository.delete(grocery);
+        deleteRow(id, groceryRepository, Grocery.class);
         return genericMessage("Grocery with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many groceries at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteGroceries(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, groceryRepository, Grocery.class);
+    }
+
     @ApiOperation(value = "Update a single grocery")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -98,12 +185,42 @@ public class GroceriesController extends ApiController {
         Grocery grocery = groceryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Grocery.class, id));
 
-        grocery.setName(incoming.getName());
-        grocery.setPrice(incoming.getPrice());
-        grocery.setExpiration(incoming.getExpiration());
+        copyFields(grocery, incoming);
 
         groceryRepository.save(grocery);
 
         return grocery;
     }
+
+    @ApiOperation(value = "Change some fields of a grocery (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Grocery> patchGrocery(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/groceries?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, groceryRepository, Grocery.class);
+    }
+
+    @ApiOperation(value = "Update many groceries at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putGroceriesBulk(
+            @RequestBody List<Grocery> incoming) {
+        return bulkUpdate(incoming, groceryRepository, Grocery::getId, GroceriesController::copyFields, Grocery.class);
+    }
+
+    private static void copyFields(Grocery grocery, Grocery incoming) {
+        grocery.setName(incoming.getName());
+        grocery.setPrice(incoming.getPrice());
+        grocery.setExpiration(incoming.getExpiration());
+    }
+
+    private static Grocery groceryFromCsv(CsvRow row) {
+        return Grocery.builder()
+                .name(row.required("name"))
+                .price(row.required("price"))
+                .expiration(row.required("expiration"))
+                .build();
+    }
 }
@@ -1,25 +1,47 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Hotel;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.HotelRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.CsvImportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 
 @Api(description = "Hotels")
@@ -28,26 +50,68 @@ import javax.validation.Valid;
 @Slf4j
 public class HotelsController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "address", "description");
+
     @Autowired
     HotelRepository hotelRepository;
 
-    @ApiOperation(value = "List all hotels")
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    CsvImportService csvImportService;
+
+    @ApiOperation(value = "List all hotels", response = Hotel.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Hotel> allHotels() {
-        Iterable<Hotel> hotels = hotelRepository.findAll();
-        return hotels;
+    public ResponseEntity<byte[]> allHotels(WebRequest request) {
+        return ifModified(request, hotelRepository.tableVersion(), hotelRepository::findAll);
+    }
+
+    @ApiOperation(value = "List hotels one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Hotel> pageHotels(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Hotel> rows = switch (sort) {
+            case "id" -> hotelRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> hotelRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    hotelRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, h -> KeysetCursor.of(sort.equals("name") ? h.getName() : null, h.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all hotels as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHotels(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, hotelRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hotels.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single hotel")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Hotel getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Hotel> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
         Hotel hotel = hotelRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Hotel.class, id));
 
-        return hotel;
+        return ifModified(request, hotel);
     }
 
     @ApiOperation(value = "Create a new hotel")
@@ -71,18 +135,41 @@ public class HotelsController extends ApiController {
         return savedHotel;
     }
 
+    @ApiOperation(value = "Create many hotels at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postHotelsBulk(
+            @RequestBody List<Hotel> incoming) {
+        return bulkCreate(incoming, hotelRepository, Hotel::getId);
+    }
+
+    @ApiOperation(value = "Import hotels from a CSV file with a header row (name,address,description); other columns are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportReport importHotels(
+            @ApiParam("CSV file") @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return csvImportService.importCsv(in, HotelsController::hotelFromCsv, hotelRepository);
+        }
+    }
+
     @ApiOperation(value = "Delete a hotel")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteHotel(
             @ApiParam("id") @RequestParam Long id) {
-        Hotel hotel = hotelRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Hotel.class, id));
-
-        hotelRepository.delete(hotel);
+        deleteRow(id, hotelRepository, Hotel.class);
         return genericMessage("Hotel with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many hotels at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteHotels(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, hotelRepository, Hotel.class);
+    }
+
     @ApiOperation(value = "Update a single hotel")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -94,12 +181,42 @@ public class HotelsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(Hotel.class, id));
 
 
-        hotel.setName(incoming.getName());  
-        hotel.setAddress(incoming.getAddress());
-        hotel.setDescription(incoming.getDescription());
+        copyFields(hotel, incoming);
 
         hotelRepository.save(hotel);
 
         return hotel;
     }
+
+    @ApiOperation(value = "Change some fields of a hotel (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Hotel> patchHotel(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/hotels?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, hotelRepository, Hotel.class);
+    }
+
+    @ApiOperation(value = "Update many hotels at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putHotelsBulk(
+            @RequestBody List<Hotel> incoming) {
+        return bulkUpdate(incoming, hotelRepository, Hotel::getId, HotelsController::copyFields, Hotel.class);
+    }
+
+    private static void copyFields(Hotel hotel, Hotel incoming) {
+        hotel.setName(incoming.getName());
+        hotel.setAddress(incoming.getAddress());
+        hotel.setDescription(incoming.getDescription());
+    }
+
+    private static Hotel hotelFromCsv(CsvRow row) {
+        return Hotel.builder()
+                .name(row.required("name"))
+                .address(row.required("address"))
+                .description(row.required("description"))
+                .build();
+    }
 }
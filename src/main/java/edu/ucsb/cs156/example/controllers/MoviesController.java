@@ -1,28 +1,43 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MovieRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @Api(description = "Movies")
 @RequestMapping("/api/movies")
@@ -30,26 +45,65 @@ import javax.validation.Valid;
 @Slf4j
 public class MoviesController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "year", "summary");
+
     @Autowired
     MovieRepository movieRepository;
 
-    @ApiOperation(value = "List all movies")
+    @Autowired
+    ExportService exportService;
+
+    @ApiOperation(value = "List all movies", response = Movie.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Movie> allMovies() {
-        Iterable<Movie> movies = movieRepository.findAll();
-        return movies;
+    public ResponseEntity<byte[]> allMovies(WebRequest request) {
+        return ifModified(request, movieRepository.tableVersion(), movieRepository::findAll);
+    }
+
+    @ApiOperation(value = "List movies one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Movie> pageMovies(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Movie> rows = switch (sort) {
+            case "id" -> movieRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> movieRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    movieRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, m -> KeysetCursor.of(sort.equals("name") ? m.getName() : null, m.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all movies as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMovies(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, movieRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"movies.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single movie")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Movie getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Movie> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Movie.class, id));
 
-        return movie;
+        return ifModified(request, movie);
     }
 
     @ApiOperation(value = "Create a new movie")
@@ -71,18 +125,31 @@ public class MoviesController extends ApiController {
         return savedMovie;
     }
 
+    @ApiOperation(value = "Create many movies at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postMoviesBulk(
+            @RequestBody List<Movie> incoming) {
+        return bulkCreate(incoming, movieRepository, Movie::getId);
+    }
+
     @ApiOperation(value = "Delete a movie")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteMovie(
             @ApiParam("id") @RequestParam Long id) {
-        Movie movie = movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Movie.class, id));
-
-        movieRepository.delete(movie);
+        deleteRow(id, movieRepository, Movie.class);
         return genericMessage("Movie with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many movies at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteMovies(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, movieRepository, Movie.class);
+    }
+
     @ApiOperation(value = "Update a single movie")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -93,12 +160,34 @@ public class MoviesController extends ApiController {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Movie.class, id));
 
-        movie.setName(incoming.getName());
-        movie.setYear(incoming.getYear());
-        movie.setSummary(incoming.getSummary());
+        copyFields(movie, incoming);
 
         movieRepository.save(movie);
 
         return movie;
     }
+
+    @ApiOperation(value = "Change some fields of a movie (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Movie> patchMovie(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/movies?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, movieRepository, Movie.class);
+    }
+
+    @ApiOperation(value = "Update many movies at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putMoviesBulk(
+            @RequestBody List<Movie> incoming) {
+        return bulkUpdate(incoming, movieRepository, Movie::getId, MoviesController::copyFields, Movie.class);
+    }
+
+    private static void copyFields(Movie movie, Movie incoming) {
+        movie.setName(incoming.getName());
+        movie.setYear(incoming.getYear());
+        movie.setSummary(incoming.getSummary());
+    }
 }
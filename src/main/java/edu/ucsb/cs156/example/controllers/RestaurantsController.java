@@ -1,27 +1,49 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.CsvImportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 
 @Api(description = "Restaurants")
@@ -30,26 +52,68 @@ import javax.validation.Valid;
 @Slf4j
 
 public class RestaurantsController extends ApiController {
+
+    private static final List<String> EDITABLE = List.of("name", "description", "price");
     @Autowired
     RestaurantRepository restaurantRepository;
 
-    @ApiOperation(value = "List all restaurants")
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    CsvImportService csvImportService;
+
+    @ApiOperation(value = "List all restaurants", response = Restaurant.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-        return restaurants;
+    public ResponseEntity<byte[]> allRestaurants(WebRequest request) {
+        return ifModified(request, restaurantRepository.tableVersion(), restaurantRepository::findAll);
+    }
+
+    @ApiOperation(value = "List restaurants one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Restaurant> pageRestaurants(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Restaurant> rows = switch (sort) {
+            case "id" -> restaurantRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> restaurantRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    restaurantRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, r -> KeysetCursor.of(sort.equals("name") ? r.getName() : null, r.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all restaurants as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRestaurants(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, restaurantRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"restaurants.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Restaurant getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Restaurant> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
                 Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
-        return restaurant;
+        return ifModified(request, restaurant);
     }
 
     @ApiOperation(value = "Create a new restaurant")
@@ -71,18 +135,41 @@ public class RestaurantsController extends ApiController {
         return savedRestaurant;
     }
 
+    @ApiOperation(value = "Create many restaurants at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postRestaurantsBulk(
+            @RequestBody List<Restaurant> incoming) {
+        return bulkCreate(incoming, restaurantRepository, Restaurant::getId);
+    }
+
+    @ApiOperation(value = "Import restaurants from a CSV file with a header row (name,description,price); other columns are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportReport importRestaurants(
+            @ApiParam("CSV file") @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return csvImportService.importCsv(in, RestaurantsController::restaurantFromCsv, restaurantRepository);
+        }
+    }
+
     @ApiOperation(value = "Delete a restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteRestaurant(
             @ApiParam("id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-                restaurantRepository.delete(restaurant);
+        deleteRow(id, restaurantRepository, Restaurant.class);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteRestaurants(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, restaurantRepository, Restaurant.class);
+    }
+
     @ApiOperation(value = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -93,12 +180,42 @@ public class RestaurantsController extends ApiController {
                 Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
                 
-                restaurant.setName(incoming.getName());
-                restaurant.setDescription(incoming.getDescription());
-                restaurant.setPrice(incoming.getPrice());
+                copyFields(restaurant, incoming);
 
                 restaurantRepository.save(restaurant);
 
         return restaurant;
     }
+
+    @ApiOperation(value = "Change some fields of a restaurant (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Restaurant> patchRestaurant(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/restaurants?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, restaurantRepository, Restaurant.class);
+    }
+
+    @ApiOperation(value = "Update many restaurants at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putRestaurantsBulk(
+            @RequestBody List<Restaurant> incoming) {
+        return bulkUpdate(incoming, restaurantRepository, Restaurant::getId, RestaurantsController::copyFields, Restaurant.class);
+    }
+
+    private static void copyFields(Restaurant restaurant, Restaurant incoming) {
+        restaurant.setName(incoming.getName());
+        restaurant.setDescription(incoming.getDescription());
+        restaurant.setPrice(incoming.getPrice());
+    }
+
+    private static Restaurant restaurantFromCsv(CsvRow row) {
+        return Restaurant.builder()
+                .name(row.required("name"))
+                .description(row.required("description"))
+                .price(row.required("price"))
+                .build();
+    }
 }
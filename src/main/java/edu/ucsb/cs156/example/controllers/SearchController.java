@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.SearchResults;
+import edu.ucsb.cs156.example.services.SearchIndexService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Api(description = "Keyword search across games, movies, songs, hotels, restaurants and groceries")
+@RequestMapping("/api/search")
+@RestController
+public class SearchController extends ApiController {
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+    static final int MAX_SEARCH_RESULTS = 10000;
+
+    @Autowired
+    SearchIndexService searchIndexService;
+
+    @ApiOperation(value = "Rows containing every word of the query, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("")
+    public SearchResults search(
+            @ApiParam("words to search for") @RequestParam String q,
+            @ApiParam("only these types, e.g. games,movies; omit for all") @RequestParam(defaultValue = "") List<String> types,
+            @ApiParam("page number, from 0") @RequestParam(defaultValue = "0") int page,
+            @ApiParam("results per page (1 to 100)") @RequestParam(defaultValue = "20") int size) {
+        if (page < 0) {
+            throw new BadRequestException("page must not be negative");
+        }
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and %d".formatted(MAX_SEARCH_PAGE_SIZE));
+        }
+        if ((long) (page + 1) * size > MAX_SEARCH_RESULTS) {
+            throw new BadRequestException("only the first %d results can be paged through".formatted(MAX_SEARCH_RESULTS));
+        }
+        return searchIndexService.search(q, types, page, size);
+    }
+}
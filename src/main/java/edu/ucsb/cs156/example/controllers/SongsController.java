@@ -1,27 +1,42 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Song;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.SongRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import javax.validation.Valid;
+import java.util.List;
 
 
 @Api(description = "Songs")
@@ -30,26 +45,65 @@ import javax.validation.Valid;
 @Slf4j
 public class SongsController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "artist", "album");
+
     @Autowired
     SongRepository songRepository;
 
-    @ApiOperation(value = "List all songs")
+    @Autowired
+    ExportService exportService;
+
+    @ApiOperation(value = "List all songs", response = Song.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Song> allSongs() {
-        Iterable<Song> songs = songRepository.findAll();
-        return songs;
+    public ResponseEntity<byte[]> allSongs(WebRequest request) {
+        return ifModified(request, songRepository.tableVersion(), songRepository::findAll);
+    }
+
+    @ApiOperation(value = "List songs one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<Song> pageSongs(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<Song> rows = switch (sort) {
+            case "id" -> songRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> songRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    songRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, s -> KeysetCursor.of(sort.equals("name") ? s.getName() : null, s.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all songs as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSongs(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, songRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"songs.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
     }
 
     @ApiOperation(value = "Get a single song")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Song getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<Song> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
         Song song = songRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Song.class, id));
 
-        return song;
+        return ifModified(request, song);
     }
 
     @ApiOperation(value = "Create a new song")
@@ -72,18 +126,31 @@ public class SongsController extends ApiController {
         return savedSong;
     }
 
+    @ApiOperation(value = "Create many songs at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postSongsBulk(
+            @RequestBody List<Song> incoming) {
+        return bulkCreate(incoming, songRepository, Song::getId);
+    }
+
     @ApiOperation(value = "Delete a song")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteSong(
             @ApiParam("id") @RequestParam Long id) {
-        Song song = songRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Song.class, id));
-
-        songRepository.delete(song);
+        deleteRow(id, songRepository, Song.class);
         return genericMessage("Song with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many songs at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteSongs(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, songRepository, Song.class);
+    }
+
     @ApiOperation(value = "Update a single song")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -94,12 +161,34 @@ public class SongsController extends ApiController {
         Song song = songRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Song.class, id));
 
-        song.setName(incoming.getName());
-        song.setArtist(incoming.getArtist());
-        song.setAlbum(incoming.getAlbum());
+        copyFields(song, incoming);
 
         songRepository.save(song);
 
         return song;
     }
+
+    @ApiOperation(value = "Change some fields of a song (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<Song> patchSong(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/songs?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, songRepository, Song.class);
+    }
+
+    @ApiOperation(value = "Update many songs at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putSongsBulk(
+            @RequestBody List<Song> incoming) {
+        return bulkUpdate(incoming, songRepository, Song::getId, SongsController::copyFields, Song.class);
+    }
+
+    private static void copyFields(Song song, Song incoming) {
+        song.setName(incoming.getName());
+        song.setArtist(incoming.getArtist());
+        song.setAlbum(incoming.getAlbum());
+    }
 }
@@ -1,30 +1,46 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.UCSBDateTimelineService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Api(description = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -32,26 +48,107 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("quarterYYYYQ", "name", "localDateTime");
+    static final int MAX_TIMELINE_RESULTS = 1000;
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
-    @ApiOperation(value = "List all ucsb dates")
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    UCSBDateTimelineService ucsbDateTimelineService;
+
+    @ApiOperation(value = "List all ucsb dates", response = UCSBDate.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<byte[]> allUCSBDates(WebRequest request) {
+        return ifModified(request, ucsbDateRepository.tableVersion(), ucsbDateRepository::findAll);
+    }
+
+    @ApiOperation(value = "List ucsb dates one page at a time, ordered by id or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDate> pageUCSBDates(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: id or name") @RequestParam(defaultValue = "id") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+
+        List<UCSBDate> rows = switch (sort) {
+            case "id" -> ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLongId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getLongId(), 0L, pageable,
+                    p -> ucsbDateRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), p),
+                    ucsbDateRepository::findByNameIsNullAndIdGreaterThanOrderByIdAsc);
+            default -> throw new BadRequestException("sort must be id or name");
+        };
+
+        return keysetPage(rows, limit, d -> KeysetCursor.of(sort.equals("name") ? d.getName() : null, d.getId()).encode());
+    }
+
+    @ApiOperation(value = "Export all ucsb dates as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, ucsbDateRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ucsbdates.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
+    }
+
+    @ApiOperation(value = "The next dates, soonest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingUCSBDates(
+            @ApiParam("start from this time (iso format); omit for now") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @ApiParam("how many dates (1 to 1000)") @RequestParam(defaultValue = "10") int limit) {
+        checkTimelineLimit(limit);
+        return ucsbDateTimelineService.upcoming(from == null ? LocalDateTime.now() : from, limit);
+    }
+
+    @ApiOperation(value = "Dates from one time (inclusive) to another (exclusive), in time order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public List<UCSBDate> ucsbDatesInRange(
+            @ApiParam("from (iso format)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @ApiParam("to (iso format)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @ApiParam("at most this many dates (1 to 1000)") @RequestParam(defaultValue = "1000") int limit) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+        checkTimelineLimit(limit);
+        return ucsbDateTimelineService.range(from, to, limit);
+    }
+
+    @ApiOperation(value = "All dates in a quarter, in time order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public List<UCSBDate> ucsbDatesInQuarter(
+            @ApiParam("quarter, e.g. 20232 for S23") @RequestParam String quarterYYYYQ) {
+        return ucsbDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(quarterYYYYQ);
+    }
+
+    private static void checkTimelineLimit(int limit) {
+        if (limit < 1 || limit > MAX_TIMELINE_RESULTS) {
+            throw new BadRequestException("limit must be between 1 and %d".formatted(MAX_TIMELINE_RESULTS));
+        }
     }
 
     @ApiOperation(value = "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDate getById(
-            @ApiParam("id") @RequestParam Long id) {
+    public ResponseEntity<UCSBDate> getById(
+            @ApiParam("id") @RequestParam Long id,
+            WebRequest request) {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
-        return ucsbDate;
+        return ifModified(request, ucsbDate);
     }
 
     @ApiOperation(value = "Create a new date")
@@ -78,18 +175,31 @@ public class UCSBDatesController extends ApiController {
         return savedUcsbDate;
     }
 
+    @ApiOperation(value = "Create many ucsb dates at once from a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public List<BulkResult> postUCSBDatesBulk(
+            @RequestBody List<UCSBDate> incoming) {
+        return bulkCreate(incoming, ucsbDateRepository, UCSBDate::getId);
+    }
+
     @ApiOperation(value = "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @ApiParam("id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        deleteRow(id, ucsbDateRepository, UCSBDate.class);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
+    @ApiOperation(value = "Delete many dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public List<BulkResult> deleteUCSBDates(
+            @ApiParam("comma separated ids (ex: 1,2,3)") @RequestParam List<Long> ids) {
+        return bulkDelete(ids, ucsbDateRepository, UCSBDate.class);
+    }
+
     @ApiOperation(value = "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -100,12 +210,34 @@ public class UCSBDatesController extends ApiController {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+        copyFields(ucsbDate, incoming);
 
         ucsbDateRepository.save(ucsbDate);
 
         return ucsbDate;
     }
+
+    @ApiOperation(value = "Change some fields of a date (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<UCSBDate> patchUCSBDate(
+            @ApiParam("id") @RequestParam Long id,
+            @ApiParam("ETag from GET /api/ucsbdates?id=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(id, ifMatch, patch, EDITABLE, ucsbDateRepository, UCSBDate.class);
+    }
+
+    @ApiOperation(value = "Update many dates at once from a JSON array; each item names its row by id")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putUCSBDatesBulk(
+            @RequestBody List<UCSBDate> incoming) {
+        return bulkUpdate(incoming, ucsbDateRepository, UCSBDate::getId, UCSBDatesController::copyFields, UCSBDate.class);
+    }
+
+    private static void copyFields(UCSBDate ucsbDate, UCSBDate incoming) {
+        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
+        ucsbDate.setName(incoming.getName());
+        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+    }
 }
@@ -1,25 +1,43 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkResult;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import javax.validation.Valid;
+import java.util.List;
 
 
 @Api(description = "UCSBDiningCommons")
@@ -28,26 +46,114 @@ import javax.validation.Valid;
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
+    private static final List<String> EDITABLE = List.of("name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+    static final int MAX_NEAREST = 100;
+
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
-    @ApiOperation(value = "List all ucsb dining commons")
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    DiningCommonsLocationService diningCommonsLocationService;
+
+    @ApiOperation(value = "List all ucsb dining commons", response = UCSBDiningCommons.class, responseContainer = "List")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<byte[]> allCommonss(WebRequest request) {
+        return ifModified(request, ucsbDiningCommonsRepository.tableVersion(), ucsbDiningCommonsRepository::findAll);
+    }
+
+    @ApiOperation(value = "List dining commons one page at a time, ordered by code or name")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", params = "limit")
+    public KeysetPage<UCSBDiningCommons> pageCommonss(
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam int limit,
+            @ApiParam("sort order: code or name") @RequestParam(defaultValue = "code") String sort) {
+        Pageable pageable = keysetPageable(limit);
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", ""));
+
+        List<UCSBDiningCommons> rows = switch (sort) {
+            case "code" -> ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(cursor.getId(), pageable);
+            case "name" -> nameOrderedRows(cursor.getKey(), cursor.getId(), "", pageable,
+                    p -> ucsbDiningCommonsRepository.findByNameAfter(cursor.getKey(), cursor.getId(), p),
+                    ucsbDiningCommonsRepository::findByNameIsNullAndCodeGreaterThanOrderByCodeAsc);
+            default -> throw new BadRequestException("sort must be code or name");
+        };
+
+        return keysetPage(rows, limit, c -> KeysetCursor.of(sort.equals("name") ? c.getName() : null, c.getCode()).encode());
+    }
+
+    @ApiOperation(value = "Export all dining commons as NDJSON or CSV, streamed row by row")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCommonss(
+            @ApiParam("format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, ucsbDiningCommonsRepository::streamAll, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ucsbdiningcommons.%s\"".formatted(exportFormat.getExtension()))
+                .body(body);
+    }
+
+    @ApiOperation(value = "The dining commons closest to a point, nearest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyCommons> nearestCommonss(
+            @ApiParam("latitude, -90 to 90") @RequestParam double lat,
+            @ApiParam("longitude, -180 to 180") @RequestParam double lon,
+            @ApiParam("how many commons (1 to 100)") @RequestParam(defaultValue = "5") int k) {
+        checkLatitude(lat);
+        checkLongitude(lon);
+        if (k < 1 || k > MAX_NEAREST) {
+            throw new BadRequestException("k must be between 1 and %d".formatted(MAX_NEAREST));
+        }
+        return diningCommonsLocationService.nearest(lat, lon, k);
+    }
+
+    @ApiOperation(value = "The dining commons inside a latitude / longitude box")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/within")
+    public List<UCSBDiningCommons> commonssWithin(
+            @ApiParam("southern edge") @RequestParam double minLat,
+            @ApiParam("western edge") @RequestParam double minLon,
+            @ApiParam("northern edge") @RequestParam double maxLat,
+            @ApiParam("eastern edge") @RequestParam double maxLon) {
+        checkLatitude(minLat);
+        checkLatitude(maxLat);
+        checkLongitude(minLon);
+        checkLongitude(maxLon);
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new BadRequestException("minLat and minLon must not be greater than maxLat and maxLon");
+        }
+        return diningCommonsLocationService.within(minLat, minLon, maxLat, maxLon);
+    }
+
+    private static void checkLatitude(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new BadRequestException("latitude must be between -90 and 90");
+        }
+    }
+
+    private static void checkLongitude(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestException("longitude must be between -180 and 180");
+        }
     }
 
     @ApiOperation(value = "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommons getById(
-            @ApiParam("code") @RequestParam String code) {
+    public ResponseEntity<UCSBDiningCommons> getById(
+            @ApiParam("code") @RequestParam String code,
+            WebRequest request) {
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
-        return commons;
+        return ifModified(request, commons);
     }
 
     @ApiOperation(value = "Create a new commons")
@@ -83,13 +189,18 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @ApiParam("code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        deleteRow(code, ucsbDiningCommonsRepository, UCSBDiningCommons.class);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
+    @ApiOperation(value = "Delete many commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "codes")
+    public List<BulkResult> deleteUCSBDiningCommons(
+            @ApiParam("comma separated codes (ex: ortega,carrillo)") @RequestParam List<String> codes) {
+        return bulkDelete(codes, ucsbDiningCommonsRepository, UCSBDiningCommons.class);
+    }
+
     @ApiOperation(value = "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
@@ -101,15 +212,37 @@ public class UCSBDiningCommonsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
 
-        commons.setName(incoming.getName());  
+        copyFields(commons, incoming);
+
+        ucsbDiningCommonsRepository.save(commons);
+
+        return commons;
+    }
+
+    @ApiOperation(value = "Change some fields of commons (JSON merge patch); If-Match must hold its current ETag")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping("")
+    public ResponseEntity<UCSBDiningCommons> patchCommons(
+            @ApiParam("code") @RequestParam String code,
+            @ApiParam("ETag from GET /api/ucsbdiningcommons?code=...") @RequestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+            @RequestBody JsonNode patch) {
+        return mergePatch(code, ifMatch, patch, EDITABLE, ucsbDiningCommonsRepository, UCSBDiningCommons.class);
+    }
+
+    @ApiOperation(value = "Update many commons at once from a JSON array; each item names its row by code")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/bulk")
+    public List<BulkResult> putUCSBDiningCommonsBulk(
+            @RequestBody List<UCSBDiningCommons> incoming) {
+        return bulkUpdate(incoming, ucsbDiningCommonsRepository, UCSBDiningCommons::getCode, UCSBDiningCommonsController::copyFields, UCSBDiningCommons.class);
+    }
+
+    private static void copyFields(UCSBDiningCommons commons, UCSBDiningCommons incoming) {
+        commons.setName(incoming.getName());
         commons.setHasSackMeal(incoming.getHasSackMeal());
         commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
         commons.setHasDiningCam(incoming.getHasDiningCam());
         commons.setLatitude(incoming.getLatitude());
         commons.setLongitude(incoming.getLongitude());
-
-        ucsbDiningCommonsRepository.save(commons);
-
-        return commons;
     }
 }
@@ -1,19 +1,28 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
 
 @Api(description="User information (admin only)")
 @RequestMapping("/api/admin/users")
@@ -25,13 +34,39 @@ public class UsersController extends ApiController {
     @Autowired
     ObjectMapper mapper;
 
-    @ApiOperation(value = "Get a list of all users")
+    /**
+     * One page of users, ordered by email, as a KeysetPage.  Only the page
+     * is loaded, and it is written to the response a user at a time rather
+     * than built up as a String first.
+     */
+    @ApiOperation(value = "List users one page at a time, ordered by email", response = KeysetPage.class)
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    public void users(
+            @ApiParam("only users whose email starts with this (ex: cgaucho@)") @RequestParam(defaultValue = "") String emailPrefix,
+            @ApiParam("nextCursor from the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @ApiParam("page size (1 to 1000)") @RequestParam(defaultValue = "100") int limit,
+            HttpServletResponse response) throws IOException {
+        KeysetCursor cursor = KeysetCursor.decode(after, KeysetCursor.of("", 0L));
+        List<User> rows = userRepository.findByEmailLikeAfter(likePrefix(emailPrefix), cursor.getKey(),
+                cursor.getLongId(), keysetPageable(limit));
+        KeysetPage<User> page = keysetPage(rows, limit, u -> KeysetCursor.of(u.getEmail(), u.getId()).encode());
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator json = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("items");
+            for (User user : page.getItems()) {
+                json.writeObject(user);
+            }
+            json.writeEndArray();
+            json.writeStringField("nextCursor", page.getNextCursor());
+            json.writeEndObject();
+        }
+    }
+
+    /** A LIKE pattern matching strings that start with prefix. */
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
     }
-}
\ No newline at end of file
+}
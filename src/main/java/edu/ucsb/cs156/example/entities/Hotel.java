@@ -1,26 +1,50 @@
 package edu.ucsb.cs156.example.entities;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Column;
+import javax.persistence.Version;
 
+import edu.ucsb.cs156.example.services.SearchIndexListener;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "hotels")
-public class Hotel {
+@Table(indexes = @Index(name = "hotels_name_id_idx", columnList = "name, id"))
+@EntityListeners(SearchIndexListener.class)
+@DynamicUpdate
+public class Hotel implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hotels_seq")
+  @SequenceGenerator(name = "hotels_seq", sequenceName = "hotels_seq", allocationSize = 50)
   private long id;
 
   private String name;
   private String address;
   private String description;
+
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private Long version;
+
+  @UpdateTimestamp
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private Instant lastModified;
 }
@@ -1,28 +1,56 @@
 package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
+import java.time.Instant;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Column;
+import javax.persistence.Version;
 
+import edu.ucsb.cs156.example.services.UCSBDateTimelineListener;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdates")
-public class UCSBDate {
+@Table(indexes = {
+    @Index(name = "ucsbdates_name_id_idx", columnList = "name, id"),
+    @Index(name = "ucsbdates_local_date_time_id_idx", columnList = "localDateTime, id"),
+    @Index(name = "ucsbdates_quarter_local_date_time_idx", columnList = "quarterYYYYQ, localDateTime")
+})
+@EntityListeners(UCSBDateTimelineListener.class)
+@DynamicUpdate
+public class UCSBDate implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdates_seq")
+  @SequenceGenerator(name = "ucsbdates_seq", sequenceName = "ucsbdates_seq", allocationSize = 50)
   private long id;
 
   private String quarterYYYYQ;
   private String name;  
   private LocalDateTime localDateTime;
-}
\ No newline at end of file
+
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private Long version;
+
+  @UpdateTimestamp
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private Instant lastModified;
+}
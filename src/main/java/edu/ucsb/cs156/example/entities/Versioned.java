@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.Instant;
+
+/**
+ * Entities with an optimistic-locking version and a last-modified time,
+ * which is what conditional GETs (ETag / Last-Modified) are built from.
+ */
+
+public interface Versioned {
+  Long getVersion();
+
+  Instant getLastModified();
+}
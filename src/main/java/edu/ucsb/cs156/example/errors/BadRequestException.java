@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * Something in the request itself is wrong: a parameter out of range, a
+ * cursor we didn't issue, a file that can't be parsed.  Controllers answer
+ * it with 400 Bad Request.
+ */
+public class BadRequestException extends RuntimeException {
+  public BadRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class PreconditionFailedException extends RuntimeException {
+  public PreconditionFailedException(Class<?> entityType, Object id) {
+    super("%s with id %s has changed since it was read; reload it and try again"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
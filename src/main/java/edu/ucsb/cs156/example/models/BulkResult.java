@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Outcome for one item of a bulk request, in the same order as the
+ * items (or ids) in the request.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkResult {
+  public static final String CREATED = "created";
+  public static final String UPDATED = "updated";
+  public static final String DELETED = "deleted";
+  public static final String NOT_FOUND = "not_found";
+  public static final String REJECTED = "rejected";
+
+  private int index;
+  private String status;
+  private Object id;
+  private String message;
+}
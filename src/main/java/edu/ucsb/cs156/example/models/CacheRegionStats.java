@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Counters for one second-level cache region since startup.  Hits, misses
+ * and puts are Hibernate's; evictions (entries dropped because the region
+ * was full or expired) come from the cache provider and are null when it
+ * does not report them.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CacheRegionStats {
+  private String region;
+  private long hits;
+  private long misses;
+  private long puts;
+  private Long evictions;
+  private double hitRatio;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CacheStats {
+  private long secondLevelCacheHits;
+  private long secondLevelCacheMisses;
+  private long secondLevelCachePuts;
+  private long queryCacheHits;
+  private long queryCacheMisses;
+  private long queryCachePuts;
+  private List<CacheRegionStats> regions;
+}
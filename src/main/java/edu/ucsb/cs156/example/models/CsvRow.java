@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.Map;
+
+/**
+ * One record of an imported CSV file, keyed by the (lower-cased) column
+ * names from the header row.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CsvRow {
+  private long line;
+  private Map<String, String> values;
+
+  public String get(String column) {
+    return values.get(column);
+  }
+
+  public String required(String column) {
+    String value = values.get(column);
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException("%s is required".formatted(column));
+    }
+    return value;
+  }
+}
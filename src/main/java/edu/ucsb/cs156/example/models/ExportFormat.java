@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Output formats supported by the <code>/api/&lt;entity&gt;/export</code>
+ * endpoints.
+ */
+
+public enum ExportFormat {
+  NDJSON("application/x-ndjson", "ndjson"),
+  CSV("text/csv", "csv");
+
+  private final MediaType mediaType;
+  private final String extension;
+
+  ExportFormat(String mediaType, String extension) {
+    this.mediaType = MediaType.parseMediaType(mediaType);
+    this.extension = extension;
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public static ExportFormat fromParam(String value) {
+    for (ExportFormat format : values()) {
+      if (format.extension.equalsIgnoreCase(value)) {
+        return format;
+      }
+    }
+    throw new BadRequestException("format must be ndjson or csv");
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * Outcome of a CSV import.  Only the first few errors are kept;
+ * errorsTruncated says whether there were more.  aborted says the import
+ * stopped part way (its last error says where): the rows counted were
+ * dealt with, and the rest of the file was not imported.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ImportReport {
+  private long rowsRead;
+  private long rowsWritten;
+  private long rowsRejected;
+  private long elapsedMillis;
+  private long rowsPerSecond;
+  private List<ImportError> errors;
+  private boolean errorsTruncated;
+  private boolean aborted;
+}
@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the value of the sort column
+ * and the id that breaks ties within it.  Clients only ever see the
+ * encoded (url-safe base64) form.
+ *
+ * The key is null for a row whose sort column is NULL.  Those rows come
+ * last, after every name (see ApiController.nameOrderedRows), so a page
+ * that ends on one carries on among them by id alone.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetCursor {
+  private String key;
+  private String id;
+
+  public static KeysetCursor of(String key, Object id) {
+    return new KeysetCursor(key, id.toString());
+  }
+
+  public long getLongId() {
+    try {
+      return Long.parseLong(id);
+    } catch (NumberFormatException e) {
+      throw new BadRequestException("malformed cursor");
+    }
+  }
+
+  public String encode() {
+    // a NULL key is written as the id alone, so it can't be confused with ""
+    String raw = key == null ? id : key + "\n" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor previously returned by {@link #encode()}.
+   *
+   * @param token the encoded cursor, or null for the first page
+   * @param first the position to start from when token is null
+   * @throws BadRequestException if token was not produced by encode()
+   */
+  public static KeysetCursor decode(String token, KeysetCursor first) {
+    if (token == null || token.isEmpty()) {
+      return first;
+    }
+    String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("malformed cursor");
+    }
+    int split = raw.lastIndexOf('\n');
+    if (split < 0) {
+      return new KeysetCursor(null, raw);
+    }
+    return new KeysetCursor(raw.substring(0, split), raw.substring(split + 1));
+  }
+}
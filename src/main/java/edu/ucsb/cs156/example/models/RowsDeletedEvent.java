@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+
+import java.util.Collection;
+
+/**
+ * Published after rows were removed by a bulk DELETE statement, which
+ * (unlike EntityManager.remove) doesn't run the entities' @PostRemove
+ * listeners; the in-memory indexes listen for it instead.
+ */
+
+@Data
+@AllArgsConstructor
+public class RowsDeletedEvent {
+  private Class<?> entityClass;
+  private Collection<?> ids;
+}
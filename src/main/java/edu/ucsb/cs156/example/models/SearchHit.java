@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * One search result: which row matched (type is the table, e.g. "games")
+ * and how well; fetch the row itself from /api/{type}?id={id}.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class SearchHit {
+  private String type;
+  private long id;
+  private String name;
+  private double score;
+}
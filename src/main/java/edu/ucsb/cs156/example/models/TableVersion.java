@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.AccessLevel;
+
+import java.time.Instant;
+
+/**
+ * How many rows a table has and when the most recent one was written.
+ * Any insert or update moves lastModified forward and any delete changes
+ * rows, so together they identify the current contents of the table
+ * without loading it.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class TableVersion {
+  private long rows;
+  private Instant lastModified;
+
+  /**
+   * Weak ETag: equal contents serialize the same way, but we have not
+   * checked byte for byte.
+   */
+  public String eTag() {
+    return "W/\"%d-%d\"".formatted(rows, lastModified == null ? 0 : lastModified.toEpochMilli());
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.entities.Grocery;
+import reactor.core.publisher.Mono;
+
+@Profile("reactive")
+@RequestMapping("/api/groceries")
+@RestController
+public class GroceriesReadController extends ReadOnlyController<Grocery> {
+  public GroceriesReadController() {
+    super(Grocery.class, "id");
+  }
+
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("")
+  public Mono<Grocery> getById(@RequestParam Long id) {
+    return one(id);
+  }
+}
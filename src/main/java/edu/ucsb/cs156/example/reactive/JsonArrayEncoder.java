@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Jackson2JsonEncoder collects a Flux into a List before writing it as a
+ * JSON array, so a large /all response would sit in memory until the last
+ * row arrived.  This one writes each row as it comes, with the brackets
+ * and commas around it, so rows are read from the database only as fast
+ * as the client takes them.  Monos and streaming types (application/x-ndjson) are
+ * left to Jackson2JsonEncoder.
+ */
+public class JsonArrayEncoder extends Jackson2JsonEncoder {
+
+  public JsonArrayEncoder(ObjectMapper mapper) {
+    super(mapper);
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+      ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+    if (inputStream instanceof Mono || getStreamingMediaTypeSeparator(mimeType) != null) {
+      return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    // "[" goes out with the first row, so an error before it (access
+    // denied, no connection) still gets a proper error response rather
+    // than a committed 200 and a cut-off body
+    return Flux.defer(() -> {
+      AtomicBoolean first = new AtomicBoolean(true);
+      return Flux.from(inputStream)
+          .map(row -> {
+            DataBuffer json = encodeValue(row, bufferFactory, elementType, mimeType, hints);
+            String separator = first.getAndSet(false) ? "[" : ",";
+            return bufferFactory.join(List.of(text(bufferFactory, separator), json));
+          })
+          .concatWith(Mono.fromSupplier(() -> text(bufferFactory, first.get() ? "[]" : "]")));
+    });
+  }
+
+  private static DataBuffer text(DataBufferFactory bufferFactory, String text) {
+    return bufferFactory.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
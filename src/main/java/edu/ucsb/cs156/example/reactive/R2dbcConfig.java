@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.reactive;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import javax.persistence.Entity;
+
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.model.naming.Identifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * Maps the JPA entity classes onto the tables Hibernate created for them,
+ * so the reactive tier needs no entity classes of its own.
+ */
+@Profile("reactive")
+@Configuration
+public class R2dbcConfig {
+
+  @Bean
+  public NamingStrategy namingStrategy() {
+    return new JpaNamingStrategy();
+  }
+
+  @Bean
+  public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+    return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory),
+        List.of(new TimestampToInstantConverter()));
+  }
+
+  /**
+   * Table names from @Entity(name = ...), column names as Spring Boot's
+   * default Hibernate physical naming makes them (lastModified is
+   * last_modified, quarterYYYYQ is quarteryyyyq).
+   */
+  static class JpaNamingStrategy implements NamingStrategy {
+    private static final CamelCaseToUnderscoresNamingStrategy HIBERNATE = new CamelCaseToUnderscoresNamingStrategy();
+
+    @Override
+    public String getTableName(Class<?> type) {
+      Entity entity = type.getAnnotation(Entity.class);
+      String name = entity == null || entity.name().isEmpty() ? type.getSimpleName() : entity.name();
+      return physical(name);
+    }
+
+    @Override
+    public String getColumnName(RelationalPersistentProperty property) {
+      return physical(property.getName());
+    }
+
+    private static String physical(String name) {
+      return HIBERNATE.toPhysicalColumnName(Identifier.toIdentifier(name), null).getText();
+    }
+  }
+
+  /**
+   * Hibernate stores an Instant in a plain timestamp column, in the JVM's
+   * time zone; R2DBC drivers hand that column back as a LocalDateTime.
+   */
+  @ReadingConverter
+  static class TimestampToInstantConverter implements Converter<LocalDateTime, Instant> {
+    @Override
+    public Instant convert(LocalDateTime source) {
+      return source.atZone(ZoneId.systemDefault()).toInstant();
+    }
+  }
+}
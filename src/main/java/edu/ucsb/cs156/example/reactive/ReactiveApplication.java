@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.reactive;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The read-only reactive API tier: non-blocking versions of the GET
+ * endpoints of the CRUD controllers, on WebFlux (Netty) and R2DBC, over the
+ * same tables and entity classes and with the same login and role rules.
+ * It runs as its own process, next to ExampleApplication, e.g.
+ *
+ * mvn spring-boot:run -Dspring-boot.run.main-class=edu.ucsb.cs156.example.reactive.ReactiveApplication
+ *
+ * and always with the "reactive" profile (application-reactive.properties),
+ * which is what swaps JDBC/JPA for R2DBC.  ExampleApplication never loads
+ * anything from this package.  See docs/reactive-api.md.
+ */
+@Profile("reactive")
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(basePackageClasses = ReactiveApplication.class)
+public class ReactiveApplication {
+
+  public static void main(String[] args) {
+    new SpringApplicationBuilder(ReactiveApplication.class)
+        .web(WebApplicationType.REACTIVE)
+        .profiles("reactive")
+        .run(args);
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.reactive;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.EndpointRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.client.userinfo.DefaultReactiveOAuth2UserService;
+import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
+import org.springframework.security.oauth2.client.userinfo.ReactiveOAuth2UserService;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.logout.RedirectServerLogoutSuccessHandler;
+import org.springframework.security.web.server.csrf.CookieServerCsrfTokenRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import edu.ucsb.cs156.example.config.UserRoles;
+import edu.ucsb.cs156.example.entities.User;
+import reactor.core.publisher.Mono;
+
+/**
+ * The rules of SecurityConfig for the reactive tier: Google login, the
+ * same roles (UserRoles), admin-only actuator endpoints, 403 rather than a
+ * login redirect, and the XSRF-TOKEN cookie.  A session from one tier is
+ * not a session in the other; the frontend logs in to each.
+ */
+@Profile("reactive")
+@Configuration
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveSecurityConfig {
+
+  @Value("${app.admin.emails}")
+  private final List<String> adminEmails = new ArrayList<String>();
+
+  @Bean
+  public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    RedirectServerLogoutSuccessHandler logoutSuccessHandler = new RedirectServerLogoutSuccessHandler();
+    logoutSuccessHandler.setLogoutSuccessUrl(URI.create("/"));
+
+    return http.authorizeExchange(authorize -> authorize
+        .matchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN")
+        .anyExchange().permitAll())
+        .exceptionHandling(handling -> handling
+            .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+        .oauth2Login()
+        .and()
+        .csrf(csrf -> csrf
+            .csrfTokenRepository(CookieServerCsrfTokenRepository.withHttpOnlyFalse()))
+        .logout(logout -> logout
+            .requiresLogout(ServerWebExchangeMatchers.pathMatchers("/logout"))
+            .logoutSuccessHandler(logoutSuccessHandler))
+        .build();
+  }
+
+  /** Adds our roles to the authorities Google's user info gives. */
+  @Bean
+  public ReactiveOAuth2UserService<OAuth2UserRequest, OAuth2User> oauth2UserService(R2dbcEntityTemplate template) {
+    DefaultReactiveOAuth2UserService delegate = new DefaultReactiveOAuth2UserService();
+    return request -> delegate.loadUser(request).flatMap(user -> {
+      String email = user.getAttribute("email");
+      return getAdmin(template, email).map(admin -> {
+        Set<GrantedAuthority> authorities = new HashSet<>(user.getAuthorities());
+        authorities.addAll(UserRoles.rolesFor(email, admin));
+        String nameAttribute = request.getClientRegistration().getProviderDetails()
+            .getUserInfoEndpoint().getUserNameAttributeName();
+        return new DefaultOAuth2User(authorities, user.getAttributes(), nameAttribute);
+      });
+    });
+  }
+
+  Mono<Boolean> getAdmin(R2dbcEntityTemplate template, String email) {
+    if (adminEmails.contains(email)) {
+      return Mono.just(true);
+    }
+    return template.select(User.class)
+        .matching(query(where("email").is(email)))
+        .first()
+        .map(User::getAdmin)
+        .defaultIfEmpty(false);
+  }
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.reactive;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Profile("reactive")
+@Configuration
+public class ReactiveWebConfig implements WebFluxConfigurer {
+  private final ObjectMapper mapper;
+
+  public ReactiveWebConfig(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Tomcat is on the classpath for ExampleApplication and Boot would
+   * prefer it; serve this tier from Netty's few event-loop threads.
+   */
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  @Override
+  public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+    configurer.defaultCodecs().jackson2JsonEncoder(new JsonArrayEncoder(mapper));
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.reactive;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * GET /all and GET ?id= for one entity, as in the MVC controllers, but
+ * non-blocking: /all is a Flux that JsonArrayEncoder writes row by row
+ * (or one row per line with Accept: application/x-ndjson), fetched as
+ * the client reads.  Subclasses map GET "" to one(), with the same query
+ * parameter as their MVC counterpart.
+ */
+public abstract class ReadOnlyController<T> {
+  private final Class<T> type;
+  private final String idProperty;
+
+  @Autowired
+  R2dbcEntityTemplate template;
+
+  protected ReadOnlyController(Class<T> type, String idProperty) {
+    this.type = type;
+    this.idProperty = idProperty;
+  }
+
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/all")
+  public Flux<T> all() {
+    return template.select(type)
+        .matching(Query.empty().sort(Sort.by(idProperty)))
+        .all();
+  }
+
+  /** The row with this id (code, for the dining commons), or a 404. */
+  protected Mono<T> one(Object id) {
+    return template.select(type)
+        .matching(query(where(idProperty).is(id)))
+        .one()
+        .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(type, id)));
+  }
+
+  @ExceptionHandler({ EntityNotFoundException.class })
+  @ResponseStatus(HttpStatus.NOT_FOUND)
+  public Object handleNotFound(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import reactor.core.publisher.Mono;
+
+@Profile("reactive")
+@RequestMapping("/api/ucsbdiningcommons")
+@RestController
+public class UCSBDiningCommonsReadController extends ReadOnlyController<UCSBDiningCommons> {
+  public UCSBDiningCommonsReadController() {
+    super(UCSBDiningCommons.class, "code");
+  }
+
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("")
+  public Mono<UCSBDiningCommons> getById(@RequestParam String code) {
+    return one(code);
+  }
+}
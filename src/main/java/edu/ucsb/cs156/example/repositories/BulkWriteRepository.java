@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Set-based deletes and batched or single-row updates, each in one
+ * transaction.
+ *
+ * Every repository declares lockIds and deleteRowsById with its own JPQL.
+ * The deletes are single DELETE ... WHERE id IN (...) statements, so the
+ * rows are never loaded and entity listeners (@PostRemove) do not run:
+ * callers publish a RowsDeletedEvent for the in-memory indexes instead.
+ * Hibernate still evicts the table's second-level and query cache regions.
+ */
+
+@NoRepositoryBean
+public interface BulkWriteRepository<T, ID> extends PagingAndSortingRepository<T, ID> {
+
+  /** Those of the given ids that exist, locked until the transaction ends. */
+  List<ID> lockIds(Collection<ID> ids);
+
+  /** Delete the rows with the given ids in one statement; returns the row count. */
+  int deleteRowsById(Collection<ID> ids);
+
+  /** Delete one row in one statement; false if there was no such row. */
+  @Transactional
+  default boolean deleteRow(ID id) {
+    return deleteRowsById(List.of(id)) > 0;
+  }
+
+  /**
+   * Delete the rows with the given ids and return the ids of the rows that
+   * were there.  The rows are locked first, so the answer can't be changed
+   * by a concurrent delete.
+   */
+  @Transactional
+  default List<ID> deleteRows(Collection<ID> ids) {
+    List<ID> found = lockIds(ids);
+    if (!found.isEmpty()) {
+      deleteRowsById(found);
+    }
+    return found;
+  }
+
+  /**
+   * Load one row and apply the change to it in one transaction; empty if
+   * there is no such row.  The change may throw to roll back.
+   */
+  @Transactional
+  default Optional<T> updateRow(ID id, Consumer<T> change) {
+    Optional<T> row = findById(id);
+    row.ifPresent(change);
+    return row;
+  }
+
+  /**
+   * Load the rows with the given ids, apply the change to each and return
+   * them.  Hibernate writes the changes when the transaction commits, as
+   * JDBC batches of UPDATE statements.
+   */
+  @Transactional
+  default List<T> updateRows(Collection<ID> ids, Consumer<T> change) {
+    List<T> rows = new ArrayList<>(ids.size());
+    for (T row : findAllById(ids)) {
+      change.accept(row);
+      rows.add(row);
+    }
+    return rows;
+  }
+}
@@ -1,12 +1,49 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.models.TableVersion;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface GameRepository extends CrudRepository<Game, Long> {
- 
+public interface GameRepository extends BulkWriteRepository<Game, Long> {
+  List<Game> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @Query("SELECT g FROM games g WHERE g.name >= :name AND (g.name > :name OR g.id > :id) ORDER BY g.name, g.id")
+  List<Game> findByNameAfter(@Param("name") String name, @Param("id") long id, Pageable pageable);
+
+  List<Game> findByNameIsNullAndIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT g FROM games g")
+  Stream<Game> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "games-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(g), max(g.lastModified)) FROM games g")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT g.id FROM games g WHERE g.id IN :ids")
+  List<Long> lockIds(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query("DELETE FROM games g WHERE g.id IN :ids")
+  int deleteRowsById(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -1,12 +1,49 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Hotel;
+import edu.ucsb.cs156.example.models.TableVersion;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface HotelRepository extends CrudRepository<Hotel, Long> {
+public interface HotelRepository extends BulkWriteRepository<Hotel, Long> {
+  List<Hotel> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @Query("SELECT h FROM hotels h WHERE h.name >= :name AND (h.name > :name OR h.id > :id) ORDER BY h.name, h.id")
+  List<Hotel> findByNameAfter(@Param("name") String name, @Param("id") long id, Pageable pageable);
+
+  List<Hotel> findByNameIsNullAndIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT h FROM hotels h")
+  Stream<Hotel> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "hotels-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(h), max(h.lastModified)) FROM hotels h")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT h.id FROM hotels h WHERE h.id IN :ids")
+  List<Long> lockIds(@Param("ids") Collection<Long> ids);
 
+  @Modifying
+  @Query("DELETE FROM hotels h WHERE h.id IN :ids")
+  int deleteRowsById(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
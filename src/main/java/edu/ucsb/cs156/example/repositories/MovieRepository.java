@@ -1,12 +1,49 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.models.TableVersion;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface MovieRepository extends CrudRepository<Movie, Long> {
-  
+public interface MovieRepository extends BulkWriteRepository<Movie, Long> {
+  List<Movie> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @Query("SELECT m FROM movies m WHERE m.name >= :name AND (m.name > :name OR m.id > :id) ORDER BY m.name, m.id")
+  List<Movie> findByNameAfter(@Param("name") String name, @Param("id") long id, Pageable pageable);
+
+  List<Movie> findByNameIsNullAndIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT m FROM movies m")
+  Stream<Movie> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "movies-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(m), max(m.lastModified)) FROM movies m")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT m.id FROM movies m WHERE m.id IN :ids")
+  List<Long> lockIds(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query("DELETE FROM movies m WHERE m.id IN :ids")
+  int deleteRowsById(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
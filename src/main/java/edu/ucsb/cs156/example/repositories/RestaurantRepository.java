@@ -1,12 +1,49 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.TableVersion;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
-    
+public interface RestaurantRepository extends BulkWriteRepository<Restaurant, Long> {
+  List<Restaurant> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @Query("SELECT r FROM restaurants r WHERE r.name >= :name AND (r.name > :name OR r.id > :id) ORDER BY r.name, r.id")
+  List<Restaurant> findByNameAfter(@Param("name") String name, @Param("id") long id, Pageable pageable);
+
+  List<Restaurant> findByNameIsNullAndIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT r FROM restaurants r")
+  Stream<Restaurant> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "restaurants-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(r), max(r.lastModified)) FROM restaurants r")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r.id FROM restaurants r WHERE r.id IN :ids")
+  List<Long> lockIds(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query("DELETE FROM restaurants r WHERE r.id IN :ids")
+  int deleteRowsById(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
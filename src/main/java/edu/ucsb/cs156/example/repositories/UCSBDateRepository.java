@@ -1,12 +1,59 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.TableVersion;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends BulkWriteRepository<UCSBDate, Long> {
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+
+  List<UCSBDate> findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(String quarterYYYYQ);
+
+  List<UCSBDate> findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(LocalDateTime from, Pageable pageable);
+
+  @Query("SELECT d FROM ucsbdates d WHERE d.localDateTime >= :from AND d.localDateTime < :to ORDER BY d.localDateTime, d.id")
+  List<UCSBDate> findByLocalDateTimeRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @Query("SELECT d FROM ucsbdates d WHERE d.name >= :name AND (d.name > :name OR d.id > :id) ORDER BY d.name, d.id")
+  List<UCSBDate> findByNameAfter(@Param("name") String name, @Param("id") long id, Pageable pageable);
+
+  List<UCSBDate> findByNameIsNullAndIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT d FROM ucsbdates d")
+  Stream<UCSBDate> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "ucsbdates-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(d), max(d.lastModified)) FROM ucsbdates d")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT d.id FROM ucsbdates d WHERE d.id IN :ids")
+  List<Long> lockIds(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query("DELETE FROM ucsbdates d WHERE d.id IN :ids")
+  int deleteRowsById(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
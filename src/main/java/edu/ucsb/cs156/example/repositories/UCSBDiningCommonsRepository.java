@@ -1,13 +1,53 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.TableVersion;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
+public interface UCSBDiningCommonsRepository extends BulkWriteRepository<UCSBDiningCommons, String> {
+  List<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String code, Pageable pageable);
+
+  @Query("SELECT c FROM ucsbdiningcommons c WHERE c.name >= :name AND (c.name > :name OR c.code > :code) ORDER BY c.name, c.code")
+  List<UCSBDiningCommons> findByNameAfter(@Param("name") String name, @Param("code") String code, Pageable pageable);
+
+  List<UCSBDiningCommons> findByNameIsNullAndCodeGreaterThanOrderByCodeAsc(String code, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("SELECT c FROM ucsbdiningcommons c")
+  Stream<UCSBDiningCommons> streamAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "ucsbdiningcommons-queries") })
+  Iterable<UCSBDiningCommons> findAll();
+
+  @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "ucsbdiningcommons-queries") })
+  @Query("SELECT new edu.ucsb.cs156.example.models.TableVersion(count(c), max(c.lastModified)) FROM ucsbdiningcommons c")
+  TableVersion tableVersion();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c.code FROM ucsbdiningcommons c WHERE c.code IN :ids")
+  List<String> lockIds(@Param("ids") Collection<String> ids);
+
+  @Modifying
+  @Query("DELETE FROM ucsbdiningcommons c WHERE c.code IN :ids")
+  int deleteRowsById(@Param("ids") Collection<String> ids);
 }
\ No newline at end of file
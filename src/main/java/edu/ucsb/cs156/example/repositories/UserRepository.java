@@ -1,12 +1,27 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
   Optional<User> findByEmail(String email);
+  Optional<User> findByGoogleSub(String googleSub);
+
+  /**
+   * Keyset page of the users whose email matches the LIKE pattern (with
+   * '\' as the escape character), ordered by email; a pattern that is a
+   * literal prefix followed by % is a range scan of users_email_idx.
+   */
+  @Query("SELECT u FROM users u WHERE u.email LIKE :pattern ESCAPE '\\' "
+      + "AND (u.email > :email OR (u.email = :email AND u.id > :id)) ORDER BY u.email, u.id")
+  List<User> findByEmailLikeAfter(@Param("pattern") String pattern, @Param("email") String email,
+      @Param("id") long id, Pageable pageable);
 }
@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+public interface UserRepositoryCustom {
+  /**
+   * Insert the user unless a row with the same email or Google sub already
+   * exists, in one statement, so that concurrent first logins by the same
+   * person leave exactly one row.  Returns whether a row was inserted; the
+   * id of the user passed in is not set, so read the row back with
+   * findByEmail.
+   */
+  boolean insertIfAbsent(User user);
+}
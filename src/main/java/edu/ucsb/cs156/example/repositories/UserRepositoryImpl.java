@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StringType;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The upsert is database specific: INSERT ... ON CONFLICT DO NOTHING on
+ * PostgreSQL (production) and MERGE ... WHEN NOT MATCHED on H2 (development
+ * and tests).  ON CONFLICT only has something to conflict with if the
+ * unique indexes on email and google_sub exist; UserIndexService creates
+ * them at startup when they don't.
+ */
+
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+  private static final String COLUMNS =
+      "email, google_sub, picture_url, full_name, given_name, family_name, email_verified, locale, hosted_domain, admin";
+
+  private static final String VALUES =
+      ":email, :googleSub, :pictureUrl, :fullName, :givenName, :familyName, :emailVerified, :locale, :hostedDomain, :admin";
+
+  static final String POSTGRES_INSERT =
+      "INSERT INTO users (" + COLUMNS + ") VALUES (" + VALUES + ") ON CONFLICT DO NOTHING";
+
+  static final String H2_MERGE =
+      "MERGE INTO users u USING (SELECT CAST(:email AS VARCHAR) AS email) n ON u.email = n.email"
+          + " WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (" + VALUES + ")";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private volatile Boolean postgres;
+
+  @Override
+  @Transactional
+  public boolean insertIfAbsent(User user) {
+    Query query = entityManager.createNativeQuery(isPostgres() ? POSTGRES_INSERT : H2_MERGE)
+        .setParameter("email", string(user.getEmail()))
+        .setParameter("googleSub", string(user.getGoogleSub()))
+        .setParameter("pictureUrl", string(user.getPictureUrl()))
+        .setParameter("fullName", string(user.getFullName()))
+        .setParameter("givenName", string(user.getGivenName()))
+        .setParameter("familyName", string(user.getFamilyName()))
+        .setParameter("emailVerified", user.getEmailVerified())
+        .setParameter("locale", string(user.getLocale()))
+        .setParameter("hostedDomain", string(user.getHostedDomain()))
+        .setParameter("admin", user.getAdmin());
+    // only the users table changes; without this Hibernate would throw away
+    // every cached query result
+    query.unwrap(NativeQuery.class).addSynchronizedEntityClass(User.class);
+    return query.executeUpdate() > 0;
+  }
+
+  /** Typed, so that a null binds as a varchar rather than bytea. */
+  private static TypedParameterValue string(String value) {
+    return new TypedParameterValue(StringType.INSTANCE, value);
+  }
+
+  private boolean isPostgres() {
+    if (postgres == null) {
+      postgres = entityManager.unwrap(Session.class).doReturningWork(
+          connection -> connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    }
+    return postgres;
+  }
+}
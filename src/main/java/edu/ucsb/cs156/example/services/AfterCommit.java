@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs a change to an in-memory index once the current transaction has
+ * committed (and not at all if it rolls back), or straight away when there
+ * is no transaction.
+ */
+
+final class AfterCommit {
+
+  private AfterCommit() {
+  }
+
+  static void run(Runnable change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          change.run();
+        }
+      });
+    } else {
+      change.run();
+    }
+  }
+}
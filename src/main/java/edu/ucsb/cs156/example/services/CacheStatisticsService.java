@@ -0,0 +1,85 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.CacheRegionStats;
+import edu.ucsb.cs156.example.models.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Second-level and query cache statistics, for sizing the regions in
+ * application.conf.  Hibernate keeps hits, misses and puts (with
+ * hibernate.generate_statistics on); evictions only show up in the JCache
+ * statistics MBeans that the provider registers for each cache.
+ */
+
+@Slf4j
+@Service("cacheStatistics")
+public class CacheStatisticsService {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  public CacheStats getStatistics() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    Map<String, CacheStatisticsMXBean> jcache = jcacheStatistics();
+
+    List<CacheRegionStats> regions = Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+        .sorted()
+        .map(name -> region(name, statistics.getCacheRegionStatistics(name), jcache.get(name)))
+        .toList();
+
+    return CacheStats.builder()
+        .secondLevelCacheHits(statistics.getSecondLevelCacheHitCount())
+        .secondLevelCacheMisses(statistics.getSecondLevelCacheMissCount())
+        .secondLevelCachePuts(statistics.getSecondLevelCachePutCount())
+        .queryCacheHits(statistics.getQueryCacheHitCount())
+        .queryCacheMisses(statistics.getQueryCacheMissCount())
+        .queryCachePuts(statistics.getQueryCachePutCount())
+        .regions(regions)
+        .build();
+  }
+
+  private static CacheRegionStats region(String name, CacheRegionStatistics region, CacheStatisticsMXBean jcache) {
+    long hits = region == null ? 0 : region.getHitCount();
+    long misses = region == null ? 0 : region.getMissCount();
+    return CacheRegionStats.builder()
+        .region(name)
+        .hits(hits)
+        .misses(misses)
+        .puts(region == null ? 0 : region.getPutCount())
+        .evictions(jcache == null ? null : jcache.getCacheEvictions())
+        .hitRatio(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+        .build();
+  }
+
+  private static Map<String, CacheStatisticsMXBean> jcacheStatistics() {
+    Map<String, CacheStatisticsMXBean> byCache = new HashMap<>();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+        byCache.put(name.getKeyProperty("Cache"), JMX.newMXBeanProxy(server, name, CacheStatisticsMXBean.class));
+      }
+    } catch (MalformedObjectNameException e) {
+      log.warn("could not look up JCache statistics", e);
+    }
+    return byCache;
+  }
+}
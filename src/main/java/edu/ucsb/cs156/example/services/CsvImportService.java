@@ -0,0 +1,340 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportError;
+import edu.ucsb.cs156.example.models.ImportReport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports a CSV file (with a header row) into a repository as a three
+ * stage pipeline:
+ *
+ * <ol>
+ * <li>the calling thread parses the file as a stream and cuts it into
+ * batches of <code>app.import.batchSize</code> rows;</li>
+ * <li>each batch is validated and mapped to entities on a fork-join pool;</li>
+ * <li>a single writer thread saves each batch with one saveAll, i.e. one
+ * transaction per batch, in file order.</li>
+ * </ol>
+ *
+ * Batches are handed from the parser to the writer through a queue holding
+ * at most <code>app.import.maxBatchesInFlight</code> batches, so when the
+ * database is the bottleneck the parser waits instead of reading ahead, and
+ * memory use is bounded by the batch size rather than the file size.
+ */
+
+@Slf4j
+@Service("csvImport")
+public class CsvImportService {
+
+  @Value("${app.import.batchSize:500}")
+  int batchSize;
+
+  @Value("${app.import.maxBatchesInFlight:8}")
+  int maxBatchesInFlight;
+
+  @Value("${app.import.maxErrors:100}")
+  int maxErrors;
+
+  @Value("${app.import.parallelism:0}")
+  int parallelism;
+
+  private ForkJoinPool mappers;
+
+  private ExecutorService writers;
+
+  @PostConstruct
+  void start() {
+    mappers = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    AtomicInteger threads = new AtomicInteger();
+    writers = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "csv-import-writer-" + threads.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @PreDestroy
+  void stop() {
+    mappers.shutdown();
+    writers.shutdown();
+  }
+
+  /**
+   * Import every row of the file.  The mapper turns a row into an entity
+   * and throws IllegalArgumentException (or any other runtime exception)
+   * to reject it; rejected rows are reported and the import carries on.
+   */
+  public <T> ImportReport importCsv(InputStream in, Function<CsvRow, T> mapper, CrudRepository<T, ?> repository)
+      throws IOException {
+    long start = System.nanoTime();
+    Progress progress = new Progress(start);
+
+    CsvRecordReader reader = new CsvRecordReader(
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    List<String> header = reader.next();
+    if (header == null) {
+      return progress.report();
+    }
+    List<String> columns = header.stream().map(c -> c.trim().toLowerCase(Locale.ROOT)).toList();
+
+    BlockingQueue<CompletableFuture<MappedBatch<T>>> queue = new ArrayBlockingQueue<>(maxBatchesInFlight);
+    CompletableFuture<MappedBatch<T>> end = new CompletableFuture<>();
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> write(queue, end, repository, progress), writers);
+
+    try {
+      List<String> fields;
+      List<CsvRow> batch = new ArrayList<>(batchSize);
+      List<ImportError> malformed = new ArrayList<>();
+      boolean writing = true;
+      while (writing && (fields = reader.next()) != null) {
+        if (fields.size() != columns.size()) {
+          malformed.add(error(reader.getLine(),
+              "expected %d columns but found %d".formatted(columns.size(), fields.size())));
+        } else {
+          batch.add(row(reader.getLine(), columns, fields));
+        }
+        if (batch.size() + malformed.size() == batchSize) {
+          writing = hand(queue, map(batch, malformed, mapper), writer);
+          batch = new ArrayList<>(batchSize);
+          malformed = new ArrayList<>();
+        }
+      }
+      if (writing && (!batch.isEmpty() || !malformed.isEmpty())) {
+        hand(queue, map(batch, malformed, mapper), writer);
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      Throwable writerFailure = finish(queue, end, writer);
+      if (writerFailure != null) {
+        e.addSuppressed(writerFailure);
+      }
+      throw e;
+    }
+
+    Throwable writerFailure = finish(queue, end, writer);
+    if (writerFailure != null) {
+      log.error("csv import writer failed", writerFailure);
+      progress.aborted();
+    }
+    ImportReport report = progress.report();
+    log.info("csv import finished: {}", report);
+    return report;
+  }
+
+  private <T> CompletableFuture<MappedBatch<T>> map(List<CsvRow> rows, List<ImportError> errors,
+      Function<CsvRow, T> mapper) {
+    int rowsRead = rows.size() + errors.size();
+    return CompletableFuture.supplyAsync(() -> {
+      List<T> entities = new ArrayList<>(rows.size());
+      for (CsvRow row : rows) {
+        try {
+          entities.add(mapper.apply(row));
+        } catch (RuntimeException e) {
+          errors.add(error(row.getLine(), e.getMessage()));
+        }
+      }
+      errors.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+      long firstLine = rows.isEmpty() ? 0 : rows.get(0).getLine();
+      long lastLine = rows.isEmpty() ? 0 : rows.get(rows.size() - 1).getLine();
+      return new MappedBatch<>(rowsRead, entities, errors, firstLine, lastLine);
+    }, mappers);
+  }
+
+  /**
+   * Put a batch on the queue, waiting while the queue is full (that is
+   * the back-pressure); returns false, without waiting any longer, if the
+   * writer has died.
+   */
+  private <T> boolean hand(BlockingQueue<CompletableFuture<MappedBatch<T>>> queue,
+      CompletableFuture<MappedBatch<T>> batch, CompletableFuture<Void> writer) throws IOException {
+    try {
+      while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        if (writer.isDone()) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("csv import interrupted", e);
+    }
+  }
+
+  /**
+   * Tell the writer there are no more batches and wait for it to finish;
+   * returns why it failed, or null.  Never throws, so it is safe to call
+   * while another exception is on its way out.
+   */
+  private <T> Throwable finish(BlockingQueue<CompletableFuture<MappedBatch<T>>> queue,
+      CompletableFuture<MappedBatch<T>> end, CompletableFuture<Void> writer) {
+    try {
+      while (!writer.isDone() && !queue.offer(end, 100, TimeUnit.MILLISECONDS)) {
+        // the writer is still working through a full queue
+      }
+      writer.get();
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writer.cancel(true);
+      return e;
+    }
+  }
+
+  private <T> void write(BlockingQueue<CompletableFuture<MappedBatch<T>>> queue, CompletableFuture<MappedBatch<T>> end,
+      CrudRepository<T, ?> repository, Progress progress) {
+    try {
+      while (true) {
+        CompletableFuture<MappedBatch<T>> next = queue.take();
+        if (next == end) {
+          return;
+        }
+        MappedBatch<T> batch = next.join();
+        progress.read(batch.rowsRead(), batch.lastLine());
+        progress.rejected(batch.errors());
+        if (!batch.entities().isEmpty()) {
+          try {
+            repository.saveAll(batch.entities());
+            progress.written(batch.entities().size());
+          } catch (RuntimeException e) {
+            log.warn("csv import: batch at lines {}-{} failed", batch.firstLine(), batch.lastLine(), e);
+            progress.rejected(List.of(error(batch.firstLine(), "rows on lines %d-%d not written: %s"
+                .formatted(batch.firstLine(), batch.lastLine(), e.getMessage()))), batch.entities().size());
+          }
+        }
+        progress.log();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static CsvRow row(long line, List<String> columns, List<String> fields) {
+    Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      values.put(columns.get(i), fields.get(i));
+    }
+    return CsvRow.builder().line(line).values(values).build();
+  }
+
+  private static ImportError error(long line, String message) {
+    return ImportError.builder().line(line).message(message).build();
+  }
+
+  private record MappedBatch<T>(int rowsRead, List<T> entities, List<ImportError> errors, long firstLine,
+      long lastLine) {
+  }
+
+  /**
+   * Running totals; only touched by the writer thread until the import is
+   * over, when the caller reads them.
+   */
+  private class Progress {
+    private final long start;
+    private long lastLogged;
+    private long rowsRead;
+    private long rowsWritten;
+    private long rowsRejected;
+    private final List<ImportError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private boolean aborted;
+    private long lastLine;
+
+    Progress(long start) {
+      this.start = start;
+      this.lastLogged = start;
+    }
+
+    void read(long rows, long lastLine) {
+      rowsRead += rows;
+      this.lastLine = Math.max(this.lastLine, lastLine);
+    }
+
+    /** The import stopped early; report where, even if errors is full. */
+    void aborted() {
+      aborted = true;
+      if (errors.size() == maxErrors && maxErrors > 0) {
+        errors.remove(errors.size() - 1);
+        errorsTruncated = true;
+      }
+      errors.add(error(lastLine, "import aborted after line %d; the rest of the file was not imported"
+          .formatted(lastLine)));
+    }
+
+    void written(long rows) {
+      rowsWritten += rows;
+    }
+
+    void rejected(List<ImportError> lineErrors) {
+      rejected(lineErrors, lineErrors.size());
+    }
+
+    void rejected(List<ImportError> lineErrors, long rows) {
+      rowsRejected += rows;
+      for (ImportError e : lineErrors) {
+        if (errors.size() < maxErrors) {
+          errors.add(e);
+        } else {
+          errorsTruncated = true;
+        }
+      }
+    }
+
+    /** Log progress at most once a second. */
+    void log() {
+      long now = System.nanoTime();
+      if (now - lastLogged >= TimeUnit.SECONDS.toNanos(1)) {
+        lastLogged = now;
+        log.info("csv import: {} rows read, {} written, {} rejected ({} rows/sec)",
+            rowsRead, rowsWritten, rowsRejected, rowsPerSecond(now));
+      }
+    }
+
+    long rowsPerSecond(long now) {
+      return rowsRead * TimeUnit.SECONDS.toNanos(1) / Math.max(now - start, 1);
+    }
+
+    ImportReport report() {
+      long now = System.nanoTime();
+      return ImportReport.builder()
+          .rowsRead(rowsRead)
+          .rowsWritten(rowsWritten)
+          .rowsRejected(rowsRejected)
+          .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(now - start))
+          .rowsPerSecond(rowsPerSecond(now))
+          .errors(List.copyOf(errors))
+          .errorsTruncated(errorsTruncated)
+          .aborted(aborted)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records (the same dialect ExportService writes) one at a
+ * time.  Quoted fields may contain commas, doubled quotes and line breaks,
+ * so a record can span several lines; getLine() is the line on which the
+ * record last returned by next() started.
+ */
+
+class CsvRecordReader {
+
+  private final Reader in;
+  private long nextLine = 1;
+  private long line;
+  private int pushedBack = -2;
+
+  CsvRecordReader(Reader in) {
+    this.in = in;
+  }
+
+  long getLine() {
+    return line;
+  }
+
+  /**
+   * The next non-empty record, or null at end of input.
+   */
+  List<String> next() throws IOException {
+    while (true) {
+      line = nextLine;
+      List<String> fields = readRecord();
+      if (fields == null) {
+        return null;
+      }
+      if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+        return fields;
+      }
+    }
+  }
+
+  private List<String> readRecord() throws IOException {
+    int c = read();
+    if (c < 0) {
+      return null;
+    }
+
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          throw new BadRequestException("line %d: unterminated quoted field".formatted(line));
+        }
+        if (c == '"') {
+          int d = read();
+          if (d == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            c = d;
+            continue;
+          }
+        } else {
+          if (c == '\n') {
+            nextLine++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c < 0 || c == '\n') {
+        break;
+      } else if (c == '\r') {
+        int d = read();
+        if (d != '\n') {
+          unread(d);
+        }
+        break;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+    if (c >= 0) {
+      nextLine++;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private int read() throws IOException {
+    if (pushedBack != -2) {
+      int c = pushedBack;
+      pushedBack = -2;
+      return c;
+    }
+    return in.read();
+  }
+
+  private void unread(int c) {
+    pushedBack = c;
+  }
+}
@@ -5,13 +5,17 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -19,11 +23,29 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 
+/**
+ * Resolves the logged in user to a row of the users table.
+ *
+ * The row is looked up (and created, the first time someone logs in) once
+ * per <code>app.currentUser.cacheSeconds</code> per user, keyed by the
+ * OAuth <code>sub</code>; within a request it is looked up at most once.
+ * Nothing in the application changes a users row after it is read here,
+ * so the cache is never invalidated: a change made to the table directly
+ * (e.g. setting the admin flag) is seen once the cached row expires.
+ */
 
 @Slf4j
 @Service("currentUser")
 public class CurrentUserServiceImpl extends CurrentUserService {
+  private static final String REQUEST_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".user";
+
   @Autowired
   private UserRepository userRepository;
 
@@ -33,18 +55,42 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Value("${app.admin.emails}")
   final private List<String> adminEmails = new ArrayList<String>();
 
+  @Value("${app.currentUser.cacheSeconds:300}")
+  long cacheSeconds;
+
+  @Value("${app.currentUser.cacheSize:10000}")
+  long cacheSize;
+
+  Ticker ticker = Ticker.systemTicker();
+
+  private Cache<String, User> users;
+
+  @PostConstruct
+  void buildCache() {
+    users = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(cacheSeconds))
+        .maximumSize(cacheSize)
+        .ticker(ticker)
+        .build();
+  }
+
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
+    String googleSub = oAuthUser.getAttribute("sub");
+    return users.get(googleSub, sub -> loadUser(oAuthUser));
+  }
+
+  private User loadUser(OAuth2User oAuthUser) {
     String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
@@ -55,8 +101,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}", oAuthUser.getAttributes());
 
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
@@ -80,18 +125,35 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .hostedDomain(hostedDomain)
         .admin(adminEmails.contains(email))
         .build();
-    userRepository.save(u);
-    return u;
+    try {
+      userRepository.insertIfAbsent(u);
+    } catch (DataIntegrityViolationException e) {
+      log.debug("user {} was inserted concurrently", email);
+    }
+    // whether we inserted the row or lost the race, read back the one row
+    return userRepository.findByEmail(email)
+        .or(() -> userRepository.findByGoogleSub(googleSub))
+        .orElseThrow(() -> new IllegalStateException("no users row for " + email));
   }
 
   public User getUser() {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
+    if (!(authentication instanceof OAuth2AuthenticationToken)) {
+      return null;
+    }
+
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request == null) {
       return getOAuth2AuthenticatedUser(securityContext, authentication);
     }
-    return null;
+    User u = (User) request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (u == null) {
+      u = getOAuth2AuthenticatedUser(securityContext, authentication);
+      request.setAttribute(REQUEST_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST);
+    }
+    return u;
   }
 
   public Collection<? extends GrantedAuthority> getRoles() {
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps DiningCommonsLocationService in step with the ucsbdiningcommons
+ * table (see SearchIndexListener for why the service is looked up lazily).
+ */
+
+public class DiningCommonsLocationListener {
+
+  @Autowired
+  ObjectProvider<DiningCommonsLocationService> locations;
+
+  @PostPersist
+  @PostUpdate
+  public void saved(UCSBDiningCommons commons) {
+    locations.ifAvailable(service -> service.onSave(commons));
+  }
+
+  @PostRemove
+  public void removed(UCSBDiningCommons commons) {
+    locations.ifAvailable(service -> service.onRemove(commons));
+  }
+}
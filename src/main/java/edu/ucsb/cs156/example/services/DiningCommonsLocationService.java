@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Dining commons by location, from an in-memory GeoGrid: loaded when the
+ * application starts, then updated by DiningCommonsLocationListener as
+ * commons are created, changed or deleted.  Commons without a latitude and
+ * longitude are left out.
+ *
+ * The grid holds its own copies of the rows, so callers can't change them.
+ *
+ * rebuild() reads every commons into a new grid and swaps it in at once,
+ * so requests served meanwhile still see the old one.  Commons saved or
+ * deleted while it reads are kept as the listener left them, the same as
+ * UCSBDateTimelineService and SearchIndexService do.
+ */
+
+@Slf4j
+@Service("diningCommonsLocations")
+public class DiningCommonsLocationService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Value("${app.commons.gridDegrees:0.005}")
+  double gridDegrees;
+
+  private GeoGrid<String, UCSBDiningCommons> grid;
+
+  /** Every indexed commons by code, including those without a location; guarded by this. */
+  private final Map<String, UCSBDiningCommons> commonsByCode = new HashMap<>();
+
+  /** Commons deleted while rebuild() runs, so that it doesn't put them back. */
+  private volatile Set<String> removedDuringRebuild;
+
+  /** Commons saved while rebuild() runs, so that it doesn't replace them with an older copy. */
+  private volatile Set<String> savedDuringRebuild;
+
+  @PostConstruct
+  void createGrid() {
+    grid = new GeoGrid<>(gridDegrees);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    Set<String> removed = ConcurrentHashMap.newKeySet();
+    Set<String> saved = ConcurrentHashMap.newKeySet();
+    removedDuringRebuild = removed;
+    savedDuringRebuild = saved;
+    try {
+      Map<String, UCSBDiningCommons> loaded = new HashMap<>();
+      for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+        loaded.put(commons.getCode(), copy(commons));
+      }
+      publish(loaded, removed, saved);
+    } finally {
+      removedDuringRebuild = null;
+      savedDuringRebuild = null;
+    }
+    log.info("dining commons location index rebuilt: {} commons", grid.size());
+  }
+
+  private synchronized void publish(Map<String, UCSBDiningCommons> loaded, Set<String> removed,
+      Set<String> saved) {
+    loaded.keySet().removeAll(removed);
+    for (String code : saved) {
+      UCSBDiningCommons current = commonsByCode.get(code);
+      UCSBDiningCommons read = loaded.get(code);
+      if (current != null && (read == null || version(current) >= version(read))) {
+        loaded.put(code, current);
+      }
+    }
+    commonsByCode.clear();
+    commonsByCode.putAll(loaded);
+    grid.replaceAll(loaded.values().stream()
+        .filter(commons -> commons.getLatitude() != null && commons.getLongitude() != null)
+        .map(commons -> new GeoGrid.Point<>(commons.getCode(), commons.getLatitude(), commons.getLongitude(),
+            commons))
+        .collect(Collectors.toList()));
+  }
+
+  /** Called by DiningCommonsLocationListener after a commons is inserted or updated. */
+  public void onSave(UCSBDiningCommons commons) {
+    UCSBDiningCommons copy = copy(commons);
+    AfterCommit.run(() -> put(copy));
+  }
+
+  /** Called by DiningCommonsLocationListener after a commons is deleted. */
+  public void onRemove(UCSBDiningCommons commons) {
+    String code = commons.getCode();
+    AfterCommit.run(() -> removeDeleted(code));
+  }
+
+  /** Commons removed by a bulk DELETE, which bypasses the listener. */
+  @EventListener
+  public void onRowsDeleted(RowsDeletedEvent event) {
+    if (event.getEntityClass() == UCSBDiningCommons.class) {
+      List<String> codes = event.getIds().stream().map(String.class::cast).collect(Collectors.toList());
+      AfterCommit.run(() -> codes.forEach(this::removeDeleted));
+    }
+  }
+
+  private void removeDeleted(String code) {
+    Set<String> removed = removedDuringRebuild;
+    if (removed != null) {
+      removed.add(code);
+    }
+    remove(code);
+  }
+
+  /** Keeps whichever of the indexed and the given copy has the higher version. */
+  private synchronized void put(UCSBDiningCommons commons) {
+    UCSBDiningCommons old = commonsByCode.get(commons.getCode());
+    if (old != null && version(old) > version(commons)) {
+      return;
+    }
+    commonsByCode.put(commons.getCode(), commons);
+    Set<String> saved = savedDuringRebuild;
+    if (saved != null) {
+      saved.add(commons.getCode());
+    }
+    if (commons.getLatitude() == null || commons.getLongitude() == null) {
+      grid.remove(commons.getCode());
+    } else {
+      grid.put(commons.getCode(), commons.getLatitude(), commons.getLongitude(), commons);
+    }
+  }
+
+  private synchronized void remove(String code) {
+    commonsByCode.remove(code);
+    grid.remove(code);
+  }
+
+  private static long version(UCSBDiningCommons commons) {
+    return commons.getVersion() == null ? 0 : commons.getVersion();
+  }
+
+  public List<NearbyCommons> nearest(double latitude, double longitude, int k) {
+    return grid.nearest(latitude, longitude, k).stream()
+        .map(n -> NearbyCommons.builder().commons(copy(n.value())).distanceMeters(n.distanceMeters()).build())
+        .collect(Collectors.toList());
+  }
+
+  public List<UCSBDiningCommons> within(double minLatitude, double minLongitude, double maxLatitude,
+      double maxLongitude) {
+    return grid.within(minLatitude, minLongitude, maxLatitude, maxLongitude).stream()
+        .map(DiningCommonsLocationService::copy)
+        .collect(Collectors.toList());
+  }
+
+  private static UCSBDiningCommons copy(UCSBDiningCommons commons) {
+    return UCSBDiningCommons.builder()
+        .code(commons.getCode())
+        .name(commons.getName())
+        .hasSackMeal(commons.getHasSackMeal())
+        .hasTakeOutMeal(commons.getHasTakeOutMeal())
+        .hasDiningCam(commons.getHasDiningCam())
+        .latitude(commons.getLatitude())
+        .longitude(commons.getLongitude())
+        .version(commons.getVersion())
+        .lastModified(commons.getLastModified())
+        .build();
+  }
+}
@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.models.ExportFormat;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes a whole table to an output stream one row at a time.
+ *
+ * Rows come from a repository <code>Stream</code> query (which holds a
+ * JDBC cursor open, so it has to run inside a transaction) and each entity
+ * is detached from the persistence context as soon as it has been written,
+ * so the heap used is the same for a thousand rows or ten million.
+ */
+
+@Slf4j
+@Service("export")
+public class ExportService {
+
+  private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Transactional(readOnly = true)
+  public <T> long export(ExportFormat format, Supplier<Stream<T>> rows, OutputStream out) throws IOException {
+    // every row is read once; don't push the whole table through the
+    // second-level cache and evict the rows that are actually hot
+    entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+    try (Stream<T> stream = rows.get()) {
+      long count = writeRows(format, stream, entityManager::detach, out);
+      log.info("exported {} rows as {}", count, format);
+      return count;
+    }
+  }
+
+  /**
+   * Write rows in the given format, calling afterWrite on each row once it
+   * has been handed to the output.  Nothing is buffered beyond the current
+   * row and the writer's fixed-size output buffer.
+   */
+  public <T> long writeRows(ExportFormat format, Stream<T> rows, Consumer<? super T> afterWrite, OutputStream out)
+      throws IOException {
+    return switch (format) {
+      case NDJSON -> writeNdjson(rows.iterator(), afterWrite, out);
+      case CSV -> writeCsv(rows.iterator(), afterWrite, out);
+    };
+  }
+
+  private <T> long writeNdjson(Iterator<T> rows, Consumer<? super T> afterWrite, OutputStream out) throws IOException {
+    long count = 0;
+    SequenceWriter writer = mapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .withRootValueSeparator("\n")
+        .writeValues(out);
+    while (rows.hasNext()) {
+      T row = rows.next();
+      writer.write(row);
+      afterWrite.accept(row);
+      count++;
+    }
+    writer.flush();
+    if (count > 0) {
+      out.write('\n');
+    }
+    out.flush();
+    return count;
+  }
+
+  private <T> long writeCsv(Iterator<T> rows, Consumer<? super T> afterWrite, OutputStream out) throws IOException {
+    long count = 0;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    List<String> columns = null;
+    while (rows.hasNext()) {
+      T row = rows.next();
+      JsonNode node = mapper.valueToTree(row);
+      if (columns == null) {
+        columns = new ArrayList<>();
+        node.fieldNames().forEachRemaining(columns::add);
+        writeCsvLine(writer, columns);
+      }
+      List<String> values = new ArrayList<>(columns.size());
+      for (String column : columns) {
+        JsonNode value = node.get(column);
+        values.add(value == null || value.isNull() ? "" : value.asText());
+      }
+      writeCsvLine(writer, values);
+      afterWrite.accept(row);
+      count++;
+    }
+    writer.flush();
+    return count;
+  }
+
+  private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(csvEscape(values.get(i)));
+    }
+    writer.write("\r\n");
+  }
+
+  static String csvEscape(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+}
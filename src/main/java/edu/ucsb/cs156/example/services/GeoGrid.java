@@ -0,0 +1,252 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Points bucketed into a grid of cellDegrees x cellDegrees cells, for
+ * nearest-k and bounding box queries that only look at the cells near the
+ * query instead of at every point.
+ *
+ * Reads take no locks: they see an immutable Snapshot, and each (rare)
+ * write publishes a new one that shares every cell except the one or two
+ * the write touched.  replaceAll builds a whole grid off to the side and
+ * publishes it in one step, so reads see either the old points or the new
+ * ones, never a grid half way through being filled.
+ */
+
+class GeoGrid<K, V> {
+
+  static final double EARTH_RADIUS_METERS = 6_371_008.8;
+  private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+  record Point<K, V>(K key, double latitude, double longitude, V value) {
+  }
+
+  record Nearby<V>(V value, double distanceMeters) {
+  }
+
+  private record Snapshot<K, V>(Map<K, Point<K, V>> points, Map<Long, Point<K, V>[]> cells) {
+  }
+
+  private final double cellDegrees;
+
+  private volatile Snapshot<K, V> snapshot = new Snapshot<>(Map.of(), Map.of());
+
+  GeoGrid(double cellDegrees) {
+    this.cellDegrees = cellDegrees;
+  }
+
+  int size() {
+    return snapshot.points().size();
+  }
+
+  /** Replaces every point with the given ones (keys must be distinct). */
+  synchronized void replaceAll(Collection<Point<K, V>> replacements) {
+    Map<K, Point<K, V>> points = new HashMap<>();
+    Map<Long, List<Point<K, V>>> members = new HashMap<>();
+    for (Point<K, V> point : replacements) {
+      points.put(point.key(), point);
+      members.computeIfAbsent(cell(row(point.latitude()), column(point.longitude())), c -> new ArrayList<>())
+          .add(point);
+    }
+    Map<Long, Point<K, V>[]> cells = new HashMap<>();
+    members.forEach((cell, list) -> {
+      @SuppressWarnings("unchecked")
+      Point<K, V>[] array = list.toArray(new Point[0]);
+      cells.put(cell, array);
+    });
+    snapshot = new Snapshot<>(Map.copyOf(points), Map.copyOf(cells));
+  }
+
+  synchronized void put(K key, double latitude, double longitude, V value) {
+    Snapshot<K, V> s = snapshot;
+    Map<K, Point<K, V>> points = new HashMap<>(s.points());
+    Map<Long, Point<K, V>[]> cells = new HashMap<>(s.cells());
+    Point<K, V> old = points.get(key);
+    if (old != null) {
+      without(cells, old);
+    }
+    Point<K, V> point = new Point<>(key, latitude, longitude, value);
+    points.put(key, point);
+    long cell = cell(row(latitude), column(longitude));
+    Point<K, V>[] members = cells.get(cell);
+    @SuppressWarnings("unchecked")
+    Point<K, V>[] grown = members == null ? new Point[1] : Arrays.copyOf(members, members.length + 1);
+    grown[grown.length - 1] = point;
+    cells.put(cell, grown);
+    snapshot = new Snapshot<>(Map.copyOf(points), Map.copyOf(cells));
+  }
+
+  synchronized void remove(K key) {
+    Snapshot<K, V> s = snapshot;
+    Point<K, V> old = s.points().get(key);
+    if (old == null) {
+      return;
+    }
+    Map<K, Point<K, V>> points = new HashMap<>(s.points());
+    Map<Long, Point<K, V>[]> cells = new HashMap<>(s.cells());
+    points.remove(key);
+    without(cells, old);
+    snapshot = new Snapshot<>(Map.copyOf(points), Map.copyOf(cells));
+  }
+
+  private void without(Map<Long, Point<K, V>[]> cells, Point<K, V> point) {
+    long cell = cell(row(point.latitude()), column(point.longitude()));
+    Point<K, V>[] members = cells.get(cell);
+    Point<K, V>[] rest = Arrays.stream(members).filter(p -> p != point).toArray(n -> Arrays.copyOf(members, n));
+    if (rest.length == 0) {
+      cells.remove(cell);
+    } else {
+      cells.put(cell, rest);
+    }
+  }
+
+  /**
+   * The k points closest to (latitude, longitude), nearest first, found by
+   * searching rings of cells outwards from the query's cell until no
+   * unsearched cell can hold anything closer than the k-th point so far.
+   */
+  List<Nearby<V>> nearest(double latitude, double longitude, int k) {
+    Snapshot<K, V> s = snapshot;
+    Closest closest = new Closest(latitude, longitude, k);
+    int row = row(latitude);
+    int column = column(longitude);
+    int seen = 0;
+    int total = s.points().size();
+    for (int ring = 0; seen < total; ring++) {
+      if (8L * ring > s.cells().size()) {
+        // far from everything: cheaper to measure every point than to keep
+        // looking in empty cells
+        closest = new Closest(latitude, longitude, k);
+        for (Point<K, V> p : s.points().values()) {
+          closest.offer(p);
+        }
+        break;
+      }
+      // everything from this ring out is at least ring - 1 cells away;
+      // cells are narrowest (east-west) at the ring's edge nearest a pole
+      double poleward = Math.min(90, Math.abs(latitude) + (ring + 1) * cellDegrees);
+      double cellMeters = cellDegrees * METERS_PER_DEGREE * Math.cos(Math.toRadians(poleward));
+      if (closest.full() && (ring - 1) * cellMeters > closest.worst()) {
+        break;
+      }
+      for (int r = row - ring; r <= row + ring; r++) {
+        for (int c = column - ring; c <= column + ring; c++) {
+          if (Math.abs(r - row) != ring && Math.abs(c - column) != ring) {
+            continue;
+          }
+          Point<K, V>[] members = s.cells().get(cell(r, c));
+          if (members != null) {
+            for (Point<K, V> p : members) {
+              seen++;
+              closest.offer(p);
+            }
+          }
+        }
+      }
+    }
+    return closest.sorted();
+  }
+
+  private class Closest {
+    private final double latitude;
+    private final double longitude;
+    private final int k;
+    private final PriorityQueue<Nearby<V>> farthestFirst = new PriorityQueue<>(
+        Comparator.comparingDouble((Nearby<V> n) -> n.distanceMeters()).reversed());
+
+    Closest(double latitude, double longitude, int k) {
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.k = k;
+    }
+
+    void offer(Point<K, V> p) {
+      double d = distanceMeters(latitude, longitude, p.latitude(), p.longitude());
+      if (farthestFirst.size() < k) {
+        farthestFirst.add(new Nearby<>(p.value(), d));
+      } else if (d < worst()) {
+        farthestFirst.poll();
+        farthestFirst.add(new Nearby<>(p.value(), d));
+      }
+    }
+
+    boolean full() {
+      return farthestFirst.size() == k;
+    }
+
+    double worst() {
+      return farthestFirst.peek().distanceMeters();
+    }
+
+    List<Nearby<V>> sorted() {
+      List<Nearby<V>> sorted = new ArrayList<>(farthestFirst);
+      sorted.sort(Comparator.comparingDouble(Nearby::distanceMeters));
+      return sorted;
+    }
+  }
+
+  /**
+   * The points inside the box (edges included); the box may not cross the
+   * antimeridian.
+   */
+  List<V> within(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+    Snapshot<K, V> s = snapshot;
+    List<V> found = new ArrayList<>();
+    long boxCells = (long) (row(maxLatitude) - row(minLatitude) + 1) * (column(maxLongitude) - column(minLongitude) + 1);
+    if (boxCells > s.cells().size()) {
+      // a big box: cheaper to look at every occupied cell
+      for (Point<K, V>[] members : s.cells().values()) {
+        addWithin(members, minLatitude, minLongitude, maxLatitude, maxLongitude, found);
+      }
+    } else {
+      for (int r = row(minLatitude); r <= row(maxLatitude); r++) {
+        for (int c = column(minLongitude); c <= column(maxLongitude); c++) {
+          Point<K, V>[] members = s.cells().get(cell(r, c));
+          if (members != null) {
+            addWithin(members, minLatitude, minLongitude, maxLatitude, maxLongitude, found);
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  private void addWithin(Point<K, V>[] members, double minLatitude, double minLongitude, double maxLatitude,
+      double maxLongitude, List<V> found) {
+    for (Point<K, V> p : members) {
+      if (p.latitude() >= minLatitude && p.latitude() <= maxLatitude
+          && p.longitude() >= minLongitude && p.longitude() <= maxLongitude) {
+        found.add(p.value());
+      }
+    }
+  }
+
+  private int row(double latitude) {
+    return (int) Math.floor(latitude / cellDegrees);
+  }
+
+  private int column(double longitude) {
+    return (int) Math.floor(longitude / cellDegrees);
+  }
+
+  private static long cell(int row, int column) {
+    return ((long) row << 32) | (column & 0xffffffffL);
+  }
+
+  /** Great-circle (haversine) distance. */
+  static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+}
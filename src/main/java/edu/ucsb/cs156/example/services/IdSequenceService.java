@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps each entity's id sequence ahead of the ids already in its table.
+ *
+ * The tables had identity columns before their ids came from pooled
+ * sequences (allocationSize 50).  With ddl-auto=update, Hibernate creates
+ * a missing sequence starting at 1, so on a database with rows in it,
+ * new ids would collide with old ones.  db/migration/V5 moves the
+ * sequences past the existing rows, but nothing runs the migrations, so
+ * this does the same every time the application starts.  It runs while
+ * the context is created, after Hibernate has updated the schema and
+ * before the web server takes requests.  A sequence that is already ahead
+ * is left alone; one that is behind is restarted so that its next block
+ * of ids starts after the largest id in the table.
+ */
+
+@Slf4j
+@Service("idSequences")
+public class IdSequenceService {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  DataSource dataSource;
+
+  @PostConstruct
+  public void align() {
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+      IdentifierGenerator generator = persister.getIdentifierGenerator();
+      if (generator instanceof SequenceStyleGenerator && persister instanceof AbstractEntityPersister) {
+        align(jdbc, dialect, (AbstractEntityPersister) persister,
+            ((SequenceStyleGenerator) generator).getDatabaseStructure());
+      }
+    }
+  }
+
+  private void align(JdbcTemplate jdbc, Dialect dialect, AbstractEntityPersister persister,
+      DatabaseStructure sequence) {
+    String name = sequence.getPhysicalName().render();
+    int increment = sequence.getIncrementSize();
+    long maxId = jdbc.queryForObject("SELECT COALESCE(MAX(%s), 0) FROM %s"
+        .formatted(persister.getIdentifierColumnNames()[0], persister.getTableName()), Long.class);
+    // the pooled optimizer hands out the increment ids up to each value
+    // the sequence returns, so the next one must be at least maxId + increment
+    long next = jdbc.queryForObject(dialect.getSequenceNextValString(name), Long.class);
+    if (next - increment >= maxId) {
+      return;
+    }
+    long restart = maxId + increment;
+    jdbc.execute("ALTER SEQUENCE %s RESTART WITH %d".formatted(name, restart));
+    log.warn("sequence {} was behind {} (largest id {}); restarted it at {}",
+        name, persister.getTableName(), maxId, restart);
+  }
+}
@@ -0,0 +1,330 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The data structure behind SearchIndexService: for every word, the
+ * documents containing it, scored with BM25.
+ *
+ * Each document gets a number when it is added (an update re-adds it under
+ * a new number), so the documents in every posting list are in ascending
+ * order, which lets a query intersect lists by merging them.  Postings are
+ * kept in plain int arrays and removed documents are zeroed in place and
+ * squeezed out once they make up half of a list.
+ *
+ * Writes are serialized; searches take no locks.  A search reads each
+ * posting list through an immutable Block (arrays plus the number of
+ * entries in use), and writers only ever append past a published Block's
+ * size, zero an entry, or publish new arrays.
+ */
+
+class InvertedIndex {
+
+  static final double K1 = 1.2;
+  static final double B = 0.75;
+
+  record Key(String type, long id) {
+  }
+
+  /** A row as indexed: its distinct words, how often each occurs, and its total number of words. */
+  record Document(Key key, String name, long version, String[] terms, int[] counts, int length) {
+  }
+
+  record Hit(Document document, double score) {
+  }
+
+  record Result(long total, List<Hit> hits) {
+  }
+
+  private volatile State state = new State();
+
+  int size() {
+    return state.live;
+  }
+
+  int terms() {
+    return state.postings.size();
+  }
+
+  synchronized void clear() {
+    state = new State();
+  }
+
+  /**
+   * Add or replace a document, unless the index already holds a newer
+   * version of it.
+   */
+  synchronized void put(Document document) {
+    State s = state;
+    Integer old = s.numbers.get(document.key());
+    if (old != null) {
+      if (s.documents[old].version() > document.version()) {
+        return;
+      }
+      s.remove(old);
+    }
+    s.add(document);
+    // updates leave holes in the document numbers; renumber once there are
+    // as many holes as documents
+    if (s.next > 2 * s.live + 1024) {
+      state = s.renumbered();
+    }
+  }
+
+  synchronized void remove(Key key) {
+    State s = state;
+    Integer number = s.numbers.get(key);
+    if (number != null) {
+      s.remove(number);
+    }
+  }
+
+  /**
+   * Documents of the given types (any type if empty) containing every one
+   * of the words, best first; hits are the ones ranked offset to
+   * offset + limit - 1.
+   */
+  Result search(List<String> words, Set<String> types, int offset, int limit) {
+    State s = state;
+    if (words.isEmpty()) {
+      return new Result(0, List.of());
+    }
+    Block[] lists = new Block[words.size()];
+    for (int i = 0; i < lists.length; i++) {
+      Postings postings = s.postings.get(words.get(i));
+      if (postings == null) {
+        return new Result(0, List.of());
+      }
+      lists[i] = postings.block;
+    }
+    // walk the rarest word's list and look up the others, so the cost is
+    // set by the most selective word rather than the most common one
+    Arrays.sort(lists, Comparator.comparingInt(Block::live));
+
+    boolean[] allowed = null;
+    byte[] typeOf = s.typeOf;
+    if (!types.isEmpty()) {
+      allowed = new boolean[s.typeNames.size()];
+      for (int t = 0; t < allowed.length; t++) {
+        allowed[t] = types.contains(s.typeNames.get(t));
+      }
+    }
+
+    double n = Math.max(s.live, 1);
+    double averageLength = Math.max(s.totalLength / n, 1);
+    double[] idf = new double[lists.length];
+    for (int i = 0; i < lists.length; i++) {
+      double df = lists[i].live();
+      idf[i] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+    double lengthWeight = K1 * B / averageLength;
+    double constantWeight = K1 * (1 - B);
+
+    int wanted = offset + limit;
+    PriorityQueue<Scored> best = new PriorityQueue<>(wanted + 1, Scored.WORST_FIRST);
+    int[] cursors = new int[lists.length];
+    int[][] docs = new int[lists.length][];
+    int[][] tfs = new int[lists.length][];
+    int[][] lengths = new int[lists.length][];
+    int[] sizes = new int[lists.length];
+    for (int j = 0; j < lists.length; j++) {
+      docs[j] = lists[j].docs();
+      tfs[j] = lists[j].tfs();
+      lengths[j] = lists[j].lengths();
+      sizes[j] = lists[j].size();
+    }
+    long total = 0;
+    candidates:
+    for (int i = 0; i < sizes[0]; i++) {
+      int tf = tfs[0][i];
+      int doc = docs[0][i];
+      if (tf == 0 || (allowed != null && !allowed[typeOf[doc]])) {
+        continue;
+      }
+      double score = idf[0] * tf * (K1 + 1) / (tf + constantWeight + lengthWeight * lengths[0][i]);
+      for (int j = 1; j < lists.length; j++) {
+        int k = cursors[j];
+        if (k < sizes[j] && docs[j][k] < doc) {
+          k = cursors[j] = seek(docs[j], sizes[j], k, doc);
+        }
+        if (k == sizes[j]) {
+          break candidates;
+        }
+        int otherTf = tfs[j][k];
+        if (docs[j][k] != doc || otherTf == 0) {
+          continue candidates;
+        }
+        score += idf[j] * otherTf * (K1 + 1) / (otherTf + constantWeight + lengthWeight * lengths[j][k]);
+      }
+      total++;
+      if (best.size() < wanted) {
+        best.add(new Scored(doc, score));
+      } else if (score > best.peek().score()) {
+        // equal scores keep the earlier document, so pages are stable
+        best.poll();
+        best.add(new Scored(doc, score));
+      }
+    }
+
+    List<Scored> ranked = new ArrayList<>(best);
+    ranked.sort(Scored.WORST_FIRST.reversed());
+    Document[] documents = s.documents;
+    List<Hit> hits = new ArrayList<>();
+    for (Scored scored : ranked.subList(Math.min(offset, ranked.size()), ranked.size())) {
+      Document document = documents[scored.doc()];
+      if (document != null) {
+        hits.add(new Hit(document, scored.score()));
+      }
+    }
+    return new Result(total, hits);
+  }
+
+  /** The first entry after from whose document is at least doc (galloping search). */
+  private static int seek(int[] docs, int size, int from, int doc) {
+    int low = from + 1;
+    int step = 1;
+    int high = low;
+    while (high < size && docs[high] < doc) {
+      low = high + 1;
+      high += step;
+      step <<= 1;
+    }
+    high = Math.min(high, size - 1);
+    if (low > high) {
+      return low;
+    }
+    int found = Arrays.binarySearch(docs, low, high + 1, doc);
+    return found >= 0 ? found : -found - 1;
+  }
+
+  private record Scored(int doc, double score) {
+    static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble(Scored::score)
+        .thenComparing(Comparator.comparingInt(Scored::doc).reversed());
+  }
+
+  /** A posting list as seen by readers: entries [0, size) of the arrays; live counts the non-zero ones. */
+  private record Block(int[] docs, int[] tfs, int[] lengths, int size, int live) {
+  }
+
+  private static final class Postings {
+    volatile Block block = new Block(new int[4], new int[4], new int[4], 0, 0);
+
+    void append(int doc, int tf, int length) {
+      Block b = block;
+      int[] docs = b.docs();
+      int[] tfs = b.tfs();
+      int[] lengths = b.lengths();
+      if (b.size() == docs.length) {
+        int capacity = docs.length * 2;
+        docs = Arrays.copyOf(docs, capacity);
+        tfs = Arrays.copyOf(tfs, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+      }
+      docs[b.size()] = doc;
+      tfs[b.size()] = tf;
+      lengths[b.size()] = length;
+      block = new Block(docs, tfs, lengths, b.size() + 1, b.live() + 1);
+    }
+
+    /** Returns false once the list is empty. */
+    boolean remove(int doc) {
+      Block b = block;
+      int i = Arrays.binarySearch(b.docs(), 0, b.size(), doc);
+      if (i < 0 || b.tfs()[i] == 0) {
+        return b.live() > 0;
+      }
+      b.tfs()[i] = 0;
+      int live = b.live() - 1;
+      if (live * 2 < b.size()) {
+        int capacity = Math.max(4, live * 2);
+        int[] docs = new int[capacity];
+        int[] tfs = new int[capacity];
+        int[] lengths = new int[capacity];
+        int j = 0;
+        for (int k = 0; k < b.size(); k++) {
+          if (b.tfs()[k] != 0) {
+            docs[j] = b.docs()[k];
+            tfs[j] = b.tfs()[k];
+            lengths[j] = b.lengths()[k];
+            j++;
+          }
+        }
+        block = new Block(docs, tfs, lengths, j, live);
+      } else {
+        block = new Block(b.docs(), b.tfs(), b.lengths(), b.size(), live);
+      }
+      return live > 0;
+    }
+  }
+
+  /**
+   * Everything one generation of document numbers refers to.  Only
+   * writers (under the InvertedIndex lock) change it; the volatile fields
+   * and each posting list's block are what searches read.
+   */
+  private static final class State {
+    volatile Document[] documents = new Document[1024];
+    volatile byte[] typeOf = new byte[1024];
+    final List<String> typeNames = new CopyOnWriteArrayList<>();
+    final Map<Key, Integer> numbers = new HashMap<>();
+    final Map<String, Postings> postings = new ConcurrentHashMap<>();
+    int next;
+    volatile int live;
+    volatile long totalLength;
+
+    void add(Document document) {
+      int number = next++;
+      if (number == documents.length) {
+        typeOf = Arrays.copyOf(typeOf, number * 2);
+        documents = Arrays.copyOf(documents, number * 2);
+      }
+      int type = typeNames.indexOf(document.key().type());
+      if (type < 0) {
+        typeNames.add(document.key().type());
+        type = typeNames.size() - 1;
+      }
+      typeOf[number] = (byte) type;
+      documents[number] = document;
+      numbers.put(document.key(), number);
+      for (int i = 0; i < document.terms().length; i++) {
+        postings.computeIfAbsent(document.terms()[i], t -> new Postings())
+            .append(number, document.counts()[i], document.length());
+      }
+      live++;
+      totalLength += document.length();
+    }
+
+    void remove(int number) {
+      Document document = documents[number];
+      for (String term : document.terms()) {
+        Postings list = postings.get(term);
+        if (!list.remove(number)) {
+          postings.remove(term);
+        }
+      }
+      documents[number] = null;
+      numbers.remove(document.key());
+      live--;
+      totalLength -= document.length();
+    }
+
+    State renumbered() {
+      State fresh = new State();
+      for (int number = 0; number < next; number++) {
+        if (documents[number] != null) {
+          fresh.add(documents[number]);
+        }
+      }
+      return fresh;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.services;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA entity listener that keeps the search index in step with the
+ * searchable tables.  Hibernate creates it through Spring; the index is
+ * looked up lazily because the entity manager (and so this listener) is
+ * built before the index, and it is absent altogether in tests that only
+ * start the repositories.
+ */
+
+public class SearchIndexListener {
+
+  @Autowired
+  ObjectProvider<SearchIndexService> searchIndex;
+
+  @PostPersist
+  @PostUpdate
+  public void saved(Object entity) {
+    searchIndex.ifAvailable(index -> index.onSave(entity));
+  }
+
+  @PostRemove
+  public void removed(Object entity) {
+    searchIndex.ifAvailable(index -> index.onRemove(entity));
+  }
+}
@@ -0,0 +1,293 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Grocery;
+import edu.ucsb.cs156.example.entities.Hotel;
+import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.Song;
+import edu.ucsb.cs156.example.entities.Versioned;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.models.SearchResults;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.repositories.GroceryRepository;
+import edu.ucsb.cs156.example.repositories.HotelRepository;
+import edu.ucsb.cs156.example.repositories.MovieRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.SongRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keyword search over the text columns of games, movies, songs, hotels,
+ * restaurants and groceries, from an in-memory InvertedIndex.
+ *
+ * The index is filled from the repositories when the application starts
+ * and then kept up to date by SearchIndexListener, which hands every
+ * committed insert, update and delete to onSave / onRemove; bulk deletes
+ * arrive as a RowsDeletedEvent instead.  Each document carries its row's
+ * version, so a row read by the startup scan never replaces a newer copy
+ * indexed by a concurrent update.
+ *
+ * A query matches the rows that contain every one of its words (after
+ * lower-casing, dropping accents and stop words); words in the name count
+ * NAME_BOOST times as much as words in the other columns.
+ */
+
+@Slf4j
+@Service("searchIndex")
+public class SearchIndexService {
+
+  static final int NAME_BOOST = 3;
+
+  private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Set<String> STOP_WORDS = Set.of(
+      "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+      "the", "to", "with");
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  MovieRepository movieRepository;
+
+  @Autowired
+  SongRepository songRepository;
+
+  @Autowired
+  HotelRepository hotelRepository;
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  GroceryRepository groceryRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private Map<String, Source<?>> sources;
+
+  private final InvertedIndex index = new InvertedIndex();
+
+  /** Rows deleted while rebuild() runs, so that it doesn't put them back. */
+  private volatile Set<InvertedIndex.Key> removedDuringRebuild;
+
+  @PostConstruct
+  void registerSources() {
+    sources = new LinkedHashMap<>();
+    register(new Source<>("games", Game.class, Game::getId, Game::getName,
+        g -> Stream.of(g.getDescription(), g.getGenre()), () -> gameRepository.streamAll()));
+    register(new Source<>("movies", Movie.class, Movie::getId, Movie::getName,
+        m -> Stream.of(m.getSummary()), () -> movieRepository.streamAll()));
+    register(new Source<>("songs", Song.class, Song::getId, Song::getName,
+        s -> Stream.of(s.getArtist(), s.getAlbum()), () -> songRepository.streamAll()));
+    register(new Source<>("hotels", Hotel.class, Hotel::getId, Hotel::getName,
+        h -> Stream.of(h.getAddress(), h.getDescription()), () -> hotelRepository.streamAll()));
+    register(new Source<>("restaurants", Restaurant.class, Restaurant::getId, Restaurant::getName,
+        r -> Stream.of(r.getDescription()), () -> restaurantRepository.streamAll()));
+    register(new Source<>("groceries", Grocery.class, Grocery::getId, Grocery::getName,
+        g -> Stream.empty(), () -> groceryRepository.streamAll()));
+  }
+
+  private void register(Source<?> source) {
+    sources.put(source.type(), source);
+  }
+
+  public Set<String> getTypes() {
+    return sources.keySet();
+  }
+
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Index every row from scratch; runs once the application has started.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    long start = System.nanoTime();
+    removedDuringRebuild = ConcurrentHashMap.newKeySet();
+    try {
+      index.clear();
+      TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+      readOnly.setReadOnly(true);
+      for (Source<?> source : sources.values()) {
+        readOnly.executeWithoutResult(status -> scan(source));
+      }
+    } finally {
+      removedDuringRebuild = null;
+    }
+    log.info("search index rebuilt: {} documents, {} terms in {} ms",
+        index.size(), index.terms(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private <T> void scan(Source<T> source) {
+    // as in ExportService: every row is read once, so keep them out of the
+    // second-level cache
+    entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+    try (Stream<T> rows = source.rows().get()) {
+      rows.forEach(row -> {
+        InvertedIndex.Document document = source.document(row);
+        Set<InvertedIndex.Key> removed = removedDuringRebuild;
+        if (removed == null || !removed.contains(document.key())) {
+          index.put(document);
+        }
+        entityManager.detach(row);
+      });
+    }
+  }
+
+  /**
+   * Called by SearchIndexListener after a row is inserted or updated; the
+   * index changes when (and only if) the transaction commits.
+   */
+  public void onSave(Object entity) {
+    Source<?> source = sourceOf(entity);
+    if (source != null) {
+      InvertedIndex.Document document = documentOf(source, entity);
+      AfterCommit.run(() -> index.put(document));
+    }
+  }
+
+  /**
+   * Called by SearchIndexListener after a row is deleted.
+   */
+  public void onRemove(Object entity) {
+    Source<?> source = sourceOf(entity);
+    if (source != null) {
+      InvertedIndex.Key key = documentOf(source, entity).key();
+      AfterCommit.run(() -> removeDeleted(key));
+    }
+  }
+
+  /**
+   * Rows removed by a bulk DELETE, which bypasses SearchIndexListener.
+   */
+  @EventListener
+  public void onRowsDeleted(RowsDeletedEvent event) {
+    for (Source<?> source : sources.values()) {
+      if (source.entityClass() == event.getEntityClass()) {
+        List<InvertedIndex.Key> keys = event.getIds().stream()
+            .map(id -> new InvertedIndex.Key(source.type(), (Long) id))
+            .collect(Collectors.toList());
+        AfterCommit.run(() -> keys.forEach(this::removeDeleted));
+      }
+    }
+  }
+
+  private void removeDeleted(InvertedIndex.Key key) {
+    Set<InvertedIndex.Key> removed = removedDuringRebuild;
+    if (removed != null) {
+      removed.add(key);
+    }
+    index.remove(key);
+  }
+
+  private Source<?> sourceOf(Object entity) {
+    for (Source<?> source : sources.values()) {
+      if (source.entityClass().isInstance(entity)) {
+        return source;
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> InvertedIndex.Document documentOf(Source<T> source, Object entity) {
+    return source.document((T) entity);
+  }
+
+  /**
+   * Rows of the given types (all types if empty) containing every word of
+   * the query, best first.
+   */
+  public SearchResults search(String query, Collection<String> typeNames, int page, int size) {
+    Set<String> types = Set.copyOf(typeNames);
+    for (String type : types) {
+      if (!sources.containsKey(type)) {
+        throw new BadRequestException("unknown type %s; expected one of %s".formatted(type, sources.keySet()));
+      }
+    }
+    InvertedIndex.Result result = index.search(tokens(query).distinct().collect(Collectors.toList()), types,
+        page * size, size);
+    List<SearchHit> hits = result.hits().stream()
+        .map(hit -> SearchHit.builder()
+            .type(hit.document().key().type())
+            .id(hit.document().key().id())
+            .name(hit.document().name())
+            .score(hit.score())
+            .build())
+        .collect(Collectors.toList());
+    return SearchResults.builder()
+        .query(query)
+        .total(result.total())
+        .page(page)
+        .size(size)
+        .hits(hits)
+        .build();
+  }
+
+  static Stream<String> tokens(String text) {
+    if (text == null) {
+      return Stream.empty();
+    }
+    String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+        .toLowerCase(Locale.ROOT);
+    return NON_WORD.splitAsStream(folded).filter(t -> !t.isEmpty() && !STOP_WORDS.contains(t));
+  }
+
+  private record Source<T>(String type, Class<T> entityClass, ToLongFunction<T> id, Function<T, String> name,
+      Function<T, Stream<String>> text, Supplier<Stream<T>> rows) {
+
+    InvertedIndex.Document document(T row) {
+      Map<String, Integer> terms = new LinkedHashMap<>();
+      int[] length = { 0 };
+      String title = name.apply(row);
+      tokens(title).forEach(t -> {
+        terms.merge(t, NAME_BOOST, Integer::sum);
+        length[0] += NAME_BOOST;
+      });
+      text.apply(row).flatMap(SearchIndexService::tokens).forEach(t -> {
+        terms.merge(t, 1, Integer::sum);
+        length[0]++;
+      });
+      Long version = ((Versioned) row).getVersion();
+      return new InvertedIndex.Document(new InvertedIndex.Key(type, id.applyAsLong(row)), title,
+          version == null ? 0 : version, terms.keySet().toArray(String[]::new),
+          terms.values().stream().mapToInt(Integer::intValue).toArray(), length[0]);
+    }
+  }
+}
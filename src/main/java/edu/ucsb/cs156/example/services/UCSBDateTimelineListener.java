@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps UCSBDateTimelineService in step with the ucsbdates table.
+ */
+
+public class UCSBDateTimelineListener {
+
+  @Autowired
+  ObjectProvider<UCSBDateTimelineService> timeline;
+
+  @PostPersist
+  @PostUpdate
+  public void saved(UCSBDate date) {
+    timeline.ifAvailable(service -> service.onSave(date));
+  }
+
+  @PostRemove
+  public void removed(UCSBDate date) {
+    timeline.ifAvailable(service -> service.onRemove(date));
+  }
+}
@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * UCSB dates in time order, in memory, for the "upcoming" and time range
+ * queries.  Loaded when the application starts and kept up to date by
+ * UCSBDateTimelineListener; until the first load has finished, queries go
+ * to the database instead (through the local_date_time index).
+ *
+ * Dates without a localDateTime are not on the timeline.
+ */
+
+@Slf4j
+@Service("ucsbDateTimeline")
+public class UCSBDateTimelineService {
+
+  /** A date's place on the timeline; dates at the same time are ordered by id. */
+  private record Slot(LocalDateTime time, long id) {
+    static final Comparator<Slot> ORDER = Comparator.comparing(Slot::time).thenComparingLong(Slot::id);
+
+    static Slot of(UCSBDate date) {
+      return new Slot(date.getLocalDateTime(), date.getId());
+    }
+
+    /** Sorts before every date at the given time. */
+    static Slot start(LocalDateTime time) {
+      return new Slot(time, Long.MIN_VALUE);
+    }
+  }
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private final ConcurrentSkipListMap<Slot, UCSBDate> timeline = new ConcurrentSkipListMap<>(Slot.ORDER);
+
+  /** Every indexed date by id, including those without a time; guarded by this. */
+  private final Map<Long, UCSBDate> dates = new HashMap<>();
+
+  private volatile boolean loaded;
+
+  /** Dates deleted while rebuild() runs, so that it doesn't put them back. */
+  private volatile Set<Long> removedDuringRebuild;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    loaded = false;
+    removedDuringRebuild = ConcurrentHashMap.newKeySet();
+    try {
+      synchronized (this) {
+        timeline.clear();
+        dates.clear();
+      }
+      TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+      readOnly.setReadOnly(true);
+      readOnly.executeWithoutResult(status -> scan());
+      loaded = true;
+    } finally {
+      removedDuringRebuild = null;
+    }
+    log.info("ucsb date timeline rebuilt: {} dates", timeline.size());
+  }
+
+  private void scan() {
+    entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+    try (Stream<UCSBDate> rows = ucsbDateRepository.streamAll()) {
+      rows.forEach(row -> {
+        Set<Long> removed = removedDuringRebuild;
+        if (removed == null || !removed.contains(row.getId())) {
+          put(copy(row));
+        }
+        entityManager.detach(row);
+      });
+    }
+  }
+
+  /** Called by UCSBDateTimelineListener after a date is inserted or updated. */
+  public void onSave(UCSBDate date) {
+    UCSBDate copy = copy(date);
+    AfterCommit.run(() -> put(copy));
+  }
+
+  /** Called by UCSBDateTimelineListener after a date is deleted. */
+  public void onRemove(UCSBDate date) {
+    long id = date.getId();
+    AfterCommit.run(() -> removeDeleted(id));
+  }
+
+  /** Dates removed by a bulk DELETE, which bypasses the listener. */
+  @EventListener
+  public void onRowsDeleted(RowsDeletedEvent event) {
+    if (event.getEntityClass() == UCSBDate.class) {
+      List<Long> ids = event.getIds().stream().map(Long.class::cast).collect(Collectors.toList());
+      AfterCommit.run(() -> ids.forEach(this::removeDeleted));
+    }
+  }
+
+  private void removeDeleted(long id) {
+    Set<Long> removed = removedDuringRebuild;
+    if (removed != null) {
+      removed.add(id);
+    }
+    remove(id);
+  }
+
+  /** Keeps whichever of the indexed and the given copy has the higher version. */
+  private synchronized void put(UCSBDate date) {
+    UCSBDate old = dates.get(date.getId());
+    if (old != null && version(old) > version(date)) {
+      return;
+    }
+    dates.put(date.getId(), date);
+    // add before removing, so a date that moves is never missing from a
+    // concurrent read (at worst it is seen at both times)
+    if (date.getLocalDateTime() != null) {
+      timeline.put(Slot.of(date), date);
+    }
+    if (old != null && old.getLocalDateTime() != null && !old.getLocalDateTime().equals(date.getLocalDateTime())) {
+      timeline.remove(Slot.of(old));
+    }
+  }
+
+  private synchronized void remove(long id) {
+    UCSBDate old = dates.remove(id);
+    if (old != null && old.getLocalDateTime() != null) {
+      timeline.remove(Slot.of(old));
+    }
+  }
+
+  private static long version(UCSBDate date) {
+    return date.getVersion() == null ? 0 : date.getVersion();
+  }
+
+  /** The first limit dates at or after from, in time order. */
+  public List<UCSBDate> upcoming(LocalDateTime from, int limit) {
+    if (!loaded) {
+      return ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(from,
+          PageRequest.of(0, limit));
+    }
+    return copies(timeline.tailMap(Slot.start(from)).values(), limit);
+  }
+
+  /** The first limit dates at or after from and before to, in time order. */
+  public List<UCSBDate> range(LocalDateTime from, LocalDateTime to, int limit) {
+    if (!loaded) {
+      return ucsbDateRepository.findByLocalDateTimeRange(from, to, PageRequest.of(0, limit));
+    }
+    return copies(timeline.subMap(Slot.start(from), Slot.start(to)).values(), limit);
+  }
+
+  private static List<UCSBDate> copies(Collection<UCSBDate> dates, int limit) {
+    return dates.stream().limit(limit).map(UCSBDateTimelineService::copy).collect(Collectors.toList());
+  }
+
+  private static UCSBDate copy(UCSBDate date) {
+    return UCSBDate.builder()
+        .id(date.getId())
+        .quarterYYYYQ(date.getQuarterYYYYQ())
+        .name(date.getName())
+        .localDateTime(date.getLocalDateTime())
+        .version(date.getVersion())
+        .lastModified(date.getLastModified())
+        .build();
+  }
+}
@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Makes sure the users table has its unique indexes on email and
+ * google_sub, which UserRepository.insertIfAbsent relies on: without them
+ * ON CONFLICT DO NOTHING has nothing to conflict with.
+ *
+ * Racing first logins used to leave duplicate rows, and with duplicates in
+ * the table the CREATE UNIQUE INDEX that ddl-auto=update issues for the
+ * User entity fails (it is only logged).  db/migration/V7 would clean them
+ * up, but nothing runs the migrations, so this does the same every time
+ * the application starts: it keeps the oldest row for each email and each
+ * Google account (an admin if any of the copies was one), then creates
+ * the indexes if they are missing.  Like IdSequenceService it runs while
+ * the context is created, after Hibernate has updated the schema and
+ * before the web server takes requests.
+ */
+
+@Slf4j
+@Service("userIndexes")
+public class UserIndexService {
+
+  private static final String[] UNIQUE_COLUMNS = { "email", "google_sub" };
+
+  // not used, but injecting it means Hibernate has updated the schema first
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  DataSource dataSource;
+
+  @PostConstruct
+  public void ensureUnique() {
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    for (String column : UNIQUE_COLUMNS) {
+      jdbc.update(("UPDATE users SET admin = TRUE WHERE admin = FALSE"
+          + " AND EXISTS (SELECT 1 FROM users b WHERE b.%1$s = users.%1$s AND b.admin = TRUE)").formatted(column));
+      int removed = jdbc.update(("DELETE FROM users WHERE %1$s IS NOT NULL"
+          + " AND id > (SELECT MIN(b.id) FROM users b WHERE b.%1$s = users.%1$s)").formatted(column));
+      if (removed > 0) {
+        log.warn("removed {} users rows with the same {} as an older row", removed, column);
+      }
+      if (!hasUniqueIndex(jdbc, column)) {
+        jdbc.execute("CREATE UNIQUE INDEX users_%1$s_idx ON users (%1$s)".formatted(column));
+        log.warn("created the missing unique index on users.{}", column);
+      }
+    }
+  }
+
+  /** Whether some unique index (or constraint, which has one) covers just this column. */
+  private boolean hasUniqueIndex(JdbcTemplate jdbc, String column) {
+    return jdbc.execute((ConnectionCallback<Boolean>) connection -> {
+      DatabaseMetaData metaData = connection.getMetaData();
+      boolean upper = metaData.storesUpperCaseIdentifiers();
+      Map<String, List<String>> columnsByIndex = new HashMap<>();
+      try (ResultSet indexes = metaData.getIndexInfo(null, null, upper ? "USERS" : "users", true, false)) {
+        while (indexes.next()) {
+          if (indexes.getString("COLUMN_NAME") != null) {
+            columnsByIndex.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new ArrayList<>())
+                .add(indexes.getString("COLUMN_NAME"));
+          }
+        }
+      }
+      return columnsByIndex.values().contains(List.of(upper ? column.toUpperCase(Locale.ROOT) : column));
+    });
+  }
+}
@@ -0,0 +1,19 @@
+-- Ids for these tables now come from pooled sequences (allocationSize = 50)
+-- instead of identity columns.  Start each sequence past the rows that
+-- already exist so new ids cannot collide with them.
+-- IdSequenceService does the same every time the application starts, so
+-- the ids are safe even on a database this was never run on.
+CREATE SEQUENCE IF NOT EXISTS games_seq INCREMENT BY 50;
+SELECT setval('games_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM games));
+CREATE SEQUENCE IF NOT EXISTS movies_seq INCREMENT BY 50;
+SELECT setval('movies_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM movies));
+CREATE SEQUENCE IF NOT EXISTS songs_seq INCREMENT BY 50;
+SELECT setval('songs_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM songs));
+CREATE SEQUENCE IF NOT EXISTS hotels_seq INCREMENT BY 50;
+SELECT setval('hotels_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM hotels));
+CREATE SEQUENCE IF NOT EXISTS restaurants_seq INCREMENT BY 50;
+SELECT setval('restaurants_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM restaurants));
+CREATE SEQUENCE IF NOT EXISTS groceries_seq INCREMENT BY 50;
+SELECT setval('groceries_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM groceries));
+CREATE SEQUENCE IF NOT EXISTS ucsbdates_seq INCREMENT BY 50;
+SELECT setval('ucsbdates_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM ucsbdates));
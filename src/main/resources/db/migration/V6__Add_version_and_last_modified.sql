@@ -0,0 +1,26 @@
+-- Optimistic-locking version and last-modified time, used for ETag /
+-- Last-Modified on GET.  Existing rows start at version 0, modified now.
+ALTER TABLE games ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE games ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE games SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE movies ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE movies ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE movies SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE songs ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE songs ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE songs SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE hotels ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE hotels ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE hotels SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE restaurants SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE groceries ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE groceries ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE groceries SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE ucsbdates ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsbdates ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE ucsbdates SET last_modified = now() WHERE last_modified IS NULL;
+ALTER TABLE ucsbdiningcommons ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsbdiningcommons ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+UPDATE ucsbdiningcommons SET last_modified = now() WHERE last_modified IS NULL;
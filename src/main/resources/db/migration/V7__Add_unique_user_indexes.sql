@@ -0,0 +1,11 @@
+-- One row per email and per Google account.  Logins look users up by
+-- email, and first logins insert with ON CONFLICT DO NOTHING, which needs
+-- these indexes.  Racing first logins may already have left duplicates;
+-- keep the oldest row of each.
+-- Nothing in the application runs this file: UserIndexService does the
+-- same (and keeps the admin flag of a removed copy) every time the
+-- application starts.  It is kept for databases managed by hand.
+DELETE FROM users a USING users b WHERE a.email = b.email AND a.id > b.id;
+DELETE FROM users a USING users b WHERE a.google_sub = b.google_sub AND a.id > b.id;
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_idx ON users (email);
+CREATE UNIQUE INDEX IF NOT EXISTS users_google_sub_idx ON users (google_sub);
@@ -0,0 +1,4 @@
+-- Calendar queries on ucsbdates: by time range / upcoming (ordered by
+-- time, then id) and by quarter (ordered by time).
+CREATE INDEX IF NOT EXISTS ucsbdates_local_date_time_id_idx ON ucsbdates (local_date_time, id);
+CREATE INDEX IF NOT EXISTS ucsbdates_quarter_local_date_time_idx ON ucsbdates (quarter_yyyyq, local_date_time);
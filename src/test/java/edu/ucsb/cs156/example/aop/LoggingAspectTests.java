@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+public class LoggingAspectTests {
+
+  @Test
+  public void sampled_handlers_may_be_named_by_controller_or_method() {
+    LoggingAspect aspect = new LoggingAspect();
+
+    aspect.setSampled(List.of("GamesController:10", " UsersController.users : 2 ", ""));
+  }
+
+  @Test
+  public void malformed_sampled_entries_are_rejected() {
+    LoggingAspect aspect = new LoggingAspect();
+
+    for (String entry : List.of("GamesController:ten", "GamesController", ":5", "GamesController:0")) {
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+          () -> aspect.setSampled(List.of(entry)));
+      assertEquals("app.requestLogging.sampled: expected handler:N, with N a whole number of at least 1, but got '%s'"
+          .formatted(entry), e.getMessage());
+    }
+  }
+
+  @Test
+  public void the_application_does_not_start_with_a_malformed_sampled_entry() {
+    ApplicationContextRunner runner = new ApplicationContextRunner().withBean(LoggingAspect.class);
+
+    runner.withPropertyValues("app.requestLogging.sampled=GamesController:10")
+        .run(context -> assertThat(context).hasNotFailed());
+    runner.withPropertyValues("app.requestLogging.sampled=GamesController:ten")
+        .run(context -> assertThat(context).getFailure().hasRootCauseInstanceOf(IllegalArgumentException.class));
+  }
+}
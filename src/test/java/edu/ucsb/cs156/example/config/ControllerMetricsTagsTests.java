@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+
+import edu.ucsb.cs156.example.controllers.CSRFController;
+import edu.ucsb.cs156.example.controllers.GamesController;
+import edu.ucsb.cs156.example.controllers.UsersController;
+import io.micrometer.core.instrument.Tags;
+
+public class ControllerMetricsTagsTests {
+
+  ControllerMetricsTags contributor = new ControllerMetricsTags();
+
+  @Test
+  public void controller_handlers_are_tagged_by_entity_and_operation() throws Exception {
+    HandlerMethod handler = new HandlerMethod(new GamesController(),
+        GamesController.class.getMethod("allGames", WebRequest.class));
+
+    assertEquals(Tags.of("entity", "games", "operation", "allGames"), contributor.tagsFor(handler));
+    // and worked out once per method
+    assertSame(contributor.tagsFor(handler), contributor.tagsFor(handler));
+  }
+
+  @Test
+  public void entity_is_the_last_segment_of_the_base_path() {
+    assertEquals("games", ControllerMetricsTags.entity(GamesController.class));
+    assertEquals("users", ControllerMetricsTags.entity(UsersController.class));
+  }
+
+  @Test
+  public void entity_falls_back_to_the_controller_name() {
+    assertEquals("csrf", ControllerMetricsTags.entity(CSRFController.class));
+  }
+
+  @Test
+  public void other_handlers_are_tagged_none() throws Exception {
+    HandlerMethod handler = new HandlerMethod(this, getClass().getMethod("other_handlers_are_tagged_none"));
+
+    assertEquals(ControllerMetricsTags.NONE, contributor.tagsFor(handler));
+    assertEquals(ControllerMetricsTags.NONE, contributor.tagsFor("static resource handler"));
+    assertEquals(ControllerMetricsTags.NONE, contributor.getLongRequestTags(null, null));
+  }
+}
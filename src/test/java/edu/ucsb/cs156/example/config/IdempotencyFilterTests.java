@@ -0,0 +1,162 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.GamesController;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Retrying POSTs with an Idempotency-Key, against GamesController.  The
+ * filter (and its store) outlives each test, so every test uses its own
+ * keys.
+ */
+@WebMvcTest(controllers = GamesController.class)
+@Import(TestConfig.class)
+public class IdempotencyFilterTests extends ControllerTestCase {
+
+  @MockBean
+  GameRepository gameRepository;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  ExportService exportService;
+
+  private static MockHttpServletRequestBuilder postZelda(String key) {
+    MockHttpServletRequestBuilder request = post("/api/games/post")
+        .param("name", "Zelda")
+        .param("description", "an open world")
+        .param("genre", "Adventure")
+        .with(csrf());
+    return key == null ? request : request.header(IdempotencyFilter.HEADER, key);
+  }
+
+  private void saveReturnsId(long id) {
+    doAnswer(invocation -> {
+      Game game = invocation.getArgument(0);
+      game.setId(id);
+      return game;
+    }).when(gameRepository).save(any());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void a_retry_gets_the_first_response_without_saving_again() throws Exception {
+    saveReturnsId(7L);
+
+    MvcResult first = mockMvc.perform(postZelda("retry-1"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED))
+        .andReturn();
+    saveReturnsId(8L);
+    MvcResult retry = mockMvc.perform(postZelda("retry-1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(IdempotencyFilter.REPLAYED, "true"))
+        .andExpect(header().string("Content-Type", "application/json"))
+        .andReturn();
+
+    verify(gameRepository, times(1)).save(any());
+    assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void posts_without_a_key_run_every_time() throws Exception {
+    saveReturnsId(7L);
+
+    mockMvc.perform(postZelda(null)).andExpect(status().isOk());
+    mockMvc.perform(postZelda(null)).andExpect(status().isOk());
+
+    verify(gameRepository, times(2)).save(any());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void a_key_cannot_be_reused_for_a_different_request() throws Exception {
+    saveReturnsId(7L);
+    mockMvc.perform(postZelda("reused-1")).andExpect(status().isOk());
+
+    MvcResult response = mockMvc.perform(post("/api/games/post")
+        .param("name", "Portal")
+        .param("description", "puzzles")
+        .param("genre", "Puzzle")
+        .header(IdempotencyFilter.HEADER, "reused-1")
+        .with(csrf()))
+        .andExpect(status().isUnprocessableEntity())
+        .andReturn();
+
+    verify(gameRepository, times(1)).save(any());
+    assertEquals("IdempotencyKeyReused", responseToJson(response).get("type"));
+  }
+
+  @Test
+  public void keys_belong_to_one_user() throws Exception {
+    saveReturnsId(7L);
+
+    mockMvc.perform(postZelda("shared-1").with(user("alice").roles("ADMIN", "USER")))
+        .andExpect(status().isOk());
+    mockMvc.perform(postZelda("shared-1").with(user("bob").roles("ADMIN", "USER")))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED));
+
+    verify(gameRepository, times(2)).save(any());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void a_request_that_fails_runs_again_when_retried() throws Exception {
+    when(gameRepository.save(any())).thenThrow(new IllegalStateException("database is down"));
+    assertThrows(Exception.class, () -> mockMvc.perform(postZelda("failed-1")));
+
+    saveReturnsId(7L);
+    mockMvc.perform(postZelda("failed-1"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED));
+
+    verify(gameRepository, times(2)).save(any());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void forbidden_requests_do_not_claim_the_key() throws Exception {
+    saveReturnsId(7L);
+
+    mockMvc.perform(postZelda("forbidden-1")).andExpect(status().isForbidden());
+    mockMvc.perform(postZelda("forbidden-1").with(user("user").roles("ADMIN", "USER")))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void blank_keys_are_rejected() throws Exception {
+    mockMvc.perform(postZelda(" ")).andExpect(status().isBadRequest());
+
+    verify(gameRepository, times(0)).save(any());
+  }
+}
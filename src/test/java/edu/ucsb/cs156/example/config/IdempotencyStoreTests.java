@@ -0,0 +1,125 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class IdempotencyStoreTests {
+  private static final IdempotencyStore.StoredResponse CREATED =
+      new IdempotencyStore.StoredResponse(200, "application/json", null, "{\"id\":1}".getBytes());
+
+  private final AtomicLong now = new AtomicLong();
+  private final IdempotencyStore store = new IdempotencyStore(
+      2 * (IdempotencyStore.ENTRY_OVERHEAD + 64), 64, Duration.ofMinutes(10), now::get);
+
+  @Test
+  public void the_first_request_claims_the_key_and_later_ones_get_its_response() throws Exception {
+    IdempotencyStore.Claim first = store.claim("k", "POST /api/games/post");
+    assertTrue(first.mine());
+
+    IdempotencyStore.Claim second = store.claim("k", "POST /api/games/post");
+    assertFalse(second.mine());
+    assertSame(first.entry(), second.entry());
+
+    store.complete("k", first.entry(), CREATED);
+    assertSame(CREATED, IdempotencyStore.await(second.entry(), Duration.ofSeconds(1)));
+  }
+
+  @Test
+  public void waiting_requests_wake_up_when_the_first_one_finishes() throws Exception {
+    IdempotencyStore.Claim first = store.claim("k", "f");
+    CompletableFuture<IdempotencyStore.StoredResponse> waiter = CompletableFuture.supplyAsync(() -> {
+      try {
+        return IdempotencyStore.await(store.claim("k", "f").entry(), Duration.ofSeconds(10));
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    store.complete("k", first.entry(), CREATED);
+    assertSame(CREATED, waiter.get());
+  }
+
+  @Test
+  public void waiting_gives_up_after_the_timeout() {
+    IdempotencyStore.Claim first = store.claim("k", "f");
+
+    assertThrows(TimeoutException.class, () -> IdempotencyStore.await(first.entry(), Duration.ofMillis(10)));
+  }
+
+  @Test
+  public void an_abandoned_key_can_be_claimed_again() throws Exception {
+    IdempotencyStore.Claim first = store.claim("k", "f");
+    IdempotencyStore.Claim waiting = store.claim("k", "f");
+
+    store.abandon("k", first.entry());
+
+    assertNull(IdempotencyStore.await(waiting.entry(), Duration.ofSeconds(1)));
+    assertTrue(store.claim("k", "f").mine());
+  }
+
+  @Test
+  public void keys_expire_after_the_ttl() {
+    store.complete("k", store.claim("k", "f").entry(), CREATED);
+
+    now.addAndGet(Duration.ofMinutes(9).toNanos());
+    assertFalse(store.claim("k", "f").mine());
+
+    now.addAndGet(Duration.ofMinutes(2).toNanos());
+    assertTrue(store.claim("k", "f").mine());
+  }
+
+  @Test
+  public void finished_responses_take_at_most_max_bytes() {
+    for (String key : new String[] { "a", "b", "c", "d" }) {
+      store.complete(key, store.claim(key, "f").entry(), CREATED);
+    }
+
+    assertEquals(2, store.size());
+    assertTrue(store.weight() <= 2 * (IdempotencyStore.ENTRY_OVERHEAD + 64));
+  }
+
+  @Test
+  public void running_requests_are_never_evicted() {
+    IdempotencyStore.Claim running = store.claim("running", "f");
+    for (String key : new String[] { "a", "b", "c", "d" }) {
+      store.complete(key, store.claim(key, "f").entry(), CREATED);
+    }
+
+    IdempotencyStore.Claim retry = store.claim("running", "f");
+    assertFalse(retry.mine());
+    assertSame(running.entry(), retry.entry());
+  }
+
+  @Test
+  public void a_response_that_finished_before_the_retry_is_replayed() throws Exception {
+    store.complete("k", store.claim("k", "f").entry(), CREATED);
+
+    IdempotencyStore.Claim retry = store.claim("k", "f");
+    assertFalse(retry.mine());
+    assertSame(CREATED, IdempotencyStore.await(retry.entry(), Duration.ZERO));
+  }
+
+  @Test
+  public void long_bodies_are_not_kept_but_the_key_is() throws Exception {
+    IdempotencyStore.StoredResponse large = new IdempotencyStore.StoredResponse(200, "application/json",
+        "\"1\"", new byte[65]);
+    store.complete("k", store.claim("k", "f").entry(), large);
+
+    IdempotencyStore.StoredResponse replayed = IdempotencyStore.await(store.claim("k", "f").entry(), Duration.ZERO);
+    assertEquals(200, replayed.status());
+    assertEquals("\"1\"", replayed.eTag());
+    assertEquals(0, replayed.body().length);
+    assertTrue(replayed.bodyOmitted());
+  }
+}
@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.endpoint.EndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.mappings.MappingsEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.JvmMetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementContextAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.servlet.ServletManagementContextAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.UsersController;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * Scraping /actuator/prometheus with the metrics user's HTTP Basic
+ * credentials.  The actuator isn't part of a @WebMvcTest, so the
+ * auto-configuration behind the endpoint is brought in here.
+ */
+@WebMvcTest(controllers = UsersController.class, properties = {
+    "app.metrics.username=prometheus",
+    "app.metrics.password=scrape-secret",
+    "management.endpoints.web.exposure.include=mappings,prometheus"
+})
+@ImportAutoConfiguration({ EndpointAutoConfiguration.class, WebEndpointAutoConfiguration.class,
+    ManagementContextAutoConfiguration.class, ServletManagementContextAutoConfiguration.class,
+    MetricsAutoConfiguration.class, JvmMetricsAutoConfiguration.class,
+    PrometheusMetricsExportAutoConfiguration.class, MappingsEndpointAutoConfiguration.class })
+@AutoConfigureMetrics
+public class MetricsSecurityConfigTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Test
+  public void the_metrics_user_can_scrape_without_a_session() throws Exception {
+    MvcResult response = mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "scrape-secret")))
+        .andExpect(status().isOk())
+        .andReturn();
+
+    assertTrue(response.getResponse().getContentAsString().contains("jvm_memory_used_bytes"));
+    assertNull(response.getRequest().getSession(false));
+  }
+
+  @Test
+  public void scrapes_without_the_right_password_are_turned_away() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    mockMvc.perform(get("/actuator/prometheus").with(httpBasic("prometheus", "guess")))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  public void admins_may_still_look_at_the_metrics() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus").with(user("admin").roles("ADMIN", "USER")))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/prometheus").with(user("someone").roles("USER")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  public void the_metrics_user_can_do_nothing_else() throws Exception {
+    mockMvc.perform(get("/actuator/mappings").with(httpBasic("prometheus", "scrape-secret")))
+        .andExpect(status().isForbidden());
+    mockMvc.perform(get("/api/admin/users").with(httpBasic("prometheus", "scrape-secret")))
+        .andExpect(status().isForbidden());
+  }
+}
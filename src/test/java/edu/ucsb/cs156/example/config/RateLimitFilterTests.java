@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.UsersController;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Throttling /api/admin/users, with a burst of 2 and then one request
+ * every 100 seconds.  The filter (and its buckets) outlives each test, so
+ * every test uses its own users.
+ */
+@WebMvcTest(controllers = UsersController.class, properties = {
+    "app.rateLimit.admin.capacity=2",
+    "app.rateLimit.admin.perSecond=0.01" })
+@Import(TestConfig.class)
+public class RateLimitFilterTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  private static RequestPostProcessor admin(String name) {
+    return user(name).roles("ADMIN", "USER");
+  }
+
+  @Test
+  public void requests_over_the_limit_get_429_with_retry_after() throws Exception {
+    mockMvc.perform(get("/api/admin/users").with(admin("alice"))).andExpect(status().isOk());
+    mockMvc.perform(get("/api/admin/users").with(admin("alice"))).andExpect(status().isOk());
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users").with(admin("alice")))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "100"))
+        .andReturn();
+
+    assertEquals("TooManyRequests", responseToJson(response).get("type"));
+  }
+
+  @Test
+  public void each_user_has_their_own_limit() throws Exception {
+    mockMvc.perform(get("/api/admin/users").with(admin("bob"))).andExpect(status().isOk());
+    mockMvc.perform(get("/api/admin/users").with(admin("bob"))).andExpect(status().isOk());
+    mockMvc.perform(get("/api/admin/users").with(admin("bob"))).andExpect(status().isTooManyRequests());
+
+    mockMvc.perform(get("/api/admin/users").with(admin("carol"))).andExpect(status().isOk());
+  }
+
+  @Test
+  public void logged_out_requests_are_not_limited() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      mockMvc.perform(get("/api/admin/users")).andExpect(status().isForbidden());
+    }
+  }
+
+  @Test
+  public void endpoints_are_grouped_by_path_and_method() {
+    assertEquals(List.of(RateLimitFilter.READS, RateLimitFilter.WRITES, RateLimitFilter.WRITES,
+        RateLimitFilter.ADMIN, RateLimitFilter.ADMIN),
+        List.of(
+            RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/games/all")),
+            RateLimitFilter.groupOf(new MockHttpServletRequest("POST", "/api/games/post")),
+            RateLimitFilter.groupOf(new MockHttpServletRequest("DELETE", "/api/games")),
+            RateLimitFilter.groupOf(new MockHttpServletRequest("GET", "/api/admin/users")),
+            RateLimitFilter.groupOf(new MockHttpServletRequest("DELETE", "/api/admin/cache"))));
+  }
+}
@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class RateLimiterTests {
+  private final AtomicLong now = new AtomicLong(1_000_000_000L);
+  private final RateLimiter limiter = new RateLimiter(Map.of(
+      "reads", new RateLimiter.Limit(3, 1),
+      "writes", new RateLimiter.Limit(1, 0.5)), now::get);
+
+  private void advance(Duration duration) {
+    now.addAndGet(duration.toNanos());
+  }
+
+  @Test
+  public void a_burst_of_capacity_requests_goes_through() {
+    assertEquals(0, limiter.acquire("reads", "alice"));
+    assertEquals(0, limiter.acquire("reads", "alice"));
+    assertEquals(0, limiter.acquire("reads", "alice"));
+
+    assertEquals(Duration.ofSeconds(1).toNanos(), limiter.acquire("reads", "alice"));
+  }
+
+  @Test
+  public void tokens_come_back_at_the_rate() {
+    for (int i = 0; i < 3; i++) {
+      limiter.acquire("reads", "alice");
+    }
+
+    advance(Duration.ofMillis(400));
+    assertEquals(Duration.ofMillis(600).toNanos(), limiter.acquire("reads", "alice"));
+
+    advance(Duration.ofMillis(600));
+    assertEquals(0, limiter.acquire("reads", "alice"));
+    assertTrue(limiter.acquire("reads", "alice") > 0);
+  }
+
+  @Test
+  public void a_bucket_never_holds_more_than_capacity() {
+    advance(Duration.ofHours(1));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.acquire("reads", "alice"));
+    }
+
+    assertTrue(limiter.acquire("reads", "alice") > 0);
+  }
+
+  @Test
+  public void users_and_groups_have_their_own_buckets() {
+    for (int i = 0; i < 3; i++) {
+      limiter.acquire("reads", "alice");
+    }
+
+    assertEquals(0, limiter.acquire("reads", "bob"));
+    assertEquals(0, limiter.acquire("writes", "alice"));
+    assertEquals(Duration.ofSeconds(2).toNanos(), limiter.acquire("writes", "alice"));
+  }
+
+  @Test
+  public void idle_buckets_are_dropped_once_they_would_be_full() {
+    limiter.acquire("reads", "alice");
+    limiter.acquire("writes", "bob");
+    assertEquals(2, limiter.size());
+
+    // reads take longest to refill: 3 tokens at 1 a second
+    advance(Duration.ofMillis(2999));
+    assertEquals(2, limiter.size());
+
+    advance(Duration.ofMillis(2));
+
+    assertEquals(0, limiter.size());
+  }
+
+  @Test
+  public void concurrent_requests_never_take_more_than_capacity() throws Exception {
+    RateLimiter slow = new RateLimiter(Map.of("reads", new RateLimiter.Limit(1000, 0.001)));
+    AtomicInteger allowed = new AtomicInteger();
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < 4; t++) {
+      threads.submit(() -> {
+        start.await();
+        for (int i = 0; i < 1000; i++) {
+          if (slow.acquire("reads", "alice") == 0) {
+            allowed.incrementAndGet();
+          }
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    threads.shutdown();
+    assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(1000, allowed.get());
+  }
+
+  @Test
+  public void limits_must_be_positive() {
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Limit(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Limit(1, 0));
+  }
+}
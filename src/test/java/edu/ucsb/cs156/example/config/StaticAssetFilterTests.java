@@ -0,0 +1,85 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.FrontendController;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * Serving the hashed part of the frontend build, with the fixtures in
+ * src/test/resources/public standing in for it.
+ */
+@WebMvcTest(controllers = FrontendController.class)
+public class StaticAssetFilterTests extends ControllerTestCase {
+  private static final String BUNDLE = "/static/js/main.5e1f2a3b.js";
+
+  @MockBean
+  UserRepository userRepository;
+
+  private static byte[] fixture(String path) throws Exception {
+    return StreamUtils.copyToByteArray(new ClassPathResource("public" + path).getInputStream());
+  }
+
+  @Test
+  public void hashed_assets_are_served_brotli_compressed_and_immutable() throws Exception {
+    MvcResult result = mockMvc.perform(get(BUNDLE).header("Accept-Encoding", "gzip, deflate, br"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "br"))
+        .andExpect(header().string("Content-Type", "application/javascript"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+        .andReturn();
+
+    assertArrayEquals(fixture(BUNDLE + ".br"), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void hashed_assets_fall_back_to_gzip() throws Exception {
+    MvcResult result = mockMvc.perform(get(BUNDLE).header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andReturn();
+
+    assertArrayEquals(fixture(BUNDLE + ".gz"), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void hashed_assets_are_sent_as_is_without_accept_encoding() throws Exception {
+    MvcResult result = mockMvc.perform(get(BUNDLE))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+        .andReturn();
+
+    assertArrayEquals(fixture(BUNDLE), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void hashed_assets_skip_the_security_filters() throws Exception {
+    mockMvc.perform(get(BUNDLE))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Set-Cookie"))
+        .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+        .andExpect(request().sessionAttributeDoesNotExist("SPRING_SECURITY_CONTEXT"));
+  }
+
+  @Test
+  public void missing_assets_are_404() throws Exception {
+    mockMvc.perform(get("/static/js/main.00000000.js"))
+        .andExpect(status().isNotFound());
+    mockMvc.perform(get("/static/../application.properties"))
+        .andExpect(status().isNotFound());
+  }
+}
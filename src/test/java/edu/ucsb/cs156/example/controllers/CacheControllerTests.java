@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CacheRegionStats;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CacheStatisticsService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+
+@WebMvcTest(controllers = CacheController.class)
+@Import(TestConfig.class)
+public class CacheControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  CacheStatisticsService cacheStatisticsService;
+
+  @Test
+  public void stats__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void stats__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void stats__admin_logged_in() throws Exception {
+
+    // arrange
+
+    CacheStats stats = CacheStats.builder()
+        .secondLevelCacheHits(3)
+        .secondLevelCacheMisses(1)
+        .secondLevelCachePuts(1)
+        .queryCacheHits(2)
+        .regions(List.of(CacheRegionStats.builder()
+            .region("games")
+            .hits(3)
+            .misses(1)
+            .puts(1)
+            .evictions(0L)
+            .hitRatio(0.75)
+            .build()))
+        .build();
+
+    when(cacheStatisticsService.getStatistics()).thenReturn(stats);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/cache/stats"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(cacheStatisticsService, times(1)).getStatistics();
+    assertEquals(mapper.writeValueAsString(stats), response.getResponse().getContentAsString());
+  }
+}
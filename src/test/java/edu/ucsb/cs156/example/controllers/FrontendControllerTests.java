@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@WebMvcTest(controllers = FrontendController.class)
+public class FrontendControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  private static byte[] fixture(String path) throws Exception {
+    return StreamUtils.copyToByteArray(new ClassPathResource("public" + path).getInputStream());
+  }
+
+  @Test
+  public void client_side_routes_get_the_shell() throws Exception {
+    MvcResult result = mockMvc.perform(get("/games/list"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "text/html"))
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(header().exists("ETag"))
+        .andReturn();
+
+    assertArrayEquals(fixture("/index.html"), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void the_shell_is_sent_precompressed_when_the_client_accepts_it() throws Exception {
+    // the fixtures have index.html.gz but no .br
+    MvcResult result = mockMvc.perform(get("/").header("Accept-Encoding", "gzip, deflate, br"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andReturn();
+
+    assertArrayEquals(fixture("/index.html.gz"), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void a_reload_with_the_current_etag_is_304() throws Exception {
+    String eTag = mockMvc.perform(get("/games/list").header("Accept-Encoding", "gzip"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/movies/list").header("Accept-Encoding", "gzip").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", eTag));
+
+    // the uncompressed shell is a different representation, with its own ETag
+    mockMvc.perform(get("/movies/list").header("If-None-Match", eTag))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void index_html_itself_is_precompressed_but_revalidated() throws Exception {
+    MvcResult result = mockMvc.perform(get("/index.html").header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andReturn();
+
+    assertArrayEquals(fixture("/index.html.gz"), result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void accept_encoding_is_parsed_with_q_values() {
+    assertTrue(FrontendController.accepts("gzip, deflate, br", "br"));
+    assertTrue(FrontendController.accepts("br;q=0.5, gzip", "br"));
+    assertTrue(FrontendController.accepts("GZIP", "gzip"));
+    assertFalse(FrontendController.accepts("gzip, br;q=0", "br"));
+    assertFalse(FrontendController.accepts("gzip;q=0.0", "gzip"));
+    assertFalse(FrontendController.accepts("deflate", "gzip"));
+  }
+}
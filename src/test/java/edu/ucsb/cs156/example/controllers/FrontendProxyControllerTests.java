@@ -0,0 +1,176 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * The dev proxy against a stand-in for the React dev server.
+ */
+@ActiveProfiles("development")
+@WebMvcTest(controllers = FrontendProxyController.class)
+public class FrontendProxyControllerTests extends ControllerTestCase {
+
+  private static final byte[] PNG = new byte[256 * 1024];
+  static {
+    for (int i = 0; i < PNG.length; i++) {
+      PNG[i] = (byte) i;
+    }
+  }
+
+  private static final HttpServer devServer = start();
+  // the client port of each request the dev server got, and its headers
+  private static final List<Integer> clientPorts = new ArrayList<>();
+  private static final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+
+  private static HttpServer start() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", FrontendProxyControllerTests::serve);
+      server.start();
+      return server;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void serve(HttpExchange exchange) throws IOException {
+    synchronized (clientPorts) {
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+    }
+    lastHeaders.clear();
+    exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name.toLowerCase(), values.get(0)));
+    lastHeaders.put("uri", exchange.getRequestURI().toString());
+
+    switch (exchange.getRequestURI().getPath()) {
+      case "/logo.png" -> {
+        exchange.getResponseHeaders().add("Content-Type", "image/png");
+        exchange.sendResponseHeaders(200, PNG.length);
+        exchange.getResponseBody().write(PNG);
+      }
+      case "/static/js/bundle.js" -> {
+        exchange.getResponseHeaders().add("Content-Type", "application/javascript; charset=utf-8");
+        exchange.getResponseHeaders().add("ETag", "W/\"abc\"");
+        exchange.sendResponseHeaders(200, 0);
+        exchange.getResponseBody().write("console.log('hi');".getBytes());
+      }
+      default -> exchange.sendResponseHeaders(404, -1);
+    }
+    exchange.close();
+  }
+
+  @DynamicPropertySource
+  static void devServerUrl(DynamicPropertyRegistry registry) {
+    registry.add("app.frontend.devServerUrl", () -> "http://localhost:" + devServer.getAddress().getPort());
+  }
+
+  @AfterAll
+  static void stop() {
+    devServer.stop(0);
+  }
+
+  @MockBean
+  UserRepository userRepository;
+
+  @BeforeEach
+  public void reset() {
+    synchronized (clientPorts) {
+      clientPorts.clear();
+    }
+  }
+
+  @Test
+  public void binary_assets_are_passed_through_byte_for_byte() throws Exception {
+    MvcResult result = mockMvc.perform(get("/logo.png"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "image/png"))
+        .andExpect(header().longValue("Content-Length", PNG.length))
+        .andReturn();
+
+    assertArrayEquals(PNG, result.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void streamed_responses_keep_the_dev_server_headers() throws Exception {
+    MvcResult result = mockMvc.perform(get("/static/js/bundle.js"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/javascript; charset=utf-8"))
+        .andExpect(header().string("ETag", "W/\"abc\""))
+        .andReturn();
+
+    assertEquals("console.log('hi');", result.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void the_query_and_request_headers_are_forwarded_but_not_cookies() throws Exception {
+    mockMvc.perform(get("/static/js/bundle.js?v=2")
+        .header("If-None-Match", "W/\"abc\"")
+        .cookie(new Cookie("JSESSIONID", "secret")))
+        .andExpect(status().isOk());
+
+    assertEquals("/static/js/bundle.js?v=2", lastHeaders.get("uri"));
+    assertEquals("W/\"abc\"", lastHeaders.get("if-none-match"));
+    assertNull(lastHeaders.get("cookie"));
+  }
+
+  @Test
+  public void dev_server_errors_are_passed_through() throws Exception {
+    mockMvc.perform(get("/missing.js"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void connections_to_the_dev_server_are_reused() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      mockMvc.perform(get("/logo.png")).andExpect(status().isOk());
+    }
+
+    synchronized (clientPorts) {
+      assertEquals(5, clientPorts.size());
+      assertTrue(clientPorts.stream().distinct().count() == 1, "one keep-alive connection: " + clientPorts);
+    }
+  }
+
+  @Test
+  public void without_a_dev_server_it_explains_how_to_start_one() throws Exception {
+    FrontendProxyController controller = new FrontendProxyController();
+    controller.devServerUrl = "http://localhost:1";
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    controller.proxy(new MockHttpServletRequest("GET", "/"), response);
+
+    assertEquals(200, response.getStatus());
+    assertTrue(response.getContentAsString().contains("npm install; npm start"));
+  }
+}
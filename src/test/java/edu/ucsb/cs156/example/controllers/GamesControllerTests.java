@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Game;
 import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,19 +22,28 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.util.NestedServletException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = GamesController.class)
 @Import(TestConfig.class)
@@ -40,6 +55,9 @@ public class GamesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -51,6 +69,7 @@ public class GamesControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(gameRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/games/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -148,6 +167,8 @@ public class GamesControllerTests extends ControllerTestCase {
                 expectedGames.addAll(Arrays.asList(game1, game2));
 
                 when(gameRepository.findAll()).thenReturn(expectedGames);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(gameRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/games/all"))
@@ -192,13 +213,7 @@ public class GamesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                Game game1 = Game.builder()
-                                .name("the Legend of Zelda")
-                                .description("Play as link and save the princess")
-                                .genre("open world")
-                                .build();
-
-                when(gameRepository.findById(eq(15L))).thenReturn(Optional.of(game1));
+                when(gameRepository.deleteRow(15L)).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -207,8 +222,7 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(15L);
-                verify(gameRepository, times(1)).delete(any());
+                verify(gameRepository, times(1)).deleteRow(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Game with id 15 deleted", json.get("message"));
@@ -220,7 +234,7 @@ public class GamesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(gameRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(gameRepository.deleteRow(15L)).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -229,7 +243,7 @@ public class GamesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(gameRepository, times(1)).findById(15L);
+                verify(gameRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Game with id 15 not found", json.get("message"));
         }
@@ -302,4 +316,555 @@ public class GamesControllerTests extends ControllerTestCase {
                 assertEquals("Game with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/games/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/games/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+                // arrange
+
+                Game game1 = Game.builder()
+                                .id(1L)
+                                .name("Alpha")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .build();
+                Game game2 = Game.builder()
+                                .id(2L)
+                                .name("Bravo")
+                                .description("description 2")
+                                .genre("genre 2")
+                                .build();
+                Game game3 = Game.builder()
+                                .id(3L)
+                                .name("Charlie")
+                                .description("description 3")
+                                .genre("genre 3")
+                                .build();
+
+                when(gameRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(game1, game2, game3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<Game> expectedPage = KeysetPage.<Game>builder()
+                                .items(Arrays.asList(game1, game2))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                Game game5 = Game.builder()
+                                .id(5L)
+                                .name("Echo")
+                                .description("description 5")
+                                .genre("genre 5")
+                                .build();
+
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(gameRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(game5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(gameRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_page_by_name_goes_on_to_games_without_a_name() throws Exception {
+                // arrange
+                Game named = Game.builder().id(7L).name("Zelda").build();
+                Game unnamed1 = Game.builder().id(2L).build();
+                Game unnamed2 = Game.builder().id(5L).build();
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(gameRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(named)));
+                when(gameRepository.findByNameIsNullAndIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(unnamed1, unnamed2)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<Game> expectedPage = KeysetPage.<Game>builder()
+                                .items(Arrays.asList(named, unnamed1))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_cursor_on_a_game_without_a_name_pages_by_id_alone() throws Exception {
+                // arrange
+                Game unnamed = Game.builder().id(5L).build();
+                String after = KeysetCursor.of(null, 2L).encode();
+                when(gameRepository.findByNameIsNullAndIdGreaterThanOrderByIdAsc(eq(2L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(unnamed)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, never()).findByNameAfter(any(), any(Long.class), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be id or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/games/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_a_cursor_we_did_not_issue() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/games/all?limit=2&sort=name&after=not*base64"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("malformed cursor", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_illegal_argument_from_our_own_code_is_not_a_bad_request() throws Exception {
+                // arrange
+                when(gameRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenThrow(new IllegalArgumentException("bug"));
+
+                // act
+                NestedServletException e = assertThrows(NestedServletException.class,
+                                () -> mockMvc.perform(get("/api/games/all?limit=2")));
+
+                // assert
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        // Tests for streaming export: /api/games/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/games/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/games/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"games.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/games/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk create: POST /api/games/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+                mockMvc.perform(post("/api/games/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Game newGame = Game.builder()
+                                .id(0L)
+                                .name("Alpha")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .build();
+                Game savedGame = Game.builder()
+                                .id(11L)
+                                .name("Alpha")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .build();
+                Game gameWithId = Game.builder()
+                                .id(5L)
+                                .name("Bravo")
+                                .description("description 2")
+                                .genre("genre 2")
+                                .build();
+
+                when(gameRepository.saveAll(eq(Arrays.asList(newGame))))
+                                .thenReturn(Arrays.asList(savedGame));
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(newGame, gameWithId));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/games/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(1)).saveAll(eq(Arrays.asList(newGame)));
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("created").id(11L).build(),
+                                BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+                String expectedJson = mapper.writeValueAsString(expectedResults);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/games?ids=... and PUT /api/games/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/games?ids=15,16,17").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+                // arrange
+
+                when(gameRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/games?ids=15,16,17")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+                verify(gameRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Game with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id(17L).build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/games/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Game gameOrig = Game.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .build();
+                Game gameEdited = Game.builder()
+                                .id(15L)
+                                .name("Bravo")
+                                .description("description 2")
+                                .genre("genre 2")
+                                .build();
+                Game gameMissing = Game.builder()
+                                .id(16L)
+                                .name("Bravo")
+                                .description("description 2")
+                                .genre("genre 2")
+                                .build();
+
+                when(gameRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<Game> change = invocation.getArgument(1);
+                                change.accept(gameOrig);
+                                return Arrays.asList(gameOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(gameEdited, gameMissing, gameEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/games/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+                verify(gameRepository, never()).save(any());
+                assertEquals(gameEdited, gameOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Game with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/games?id=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/games?id=15")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                Game gameOrig = Game.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .description("description 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(gameRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Game> change = invocation.getArgument(1);
+                                change.accept(gameOrig);
+                                return Optional.of(gameOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/games?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"description\": \"description 2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(gameRepository, never()).save(any());
+                assertEquals("description 2", gameOrig.getDescription());
+                assertEquals("Alpha", gameOrig.getName());
+                assertEquals(mapper.writeValueAsString(gameOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                Game gameOrig = Game.builder()
+                                .id(15L)
+                                .description("description 1")
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(gameRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Game> change = invocation.getArgument(1);
+                                change.accept(gameOrig);
+                                return Optional.of(gameOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/games?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"description\": \"description 2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals("description 1", gameOrig.getDescription());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Game with id 15 has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/games?id=15")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(gameRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [name, description, genre]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(gameRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(gameRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/games/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(gameRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/games/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(gameRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                Game game = Game.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(gameRepository.findById(eq(7L))).thenReturn(Optional.of(game));
+
+                MvcResult response = mockMvc.perform(get("/api/games?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(game), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                Game game = Game.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(gameRepository.findById(eq(7L))).thenReturn(Optional.of(game));
+
+                MvcResult response = mockMvc.perform(get("/api/games?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                Game game = Game.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .description("description 1")
+                                .genre("genre 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                game.setVersion(4L);
+                when(gameRepository.findById(eq(7L))).thenReturn(Optional.of(game));
+
+                MvcResult response = mockMvc.perform(get("/api/games?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(game), response.getResponse().getContentAsString());
+        }
 }
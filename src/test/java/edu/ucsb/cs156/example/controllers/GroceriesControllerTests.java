@@ -5,6 +5,15 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Grocery;
 import edu.ucsb.cs156.example.repositories.GroceryRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.CsvImportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,21 +25,33 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.mockito.ArgumentCaptor;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.time.LocalDateTime;
+import java.time.Instant;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
+import java.util.function.Function;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = GroceriesController.class)
 @Import(TestConfig.class)
@@ -42,6 +63,12 @@ public class GroceriesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
+        @MockBean
+        CsvImportService csvImportService;
+
         // Authorization tests for /api/groceries/admin/all
 
         @Test
@@ -53,6 +80,7 @@ public class GroceriesControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(groceryRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/groceries/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -150,6 +178,8 @@ public class GroceriesControllerTests extends ControllerTestCase {
                 expectedGroceries.addAll(Arrays.asList(grocery1, grocery2));
 
                 when(groceryRepository.findAll()).thenReturn(expectedGroceries);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(groceryRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/groceries/all"))
@@ -195,14 +225,7 @@ public class GroceriesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_grocery() throws Exception {
                 // arrange
 
-
-                Grocery grocery1 = Grocery.builder()
-                                .name("Banana")
-                                .price("0.29")
-                                .expiration("05-17-23")
-                                .build();
-
-                when(groceryRepository.findById(eq(15L))).thenReturn(Optional.of(grocery1));
+                when(groceryRepository.deleteRow(15L)).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -211,8 +234,7 @@ public class GroceriesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(groceryRepository, times(1)).findById(15L);
-                verify(groceryRepository, times(1)).delete(any());
+                verify(groceryRepository, times(1)).deleteRow(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Grocery with id 15 deleted", json.get("message"));
@@ -224,7 +246,7 @@ public class GroceriesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(groceryRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(groceryRepository.deleteRow(15L)).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -233,7 +255,7 @@ public class GroceriesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(groceryRepository, times(1)).findById(15L);
+                verify(groceryRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Grocery with id 15 not found", json.get("message"));
         }
@@ -309,4 +331,538 @@ public class GroceriesControllerTests extends ControllerTestCase {
                 assertEquals("Grocery with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/groceries/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/groceries/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+                // arrange
+
+                Grocery grocery1 = Grocery.builder()
+                                .id(1L)
+                                .name("Alpha")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .build();
+                Grocery grocery2 = Grocery.builder()
+                                .id(2L)
+                                .name("Bravo")
+                                .price("price 2")
+                                .expiration("expiration 2")
+                                .build();
+                Grocery grocery3 = Grocery.builder()
+                                .id(3L)
+                                .name("Charlie")
+                                .price("price 3")
+                                .expiration("expiration 3")
+                                .build();
+
+                when(groceryRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(grocery1, grocery2, grocery3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/groceries/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<Grocery> expectedPage = KeysetPage.<Grocery>builder()
+                                .items(Arrays.asList(grocery1, grocery2))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                Grocery grocery5 = Grocery.builder()
+                                .id(5L)
+                                .name("Echo")
+                                .price("price 5")
+                                .expiration("expiration 5")
+                                .build();
+
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(groceryRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(grocery5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/groceries/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(groceryRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/groceries/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be id or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/groceries/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        // Tests for streaming export: /api/groceries/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/groceries/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/groceries/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"groceries.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/groceries/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk create: POST /api/groceries/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+                mockMvc.perform(post("/api/groceries/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Grocery newGrocery = Grocery.builder()
+                                .id(0L)
+                                .name("Alpha")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .build();
+                Grocery savedGrocery = Grocery.builder()
+                                .id(11L)
+                                .name("Alpha")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .build();
+                Grocery groceryWithId = Grocery.builder()
+                                .id(5L)
+                                .name("Bravo")
+                                .price("price 2")
+                                .expiration("expiration 2")
+                                .build();
+
+                when(groceryRepository.saveAll(eq(Arrays.asList(newGrocery))))
+                                .thenReturn(Arrays.asList(savedGrocery));
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(newGrocery, groceryWithId));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/groceries/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(groceryRepository, times(1)).saveAll(eq(Arrays.asList(newGrocery)));
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("created").id(11L).build(),
+                                BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+                String expectedJson = mapper.writeValueAsString(expectedResults);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for CSV import: POST /api/groceries/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                MockMultipartFile file = new MockMultipartFile("file", "groceries.csv", "text/csv",
+                                "name,price,expiration\n".getBytes(StandardCharsets.UTF_8));
+
+                mockMvc.perform(multipart("/api/groceries/import").file(file).with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_import_csv_and_gets_the_report() throws Exception {
+                // arrange
+
+                String content = "name,price,expiration\nAlpha,price 1,expiration 1\n";
+                MockMultipartFile file = new MockMultipartFile("file", "groceries.csv", "text/csv",
+                                content.getBytes(StandardCharsets.UTF_8));
+                ImportReport report = ImportReport.builder()
+                                .rowsRead(1)
+                                .rowsWritten(1)
+                                .elapsedMillis(5)
+                                .rowsPerSecond(200)
+                                .errors(List.of())
+                                .build();
+
+                when(csvImportService.importCsv(any(), any(), eq(groceryRepository))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(multipart("/api/groceries/import").file(file).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                ArgumentCaptor<InputStream> in = ArgumentCaptor.forClass(InputStream.class);
+                ArgumentCaptor<Function<CsvRow, Grocery>> rowMapper = (ArgumentCaptor) ArgumentCaptor.forClass(Function.class);
+                verify(csvImportService, times(1)).importCsv(in.capture(), rowMapper.capture(), eq(groceryRepository));
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+
+                // the uploaded file is what gets streamed, and rows map to groceries with every column required
+                assertEquals(content, new String(in.getValue().readAllBytes(), StandardCharsets.UTF_8));
+                Grocery expectedGrocery = Grocery.builder()
+                                .name("Alpha")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .build();
+                CsvRow row = CsvRow.builder().line(2).values(Map.of("name", "Alpha", "price", "price 1", "expiration", "expiration 1")).build();
+                assertEquals(expectedGrocery, rowMapper.getValue().apply(row));
+                CsvRow incomplete = CsvRow.builder().line(3).values(Map.of("name", "Alpha", "expiration", "expiration 1")).build();
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                () -> rowMapper.getValue().apply(incomplete));
+                assertEquals("price is required", e.getMessage());
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/groceries?ids=... and PUT /api/groceries/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/groceries?ids=15,16,17").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+                // arrange
+
+                when(groceryRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/groceries?ids=15,16,17")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(groceryRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+                verify(groceryRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Grocery with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id(17L).build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/groceries/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Grocery groceryOrig = Grocery.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .price("1.99")
+                                .expiration("2024-01-01")
+                                .build();
+                Grocery groceryEdited = Grocery.builder()
+                                .id(15L)
+                                .name("Bravo")
+                                .price("2.49")
+                                .expiration("2024-02-01")
+                                .build();
+                Grocery groceryMissing = Grocery.builder()
+                                .id(16L)
+                                .name("Bravo")
+                                .price("2.49")
+                                .expiration("2024-02-01")
+                                .build();
+
+                when(groceryRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<Grocery> change = invocation.getArgument(1);
+                                change.accept(groceryOrig);
+                                return Arrays.asList(groceryOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(groceryEdited, groceryMissing, groceryEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/groceries/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(groceryRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+                verify(groceryRepository, never()).save(any());
+                assertEquals(groceryEdited, groceryOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Grocery with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/groceries?id=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/groceries?id=15")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                Grocery groceryOrig = Grocery.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .price("1.99")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(groceryRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Grocery> change = invocation.getArgument(1);
+                                change.accept(groceryOrig);
+                                return Optional.of(groceryOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/groceries?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"price\": \"2.49\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(groceryRepository, never()).save(any());
+                assertEquals("2.49", groceryOrig.getPrice());
+                assertEquals("Alpha", groceryOrig.getName());
+                assertEquals(mapper.writeValueAsString(groceryOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                Grocery groceryOrig = Grocery.builder()
+                                .id(15L)
+                                .price("1.99")
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(groceryRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Grocery> change = invocation.getArgument(1);
+                                change.accept(groceryOrig);
+                                return Optional.of(groceryOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/groceries?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"price\": \"2.49\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals("1.99", groceryOrig.getPrice());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Grocery with id 15 has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/groceries?id=15")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(groceryRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [name, price, expiration]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(groceryRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(groceryRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/groceries/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(groceryRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/groceries/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(groceryRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                Grocery grocery = Grocery.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(groceryRepository.findById(eq(7L))).thenReturn(Optional.of(grocery));
+
+                MvcResult response = mockMvc.perform(get("/api/groceries?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(grocery), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                Grocery grocery = Grocery.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(groceryRepository.findById(eq(7L))).thenReturn(Optional.of(grocery));
+
+                MvcResult response = mockMvc.perform(get("/api/groceries?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                Grocery grocery = Grocery.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .price("price 1")
+                                .expiration("expiration 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                grocery.setVersion(4L);
+                when(groceryRepository.findById(eq(7L))).thenReturn(Optional.of(grocery));
+
+                MvcResult response = mockMvc.perform(get("/api/groceries?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(grocery), response.getResponse().getContentAsString());
+        }
 }
@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Movie;
 import edu.ucsb.cs156.example.repositories.MovieRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,12 +22,17 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +40,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = MoviesController.class)
 @Import(TestConfig.class)
@@ -40,6 +52,9 @@ public class MoviesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
         // Authorization tests for /api/movies/admin/all
 
         @Test
@@ -51,6 +66,7 @@ public class MoviesControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(movieRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/movies/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -147,6 +163,8 @@ public class MoviesControllerTests extends ControllerTestCase {
                 expectedMovies.addAll(Arrays.asList(movie1, movie2));
 
                 when(movieRepository.findAll()).thenReturn(expectedMovies);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(movieRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/movies/all"))
@@ -191,13 +209,7 @@ public class MoviesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_movie() throws Exception {
                 // arrange
 
-                Movie movie1 = Movie.builder()
-                                .name("Spiderman")
-                                .year("2002")
-                                .summary("High school student Peter Parker gets bitten by radioactive spider and gains superpowers")
-                                .build();
-
-                when(movieRepository.findById(eq(15L))).thenReturn(Optional.of(movie1));
+                when(movieRepository.deleteRow(15L)).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -206,8 +218,7 @@ public class MoviesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(movieRepository, times(1)).findById(15L);
-                verify(movieRepository, times(1)).delete(any());
+                verify(movieRepository, times(1)).deleteRow(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Movie with id 15 deleted", json.get("message"));
@@ -219,7 +230,7 @@ public class MoviesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(movieRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(movieRepository.deleteRow(15L)).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,7 +239,7 @@ public class MoviesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(movieRepository, times(1)).findById(15L);
+                verify(movieRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Movie with id 15 not found", json.get("message"));
         }
@@ -300,4 +311,482 @@ public class MoviesControllerTests extends ControllerTestCase {
                 assertEquals("Movie with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/movies/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/movies/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+                // arrange
+
+                Movie movie1 = Movie.builder()
+                                .id(1L)
+                                .name("Alpha")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .build();
+                Movie movie2 = Movie.builder()
+                                .id(2L)
+                                .name("Bravo")
+                                .year("year 2")
+                                .summary("summary 2")
+                                .build();
+                Movie movie3 = Movie.builder()
+                                .id(3L)
+                                .name("Charlie")
+                                .year("year 3")
+                                .summary("summary 3")
+                                .build();
+
+                when(movieRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(movie1, movie2, movie3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/movies/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<Movie> expectedPage = KeysetPage.<Movie>builder()
+                                .items(Arrays.asList(movie1, movie2))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                Movie movie5 = Movie.builder()
+                                .id(5L)
+                                .name("Echo")
+                                .year("year 5")
+                                .summary("summary 5")
+                                .build();
+
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(movieRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(movie5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/movies/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(movieRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/movies/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be id or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/movies/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        // Tests for streaming export: /api/movies/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/movies/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/movies/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"movies.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/movies/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk create: POST /api/movies/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+                mockMvc.perform(post("/api/movies/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Movie newMovie = Movie.builder()
+                                .id(0L)
+                                .name("Alpha")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .build();
+                Movie savedMovie = Movie.builder()
+                                .id(11L)
+                                .name("Alpha")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .build();
+                Movie movieWithId = Movie.builder()
+                                .id(5L)
+                                .name("Bravo")
+                                .year("year 2")
+                                .summary("summary 2")
+                                .build();
+
+                when(movieRepository.saveAll(eq(Arrays.asList(newMovie))))
+                                .thenReturn(Arrays.asList(savedMovie));
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(newMovie, movieWithId));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/movies/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(movieRepository, times(1)).saveAll(eq(Arrays.asList(newMovie)));
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("created").id(11L).build(),
+                                BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+                String expectedJson = mapper.writeValueAsString(expectedResults);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/movies?ids=... and PUT /api/movies/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/movies?ids=15,16,17").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+                // arrange
+
+                when(movieRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/movies?ids=15,16,17")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(movieRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+                verify(movieRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Movie with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id(17L).build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/movies/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Movie movieOrig = Movie.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .year("1999")
+                                .summary("summary 1")
+                                .build();
+                Movie movieEdited = Movie.builder()
+                                .id(15L)
+                                .name("Bravo")
+                                .year("2001")
+                                .summary("summary 2")
+                                .build();
+                Movie movieMissing = Movie.builder()
+                                .id(16L)
+                                .name("Bravo")
+                                .year("2001")
+                                .summary("summary 2")
+                                .build();
+
+                when(movieRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<Movie> change = invocation.getArgument(1);
+                                change.accept(movieOrig);
+                                return Arrays.asList(movieOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(movieEdited, movieMissing, movieEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/movies/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(movieRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+                verify(movieRepository, never()).save(any());
+                assertEquals(movieEdited, movieOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Movie with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/movies?id=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/movies?id=15")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                Movie movieOrig = Movie.builder()
+                                .id(15L)
+                                .summary("a long summary")
+                                .year("1999")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(movieRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Movie> change = invocation.getArgument(1);
+                                change.accept(movieOrig);
+                                return Optional.of(movieOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/movies?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"year\": \"2001\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(movieRepository, never()).save(any());
+                assertEquals("2001", movieOrig.getYear());
+                assertEquals("a long summary", movieOrig.getSummary());
+                assertEquals(mapper.writeValueAsString(movieOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                Movie movieOrig = Movie.builder()
+                                .id(15L)
+                                .year("1999")
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(movieRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Movie> change = invocation.getArgument(1);
+                                change.accept(movieOrig);
+                                return Optional.of(movieOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/movies?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"year\": \"2001\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals("1999", movieOrig.getYear());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Movie with id 15 has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/movies?id=15")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(movieRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [name, year, summary]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(movieRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(movieRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/movies/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(movieRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/movies/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(movieRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                Movie movie = Movie.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(movieRepository.findById(eq(7L))).thenReturn(Optional.of(movie));
+
+                MvcResult response = mockMvc.perform(get("/api/movies?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(movie), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                Movie movie = Movie.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(movieRepository.findById(eq(7L))).thenReturn(Optional.of(movie));
+
+                MvcResult response = mockMvc.perform(get("/api/movies?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                Movie movie = Movie.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .year("year 1")
+                                .summary("summary 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                movie.setVersion(4L);
+                when(movieRepository.findById(eq(7L))).thenReturn(Optional.of(movie));
+
+                MvcResult response = mockMvc.perform(get("/api/movies?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(movie), response.getResponse().getContentAsString());
+        }
 }
@@ -5,6 +5,15 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.CsvImportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,19 +25,31 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.mockito.ArgumentCaptor;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
+import java.util.function.Function;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 
 @WebMvcTest(controllers = RestaurantsController.class)
@@ -40,6 +61,12 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    ExportService exportService;
+
+    @MockBean
+    CsvImportService csvImportService;
+
     // Authorization tests for /api/restaurants/admin/all
 
     @Test
@@ -51,6 +78,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+            when(restaurantRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
             mockMvc.perform(get("/api/restaurants/all"))
                             .andExpect(status().is(200)); // logged
     }
@@ -145,6 +173,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             expectedRestaurants.addAll(Arrays.asList(restaurant1, restaurant2));
 
             when(restaurantRepository.findAll()).thenReturn(expectedRestaurants);
+            // a version no other test uses, so the rows aren't served from the cache
+            when(restaurantRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
             // act
             MvcResult response = mockMvc.perform(get("/api/restaurants/all"))
@@ -189,13 +219,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     public void admin_can_delete_a_restaurant() throws Exception {
             // arrange
 
-            Restaurant restaurant1 = Restaurant.builder()
-                            .name("Freebirds")
-                            .description("Burritos and nachos")
-                            .price("$$")
-                            .build();
-
-            when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant1));
+            when(restaurantRepository.deleteRow(15L)).thenReturn(true);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -204,8 +228,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(restaurantRepository, times(1)).findById(15L);
-            verify(restaurantRepository, times(1)).delete(any());
+            verify(restaurantRepository, times(1)).deleteRow(15L);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -217,7 +240,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(restaurantRepository.deleteRow(15L)).thenReturn(false);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -226,7 +249,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(restaurantRepository, times(1)).findById(15L);
+            verify(restaurantRepository, times(1)).deleteRow(15L);
             Map<String, Object> json = responseToJson(response);
             assertEquals("Restaurant with id 15 not found", json.get("message"));
     }
@@ -298,4 +321,538 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             assertEquals("Restaurant with id 67 not found", json.get("message"));
 
     }
+
+    // Tests for keyset paginated listing: /api/restaurants/all?limit=...
+
+    @Test
+    public void logged_out_users_cannot_get_a_page() throws Exception {
+        mockMvc.perform(get("/api/restaurants/all?limit=2"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+        // arrange
+
+        Restaurant restaurant1 = Restaurant.builder()
+                            .id(1L)
+                            .name("Alpha")
+                            .description("description 1")
+                            .price("price 1")
+                            .build();
+        Restaurant restaurant2 = Restaurant.builder()
+                            .id(2L)
+                            .name("Bravo")
+                            .description("description 2")
+                            .price("price 2")
+                            .build();
+        Restaurant restaurant3 = Restaurant.builder()
+                            .id(3L)
+                            .name("Charlie")
+                            .description("description 3")
+                            .price("price 3")
+                            .build();
+
+        when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                            .thenReturn(new ArrayList<>(Arrays.asList(restaurant1, restaurant2, restaurant3)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/restaurants/all?limit=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        KeysetPage<Restaurant> expectedPage = KeysetPage.<Restaurant>builder()
+                            .items(Arrays.asList(restaurant1, restaurant2))
+                            .nextCursor(KeysetCursor.of(null, 2L).encode())
+                            .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+        // arrange
+
+        Restaurant restaurant5 = Restaurant.builder()
+                            .id(5L)
+                            .name("Echo")
+                            .description("description 5")
+                            .price("price 5")
+                            .build();
+
+        String after = KeysetCursor.of("Delta", 4L).encode();
+        when(restaurantRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                            .thenReturn(new ArrayList<>(Arrays.asList(restaurant5)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/restaurants/all?limit=2&sort=name&after=" + after))
+                            .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(restaurantRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+        Map<String, Object> json = responseToJson(response);
+        assertEquals(null, json.get("nextCursor"));
+        assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+        // act
+        MvcResult response = mockMvc.perform(get("/api/restaurants/all?limit=2&sort=bogus"))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("BadRequestException", json.get("type"));
+        assertEquals("sort must be id or name", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+        mockMvc.perform(get("/api/restaurants/all?limit=0"))
+                            .andExpect(status().isBadRequest());
+    }
+
+    // Tests for streaming export: /api/restaurants/export
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/restaurants/export"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_export_as_csv() throws Exception {
+        // act
+        MvcResult started = mockMvc.perform(get("/api/restaurants/export?format=csv"))
+                            .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                            .andExpect(status().isOk())
+                            .andExpect(content().contentType("text/csv"))
+                            .andExpect(header().string("Content-Disposition", "attachment; filename=\"restaurants.csv\""));
+
+        // assert
+        verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+        MvcResult response = mockMvc.perform(get("/api/restaurants/export?format=xml"))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("format must be ndjson or csv", json.get("message"));
+    }
+
+    // Tests for bulk create: POST /api/restaurants/bulk
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+        mockMvc.perform(post("/api/restaurants/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]")
+                            .with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+        // arrange
+
+        Restaurant newRestaurant = Restaurant.builder()
+                            .id(0L)
+                            .name("Alpha")
+                            .description("description 1")
+                            .price("price 1")
+                            .build();
+        Restaurant savedRestaurant = Restaurant.builder()
+                            .id(11L)
+                            .name("Alpha")
+                            .description("description 1")
+                            .price("price 1")
+                            .build();
+        Restaurant restaurantWithId = Restaurant.builder()
+                            .id(5L)
+                            .name("Bravo")
+                            .description("description 2")
+                            .price("price 2")
+                            .build();
+
+        when(restaurantRepository.saveAll(eq(Arrays.asList(newRestaurant))))
+                            .thenReturn(Arrays.asList(savedRestaurant));
+
+        String requestBody = mapper.writeValueAsString(Arrays.asList(newRestaurant, restaurantWithId));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                            post("/api/restaurants/bulk")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .characterEncoding("utf-8")
+                                    .content(requestBody)
+                                    .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(restaurantRepository, times(1)).saveAll(eq(Arrays.asList(newRestaurant)));
+        List<BulkResult> expectedResults = Arrays.asList(
+                            BulkResult.builder().index(0).status("created").id(11L).build(),
+                            BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+        String expectedJson = mapper.writeValueAsString(expectedResults);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for CSV import: POST /api/restaurants/import
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "restaurants.csv", "text/csv",
+                            "name,description,price\n".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/api/restaurants/import").file(file).with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_import_csv_and_gets_the_report() throws Exception {
+        // arrange
+
+        String content = "name,description,price\nAlpha,description 1,price 1\n";
+        MockMultipartFile file = new MockMultipartFile("file", "restaurants.csv", "text/csv",
+                            content.getBytes(StandardCharsets.UTF_8));
+        ImportReport report = ImportReport.builder()
+                            .rowsRead(1)
+                            .rowsWritten(1)
+                            .elapsedMillis(5)
+                            .rowsPerSecond(200)
+                            .errors(List.of())
+                            .build();
+
+        when(csvImportService.importCsv(any(), any(), eq(restaurantRepository))).thenReturn(report);
+
+        // act
+        MvcResult response = mockMvc.perform(multipart("/api/restaurants/import").file(file).with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+        // assert
+        ArgumentCaptor<InputStream> in = ArgumentCaptor.forClass(InputStream.class);
+        ArgumentCaptor<Function<CsvRow, Restaurant>> rowMapper = (ArgumentCaptor) ArgumentCaptor.forClass(Function.class);
+        verify(csvImportService, times(1)).importCsv(in.capture(), rowMapper.capture(), eq(restaurantRepository));
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+
+        // the uploaded file is what gets streamed, and rows map to restaurants with every column required
+        assertEquals(content, new String(in.getValue().readAllBytes(), StandardCharsets.UTF_8));
+        Restaurant expectedRestaurant = Restaurant.builder()
+                            .name("Alpha")
+                            .description("description 1")
+                            .price("price 1")
+                            .build();
+        CsvRow row = CsvRow.builder().line(2).values(Map.of("name", "Alpha", "description", "description 1", "price", "price 1")).build();
+        assertEquals(expectedRestaurant, rowMapper.getValue().apply(row));
+        CsvRow incomplete = CsvRow.builder().line(3).values(Map.of("name", "Alpha", "price", "price 1")).build();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                            () -> rowMapper.getValue().apply(incomplete));
+        assertEquals("description is required", e.getMessage());
+    }
+
+    // Tests for bulk delete and bulk update: DELETE /api/restaurants?ids=... and PUT /api/restaurants/bulk
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+            mockMvc.perform(delete("/api/restaurants?ids=15,16,17").with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+            // arrange
+
+            when(restaurantRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            delete("/api/restaurants?ids=15,16,17")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(restaurantRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+            verify(restaurantRepository, never()).deleteRow(any());
+            List<BulkResult> expectedResults = Arrays.asList(
+                            BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                            BulkResult.builder().index(1).status("not_found").id(16L).message("Restaurant with id 16 not found").build(),
+                            BulkResult.builder().index(2).status("deleted").id(17L).build());
+            assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+            mockMvc.perform(put("/api/restaurants/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]")
+                            .with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+            // arrange
+
+            Restaurant restaurantOrig = Restaurant.builder()
+                            .id(15L)
+                            .name("Alpha")
+                            .description("description 1")
+                            .price("$")
+                            .build();
+            Restaurant restaurantEdited = Restaurant.builder()
+                            .id(15L)
+                            .name("Bravo")
+                            .description("description 2")
+                            .price("$$")
+                            .build();
+            Restaurant restaurantMissing = Restaurant.builder()
+                            .id(16L)
+                            .name("Bravo")
+                            .description("description 2")
+                            .price("$$")
+                            .build();
+
+            when(restaurantRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                            Consumer<Restaurant> change = invocation.getArgument(1);
+                            change.accept(restaurantOrig);
+                            return Arrays.asList(restaurantOrig);
+            });
+
+            String requestBody = mapper.writeValueAsString(Arrays.asList(restaurantEdited, restaurantMissing, restaurantEdited));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/restaurants/bulk")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(requestBody)
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(restaurantRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+            verify(restaurantRepository, never()).save(any());
+            assertEquals(restaurantEdited, restaurantOrig);
+            List<BulkResult> expectedResults = Arrays.asList(
+                            BulkResult.builder().index(0).status("updated").id(15L).build(),
+                            BulkResult.builder().index(1).status("not_found").id(16L).message("Restaurant with id 16 not found").build(),
+                            BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+            assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+    }
+
+    // Tests for PATCH /api/restaurants?id=... (JSON merge patch with If-Match)
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_patch() throws Exception {
+            mockMvc.perform(patch("/api/restaurants?id=15")
+                            .header("If-Match", "\"3-1682936130000\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{}")
+                            .with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+            // arrange
+
+            Restaurant restaurantOrig = Restaurant.builder()
+                            .id(15L)
+                            .name("Alpha")
+                            .price("$")
+                            .version(3L)
+                            .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                            .build();
+
+            when(restaurantRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                            Consumer<Restaurant> change = invocation.getArgument(1);
+                            change.accept(restaurantOrig);
+                            return Optional.of(restaurantOrig);
+            });
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/restaurants?id=15")
+                                            .header("If-Match", "\"3-1682936130000\"")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"price\": \"$$\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(restaurantRepository, never()).save(any());
+            assertEquals("$$", restaurantOrig.getPrice());
+            assertEquals("Alpha", restaurantOrig.getName());
+            assertEquals(mapper.writeValueAsString(restaurantOrig), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+            // arrange
+
+            Restaurant restaurantOrig = Restaurant.builder()
+                            .id(15L)
+                            .price("$")
+                            .version(4L)
+                            .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                            .build();
+
+            when(restaurantRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                            Consumer<Restaurant> change = invocation.getArgument(1);
+                            change.accept(restaurantOrig);
+                            return Optional.of(restaurantOrig);
+            });
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/restaurants?id=15")
+                                            .header("If-Match", "\"3-1682936130000\"")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .content("{\"price\": \"$$\"}")
+                                            .with(csrf()))
+                            .andExpect(status().isPreconditionFailed()).andReturn();
+
+            // assert
+            assertEquals("$", restaurantOrig.getPrice());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("Restaurant with id 15 has changed since it was read; reload it and try again", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/restaurants?id=15")
+                                            .header("If-Match", "*")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .content("{\"version\": 7}")
+                                            .with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            verify(restaurantRepository, never()).updateRow(any(), any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("version cannot be changed; expected any of [name, description, price]", json.get("message"));
+    }
+
+    // Tests for conditional GET (ETag / If-None-Match)
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_all_sends_a_weak_table_etag() throws Exception {
+        when(restaurantRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+        when(restaurantRepository.findAll()).thenReturn(new ArrayList<>());
+
+        MvcResult response = mockMvc.perform(get("/api/restaurants/all"))
+                            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+        assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+        when(restaurantRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+        MvcResult response = mockMvc.perform(get("/api/restaurants/all")
+                            .header("If-None-Match", "W/\"2-1682936130000\""))
+                            .andExpect(status().isNotModified()).andReturn();
+
+        verify(restaurantRepository, never()).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+        Restaurant restaurant = Restaurant.builder()
+                            .id(7L)
+                            .name("name 1")
+                            .description("description 1")
+                            .price("price 1")
+                            .version(3L)
+                            .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                            .build();
+        when(restaurantRepository.findById(eq(7L))).thenReturn(Optional.of(restaurant));
+
+        MvcResult response = mockMvc.perform(get("/api/restaurants?id=7"))
+                            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+        assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+        assertEquals(mapper.writeValueAsString(restaurant), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+        Restaurant restaurant = Restaurant.builder()
+                            .id(7L)
+                            .name("name 1")
+                            .description("description 1")
+                            .price("price 1")
+                            .version(3L)
+                            .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                            .build();
+        when(restaurantRepository.findById(eq(7L))).thenReturn(Optional.of(restaurant));
+
+        MvcResult response = mockMvc.perform(get("/api/restaurants?id=7")
+                            .header("If-None-Match", "\"3-1682936130000\""))
+                            .andExpect(status().isNotModified()).andReturn();
+
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+        Restaurant restaurant = Restaurant.builder()
+                            .id(7L)
+                            .name("name 1")
+                            .description("description 1")
+                            .price("price 1")
+                            .version(3L)
+                            .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                            .build();
+        restaurant.setVersion(4L);
+        when(restaurantRepository.findById(eq(7L))).thenReturn(Optional.of(restaurant));
+
+        MvcResult response = mockMvc.perform(get("/api/restaurants?id=7")
+                            .header("If-None-Match", "\"3-1682936130000\""))
+                            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+        assertEquals(mapper.writeValueAsString(restaurant), response.getResponse().getContentAsString());
+    }
 }
@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.models.SearchResults;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.SearchIndexService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import java.util.Map;
+
+@WebMvcTest(controllers = SearchController.class)
+@Import(TestConfig.class)
+public class SearchControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  SearchIndexService searchIndexService;
+
+  @Test
+  public void search__logged_out() throws Exception {
+    mockMvc.perform(get("/api/search?q=zelda"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void search__defaults_to_all_types_and_the_first_page() throws Exception {
+
+    // arrange
+
+    SearchResults results = SearchResults.builder()
+        .query("zelda")
+        .total(1)
+        .page(0)
+        .size(20)
+        .hits(List.of(SearchHit.builder().type("games").id(7).name("Zelda").score(2.5).build()))
+        .build();
+
+    when(searchIndexService.search("zelda", List.of(), 0, 20)).thenReturn(results);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/search?q=zelda"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(searchIndexService, times(1)).search("zelda", List.of(), 0, 20);
+    assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void search__types_and_paging_are_passed_on() throws Exception {
+    SearchResults results = SearchResults.builder()
+        .query("ocean eyes").total(0).page(2).size(5).hits(List.of()).build();
+    when(searchIndexService.search("ocean eyes", List.of("songs", "movies"), 2, 5)).thenReturn(results);
+
+    mockMvc.perform(get("/api/search?q=ocean eyes&types=songs,movies&page=2&size=5"))
+        .andExpect(status().isOk());
+
+    verify(searchIndexService, times(1)).search("ocean eyes", List.of("songs", "movies"), 2, 5);
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void search__unknown_type_is_a_bad_request() throws Exception {
+    when(searchIndexService.search(anyString(), any(), anyInt(), anyInt()))
+        .thenThrow(new BadRequestException("unknown type books; expected one of [games]"));
+
+    MvcResult response = mockMvc.perform(get("/api/search?q=zelda&types=books"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("unknown type books; expected one of [games]", json.get("message"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void search__page_size_and_depth_are_limited() throws Exception {
+    mockMvc.perform(get("/api/search?q=zelda&size=101"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search?q=zelda&size=0"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search?q=zelda&page=-1"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/search?q=zelda&page=100&size=100"))
+        .andExpect(status().isBadRequest());
+
+    verify(searchIndexService, never()).search(anyString(), any(), anyInt(), anyInt());
+  }
+}
@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Song;
 import edu.ucsb.cs156.example.repositories.SongRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,12 +22,20 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
+import java.time.Instant;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +43,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = SongsController.class)
 @Import(TestConfig.class)
@@ -40,6 +55,9 @@ public class SongsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
         // Authorization tests for /api/songs/admin/all
 
         @Test
@@ -51,6 +69,7 @@ public class SongsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/songs/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -147,6 +166,8 @@ public class SongsControllerTests extends ControllerTestCase {
                 expectedSongs.addAll(Arrays.asList(song1, song2));
 
                 when(songRepository.findAll()).thenReturn(expectedSongs);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/songs/all"))
@@ -189,13 +210,7 @@ public class SongsControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_delete_a_song() throws Exception {
 
-                Song song1 = Song.builder()
-                                .name("$20")
-                                .artist("boygenius")
-                                .album("the record")
-                                .build();
-
-                when(songRepository.findById(eq(15L))).thenReturn(Optional.of(song1));
+                when(songRepository.deleteRow(15L)).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -204,8 +219,7 @@ public class SongsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(songRepository, times(1)).findById(15L);
-                verify(songRepository, times(1)).delete(any());
+                verify(songRepository, times(1)).deleteRow(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Song with id 15 deleted", json.get("message"));
@@ -217,7 +231,7 @@ public class SongsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(songRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(songRepository.deleteRow(15L)).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,7 +240,7 @@ public class SongsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(songRepository, times(1)).findById(15L);
+                verify(songRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Song with id 15 not found", json.get("message"));
         }
@@ -296,4 +310,581 @@ public class SongsControllerTests extends ControllerTestCase {
                 assertEquals("Song with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/songs/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/songs/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+                // arrange
+
+                Song song1 = Song.builder()
+                                .id(1L)
+                                .name("Alpha")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .build();
+                Song song2 = Song.builder()
+                                .id(2L)
+                                .name("Bravo")
+                                .artist("artist 2")
+                                .album("album 2")
+                                .build();
+                Song song3 = Song.builder()
+                                .id(3L)
+                                .name("Charlie")
+                                .artist("artist 3")
+                                .album("album 3")
+                                .build();
+
+                when(songRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(song1, song2, song3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/songs/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<Song> expectedPage = KeysetPage.<Song>builder()
+                                .items(Arrays.asList(song1, song2))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                Song song5 = Song.builder()
+                                .id(5L)
+                                .name("Echo")
+                                .artist("artist 5")
+                                .album("album 5")
+                                .build();
+
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(songRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(song5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/songs/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(songRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/songs/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be id or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/songs/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        // Tests for streaming export: /api/songs/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/songs/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/songs/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"songs.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/songs/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk create: POST /api/songs/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+                mockMvc.perform(post("/api/songs/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Song newSong = Song.builder()
+                                .id(0L)
+                                .name("Alpha")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .build();
+                Song savedSong = Song.builder()
+                                .id(11L)
+                                .name("Alpha")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .build();
+                Song songWithId = Song.builder()
+                                .id(5L)
+                                .name("Bravo")
+                                .artist("artist 2")
+                                .album("album 2")
+                                .build();
+
+                when(songRepository.saveAll(eq(Arrays.asList(newSong))))
+                                .thenReturn(Arrays.asList(savedSong));
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(newSong, songWithId));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/songs/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(songRepository, times(1)).saveAll(eq(Arrays.asList(newSong)));
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("created").id(11L).build(),
+                                BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+                String expectedJson = mapper.writeValueAsString(expectedResults);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/songs?ids=... and PUT /api/songs/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/songs?ids=15,16,17").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+                // arrange
+
+                when(songRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/songs?ids=15,16,17")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(songRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+                verify(songRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Song with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id(17L).build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/songs/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                Song songOrig = Song.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .build();
+                Song songEdited = Song.builder()
+                                .id(15L)
+                                .name("Bravo")
+                                .artist("artist 2")
+                                .album("album 2")
+                                .build();
+                Song songMissing = Song.builder()
+                                .id(16L)
+                                .name("Bravo")
+                                .artist("artist 2")
+                                .album("album 2")
+                                .build();
+
+                when(songRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<Song> change = invocation.getArgument(1);
+                                change.accept(songOrig);
+                                return Arrays.asList(songOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(songEdited, songMissing, songEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/songs/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(songRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+                verify(songRepository, never()).save(any());
+                assertEquals(songEdited, songOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("Song with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/songs?id=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/songs?id=15")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                Song songOrig = Song.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .album("album 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(songRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Song> change = invocation.getArgument(1);
+                                change.accept(songOrig);
+                                return Optional.of(songOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/songs?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"album\": \"album 2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(songRepository, never()).save(any());
+                assertEquals("album 2", songOrig.getAlbum());
+                assertEquals("Alpha", songOrig.getName());
+                assertEquals(mapper.writeValueAsString(songOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                Song songOrig = Song.builder()
+                                .id(15L)
+                                .album("album 1")
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(songRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<Song> change = invocation.getArgument(1);
+                                change.accept(songOrig);
+                                return Optional.of(songOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/songs?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"album\": \"album 2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals("album 1", songOrig.getAlbum());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Song with id 15 has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/songs?id=15")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(songRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [name, artist, album]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(songRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/songs/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/songs/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(songRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                Song song = Song.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(songRepository.findById(eq(7L))).thenReturn(Optional.of(song));
+
+                MvcResult response = mockMvc.perform(get("/api/songs?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(song), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                Song song = Song.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(songRepository.findById(eq(7L))).thenReturn(Optional.of(song));
+
+                MvcResult response = mockMvc.perform(get("/api/songs?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                Song song = Song.builder()
+                                .id(7L)
+                                .name("name 1")
+                                .artist("artist 1")
+                                .album("album 1")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                song.setVersion(4L);
+                when(songRepository.findById(eq(7L))).thenReturn(Optional.of(song));
+
+                MvcResult response = mockMvc.perform(get("/api/songs?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(song), response.getResponse().getContentAsString());
+        }
+
+        // Tests for the cached /all response
+
+        private ArrayList<Song> songs(int n) {
+                ArrayList<Song> songs = new ArrayList<>();
+                for (long i = 1; i <= n; i++) {
+                        songs.add(Song.builder().id(i).name("name " + i).artist("artist " + i).album("album " + i).build());
+                }
+                return songs;
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_serializes_the_rows_once_per_table_version() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(3, Instant.parse("2023-06-01T10:15:30Z")));
+                when(songRepository.findAll()).thenReturn(songs(3));
+
+                MvcResult first = mockMvc.perform(get("/api/songs/all"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult second = mockMvc.perform(get("/api/songs/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                verify(songRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(songs(3)), second.getResponse().getContentAsString());
+                assertEquals(first.getResponse().getContentAsString(), second.getResponse().getContentAsString());
+                assertEquals("application/json", second.getResponse().getContentType());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_reloads_the_rows_when_the_table_changes() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(3, Instant.parse("2023-06-02T10:15:30Z")));
+                when(songRepository.findAll()).thenReturn(songs(3));
+                mockMvc.perform(get("/api/songs/all")).andExpect(status().isOk());
+
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(4, Instant.parse("2023-06-02T10:15:31Z")));
+                when(songRepository.findAll()).thenReturn(songs(4));
+                MvcResult response = mockMvc.perform(get("/api/songs/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                verify(songRepository, times(2)).findAll();
+                assertEquals(mapper.writeValueAsString(songs(4)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_reloads_the_rows_after_a_write_even_if_the_version_looks_the_same() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(3, Instant.parse("2023-06-03T10:15:30Z")));
+                when(songRepository.findAll()).thenReturn(songs(3));
+                mockMvc.perform(get("/api/songs/all")).andExpect(status().isOk());
+
+                when(songRepository.deleteRow(eq(1L))).thenReturn(true);
+                mockMvc.perform(delete("/api/songs?id=1").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/songs/all")).andExpect(status().isOk());
+
+                verify(songRepository, times(2)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void rows_loaded_while_a_write_was_running_are_not_kept_after_it() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(3, Instant.parse("2023-06-05T10:15:30Z")));
+                when(songRepository.deleteRow(eq(1L))).thenReturn(true);
+                // the delete finishes after findAll read the rows, but before they are kept
+                when(songRepository.findAll()).thenAnswer(invocation -> {
+                        mockMvc.perform(delete("/api/songs?id=1").with(csrf())).andExpect(status().isOk());
+                        return songs(3);
+                }).thenReturn(songs(2));
+
+                mockMvc.perform(get("/api/songs/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/songs/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                verify(songRepository, times(2)).findAll();
+                assertEquals(mapper.writeValueAsString(songs(2)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_sent_gzipped_to_clients_that_accept_it() throws Exception {
+                when(songRepository.tableVersion()).thenReturn(new TableVersion(50, Instant.parse("2023-06-04T10:15:30Z")));
+                when(songRepository.findAll()).thenReturn(songs(50));
+
+                MvcResult gzipped = mockMvc.perform(get("/api/songs/all").header("Accept-Encoding", "gzip, deflate, br"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Vary", "Accept-Encoding"))
+                                .andReturn();
+                MvcResult plain = mockMvc.perform(get("/api/songs/all").header("Accept-Encoding", "gzip;q=0, br"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andReturn();
+
+                byte[] body = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))
+                                .readAllBytes();
+                assertEquals(mapper.writeValueAsString(songs(50)), new String(body, StandardCharsets.UTF_8));
+                assertEquals(mapper.writeValueAsString(songs(50)), plain.getResponse().getContentAsString());
+        }
 }
@@ -5,32 +5,47 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.ExportService;
+import edu.ucsb.cs156.example.services.UCSBDateTimelineService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.time.LocalDateTime;
+import java.time.Instant;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
 @Import(TestConfig.class)
@@ -42,6 +57,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
+        @MockBean
+        UCSBDateTimelineService ucsbDateTimelineService;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -53,6 +74,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(ucsbDateRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/ucsbdates/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -153,6 +175,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
                 when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(ucsbDateRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
@@ -201,13 +225,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRow(15L)).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +234,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRow(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -229,7 +246,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRow(15L)).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +255,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRow(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -315,4 +332,583 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/ucsbdates/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_id() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("Alpha")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+                UCSBDate ucsbDate2 = UCSBDate.builder()
+                                .id(2L)
+                                .quarterYYYYQ("quarterYYYYQ 2")
+                                .name("Bravo")
+                                .localDateTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+                UCSBDate ucsbDate3 = UCSBDate.builder()
+                                .id(3L)
+                                .quarterYYYYQ("quarterYYYYQ 3")
+                                .name("Charlie")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDate1, ucsbDate2, ucsbDate3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .items(Arrays.asList(ucsbDate1, ucsbDate2))
+                                .nextCursor(KeysetCursor.of(null, 2L).encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate5 = UCSBDate.builder()
+                                .id(5L)
+                                .quarterYYYYQ("quarterYYYYQ 5")
+                                .name("Echo")
+                                .localDateTime(LocalDateTime.parse("2022-01-05T00:00:00"))
+                                .build();
+
+                String after = KeysetCursor.of("Delta", 4L).encode();
+                when(ucsbDateRepository.findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDate5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findByNameAfter(eq("Delta"), eq(4L), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be id or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        // Tests for streaming export: /api/ucsbdates/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdates/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"ucsbdates.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk create: POST /api/ucsbdates/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_create_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                UCSBDate newUCSBDate = UCSBDate.builder()
+                                .id(0L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("Alpha")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+                UCSBDate savedUCSBDate = UCSBDate.builder()
+                                .id(11L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("Alpha")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build();
+                UCSBDate ucsbDateWithId = UCSBDate.builder()
+                                .id(5L)
+                                .quarterYYYYQ("quarterYYYYQ 2")
+                                .name("Bravo")
+                                .localDateTime(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.saveAll(eq(Arrays.asList(newUCSBDate))))
+                                .thenReturn(Arrays.asList(savedUCSBDate));
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(newUCSBDate, ucsbDateWithId));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdates/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(eq(Arrays.asList(newUCSBDate)));
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("created").id(11L).build(),
+                                BulkResult.builder().index(1).status("rejected").message("id must not be set").build());
+                String expectedJson = mapper.writeValueAsString(expectedResults);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/ucsbdates?ids=... and PUT /api/ucsbdates/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdates?ids=15,16,17").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_ids_were_found() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.deleteRows(any())).thenReturn(Arrays.asList(15L, 17L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates?ids=15,16,17")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L, 17L))));
+                verify(ucsbDateRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("UCSBDate with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id(17L).build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .id(15L)
+                                .quarterYYYYQ("20221")
+                                .name("Alpha")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .id(15L)
+                                .quarterYYYYQ("20222")
+                                .name("Bravo")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                UCSBDate ucsbDateMissing = UCSBDate.builder()
+                                .id(16L)
+                                .quarterYYYYQ("20222")
+                                .name("Bravo")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDate> change = invocation.getArgument(1);
+                                change.accept(ucsbDateOrig);
+                                return Arrays.asList(ucsbDateOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(ucsbDateEdited, ucsbDateMissing, ucsbDateEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList(15L, 16L))), any());
+                verify(ucsbDateRepository, never()).save(any());
+                assertEquals(ucsbDateEdited, ucsbDateOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id(15L).build(),
+                                BulkResult.builder().index(1).status("not_found").id(16L).message("UCSBDate with id 16 not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id(15L).message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/ucsbdates?id=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdates?id=15")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .id(15L)
+                                .quarterYYYYQ("20221")
+                                .name("Alpha")
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(ucsbDateRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDate> change = invocation.getArgument(1);
+                                change.accept(ucsbDateOrig);
+                                return Optional.of(ucsbDateOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"name\": \"Bravo\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).save(any());
+                assertEquals("Bravo", ucsbDateOrig.getName());
+                assertEquals("20221", ucsbDateOrig.getQuarterYYYYQ());
+                assertEquals(mapper.writeValueAsString(ucsbDateOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateOrig = UCSBDate.builder()
+                                .id(15L)
+                                .name("Alpha")
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(ucsbDateRepository.updateRow(eq(15L), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDate> change = invocation.getArgument(1);
+                                change.accept(ucsbDateOrig);
+                                return Optional.of(ucsbDateOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=15")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"name\": \"Bravo\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals("Alpha", ucsbDateOrig.getName());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 15 has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=15")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [quarterYYYYQ, name, localDateTime]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(ucsbDateRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(ucsbDateRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(ucsbDateRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("name 1")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(ucsbDate), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("name 1")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .quarterYYYYQ("quarterYYYYQ 1")
+                                .name("name 1")
+                                .localDateTime(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                ucsbDate.setVersion(4L);
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(ucsbDate), response.getResponse().getContentAsString());
+        }
+
+        // Tests for calendar queries: /api/ucsbdates/upcoming, /range and /quarter
+
+        private UCSBDate firstDayOfClasses() {
+                return UCSBDate.builder()
+                                .id(7L)
+                                .quarterYYYYQ("20232")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2023-04-03T08:00:00"))
+                                .build();
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_upcoming() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_dates_from_a_time() throws Exception {
+                // arrange
+                List<UCSBDate> dates = List.of(firstDayOfClasses());
+                LocalDateTime from = LocalDateTime.parse("2023-04-01T00:00:00");
+                when(ucsbDateTimelineService.upcoming(from, 3)).thenReturn(dates);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming?from=2023-04-01T00:00:00&limit=3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateTimelineService, times(1)).upcoming(from, 3);
+                assertEquals(mapper.writeValueAsString(dates), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void upcoming_starts_from_now_by_default() throws Exception {
+                LocalDateTime before = LocalDateTime.now();
+                when(ucsbDateTimelineService.upcoming(any(LocalDateTime.class), eq(10))).thenReturn(List.of());
+
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().isOk());
+
+                ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+                verify(ucsbDateTimelineService).upcoming(from.capture(), eq(10));
+                assertFalse(from.getValue().isBefore(before));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_upcoming_limit_out_of_range() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming?limit=1001"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                assertEquals("limit must be between 1 and 1000", responseToJson(response).get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_in_a_range() throws Exception {
+                // arrange
+                List<UCSBDate> dates = List.of(firstDayOfClasses());
+                LocalDateTime from = LocalDateTime.parse("2023-04-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2023-07-01T00:00:00");
+                when(ucsbDateTimelineService.range(from, to, 1000)).thenReturn(dates);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdates/range?from=2023-04-01T00:00:00&to=2023-07-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(dates), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_a_backwards_range() throws Exception {
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdates/range?from=2023-07-01T00:00:00&to=2023-04-01T00:00:00"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                assertEquals("from must not be after to", responseToJson(response).get("message"));
+                verify(ucsbDateTimelineService, never()).range(any(), any(), any(Integer.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_in_a_quarter() throws Exception {
+                // arrange
+                List<UCSBDate> dates = List.of(firstDayOfClasses());
+                when(ucsbDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20232")).thenReturn(dates);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20232"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(dates), response.getResponse().getContentAsString());
+        }
 }
@@ -5,9 +5,18 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.models.TableVersion;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.ExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -16,12 +25,16 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.data.domain.PageRequest;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +42,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
@@ -40,6 +54,12 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ExportService exportService;
+
+        @MockBean
+        DiningCommonsLocationService diningCommonsLocationService;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -51,6 +71,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
                 mockMvc.perform(get("/api/ucsbdiningcommons/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -159,6 +180,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
                 when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+                // a version no other test uses, so the rows aren't served from the cache
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-02T10:15:30Z")));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
@@ -207,17 +230,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                UCSBDiningCommons portola = UCSBDiningCommons.builder()
-                                .name("Portola")
-                                .code("portola")
-                                .hasSackMeal(true)
-                                .hasTakeOutMeal(true)
-                                .hasDiningCam(true)
-                                .latitude(34.417723)
-                                .longitude(-119.867427)
-                                .build();
-
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRow("portola")).thenReturn(true);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +239,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRow("portola");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +251,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRow("munger-hall")).thenReturn(false);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +260,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRow("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -332,4 +344,570 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for keyset paginated listing: /api/ucsbdiningcommons/all?limit=...
+
+        @Test
+        public void logged_out_users_cannot_get_a_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_ordered_by_code() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons1 = UCSBDiningCommons.builder()
+                                .code("code1")
+                                .name("Alpha")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.401)
+                                .longitude(-119.801)
+                                .build();
+                UCSBDiningCommons commons2 = UCSBDiningCommons.builder()
+                                .code("code2")
+                                .name("Bravo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(false)
+                                .latitude(34.402)
+                                .longitude(-119.802)
+                                .build();
+                UCSBDiningCommons commons3 = UCSBDiningCommons.builder()
+                                .code("code3")
+                                .name("Charlie")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.403)
+                                .longitude(-119.803)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(commons1, commons2, commons3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                KeysetPage<UCSBDiningCommons> expectedPage = KeysetPage.<UCSBDiningCommons>builder()
+                                .items(Arrays.asList(commons1, commons2))
+                                .nextCursor(KeysetCursor.of(null, "code2").encode())
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_ordered_by_name() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons5 = UCSBDiningCommons.builder()
+                                .code("code5")
+                                .name("Echo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.405)
+                                .longitude(-119.805)
+                                .build();
+
+                String after = KeysetCursor.of("Delta", "code4").encode();
+                when(ucsbDiningCommonsRepository.findByNameAfter(eq("Delta"), eq("code4"), eq(PageRequest.of(0, 3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(commons5)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2&sort=name&after=" + after))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findByNameAfter(eq("Delta"), eq("code4"), eq(PageRequest.of(0, 3)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(null, json.get("nextCursor"));
+                assertEquals(1, ((ArrayList<?>) json.get("items")).size());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_unknown_sort() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2&sort=bogus"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("sort must be code or name", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_limit_out_of_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=0"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        // Tests for streaming export: /api/ucsbdiningcommons/export
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_export_as_csv() throws Exception {
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdiningcommons/export?format=csv"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("text/csv"))
+                                .andExpect(header().string("Content-Disposition", "attachment; filename=\"ucsbdiningcommons.csv\""));
+
+                // assert
+                verify(exportService, times(1)).export(eq(ExportFormat.CSV), any(), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_for_unknown_export_format() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/export?format=xml"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("format must be ndjson or csv", json.get("message"));
+        }
+
+        // Tests for bulk delete and bulk update: DELETE /api/ucsbdiningcommons?codes=... and PUT /api/ucsbdiningcommons/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/ucsbdiningcommons?codes=portola,munger-hall,carrillo").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_and_sees_which_codes_were_found() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.deleteRows(any())).thenReturn(Arrays.asList("portola", "carrillo"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons?codes=portola,munger-hall,carrillo")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRows(eq(new LinkedHashSet<>(Arrays.asList("portola", "munger-hall", "carrillo"))));
+                verify(ucsbDiningCommonsRepository, never()).deleteRow(any());
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("deleted").id("portola").build(),
+                                BulkResult.builder().index(1).status("not_found").id("munger-hall").message("UCSBDiningCommons with id munger-hall not found").build(),
+                                BulkResult.builder().index(2).status("deleted").id("carrillo").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_update() throws Exception {
+                mockMvc.perform(put("/api/ucsbdiningcommons/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_update_and_gets_a_result_per_item() throws Exception {
+                // arrange
+
+                UCSBDiningCommons commonsOrig = UCSBDiningCommons.builder()
+                                .code("portola")
+                                .name("Alpha")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(false)
+                                .latitude(34.41)
+                                .longitude(-119.84)
+                                .build();
+                UCSBDiningCommons commonsEdited = UCSBDiningCommons.builder()
+                                .code("portola")
+                                .name("Bravo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.42)
+                                .longitude(-119.85)
+                                .build();
+                UCSBDiningCommons commonsMissing = UCSBDiningCommons.builder()
+                                .code("munger-hall")
+                                .name("Bravo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.42)
+                                .longitude(-119.85)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.updateRows(any(), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDiningCommons> change = invocation.getArgument(1);
+                                change.accept(commonsOrig);
+                                return Arrays.asList(commonsOrig);
+                });
+
+                String requestBody = mapper.writeValueAsString(Arrays.asList(commonsEdited, commonsMissing, commonsEdited));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).updateRows(eq(new LinkedHashSet<>(Arrays.asList("portola", "munger-hall"))), any());
+                verify(ucsbDiningCommonsRepository, never()).save(any());
+                assertEquals(commonsEdited, commonsOrig);
+                List<BulkResult> expectedResults = Arrays.asList(
+                                BulkResult.builder().index(0).status("updated").id("portola").build(),
+                                BulkResult.builder().index(1).status("not_found").id("munger-hall").message("UCSBDiningCommons with id munger-hall not found").build(),
+                                BulkResult.builder().index(2).status("rejected").id("portola").message("id appears more than once").build());
+                assertEquals(mapper.writeValueAsString(expectedResults), response.getResponse().getContentAsString());
+        }
+
+        // Tests for PATCH /api/ucsbdiningcommons?code=... (JSON merge patch with If-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/ucsbdiningcommons?code=portola")
+                                .header("If-Match", "\"3-1682936130000\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_one_field_with_the_current_etag() throws Exception {
+                // arrange
+
+                UCSBDiningCommons commonsOrig = UCSBDiningCommons.builder()
+                                .code("portola")
+                                .name("Portola")
+                                .latitude(34.41)
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+
+                when(ucsbDiningCommonsRepository.updateRow(eq("portola"), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDiningCommons> change = invocation.getArgument(1);
+                                change.accept(commonsOrig);
+                                return Optional.of(commonsOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=portola")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"latitude\": 34.42}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).save(any());
+                assertEquals(34.42, commonsOrig.getLatitude());
+                assertEquals("Portola", commonsOrig.getName());
+                assertEquals(mapper.writeValueAsString(commonsOrig), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_with_a_stale_etag_gets_412() throws Exception {
+                // arrange
+
+                UCSBDiningCommons commonsOrig = UCSBDiningCommons.builder()
+                                .code("portola")
+                                .latitude(34.41)
+                                .version(4L)
+                                .lastModified(Instant.parse("2023-05-02T10:15:30Z"))
+                                .build();
+
+                when(ucsbDiningCommonsRepository.updateRow(eq("portola"), any())).thenAnswer(invocation -> {
+                                Consumer<UCSBDiningCommons> change = invocation.getArgument(1);
+                                change.accept(commonsOrig);
+                                return Optional.of(commonsOrig);
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=portola")
+                                                .header("If-Match", "\"3-1682936130000\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"latitude\": 34.42}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                assertEquals(34.41, commonsOrig.getLatitude());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id portola has changed since it was read; reload it and try again", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_fields_that_are_not_editable() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=portola")
+                                                .header("If-Match", "*")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"version\": 7}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).updateRow(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("version cannot be changed; expected any of [name, hasSackMeal, hasTakeOutMeal, hasDiningCam, latitude, longitude]", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_a_weak_table_etag() throws Exception {
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("W/\"2-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_the_etag_matches_and_rows_are_not_loaded() throws Exception {
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-05-01T10:15:30Z")));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all")
+                                .header("If-None-Match", "W/\"2-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_sends_a_strong_etag_and_last_modified() throws Exception {
+                UCSBDiningCommons commons = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("name 1")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.401)
+                                .longitude(-119.801)
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(ucsbDiningCommonsRepository.findById(eq("de-la-guerra"))).thenReturn(Optional.of(commons));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=de-la-guerra"))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"3-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals("Mon, 01 May 2023 10:15:30 GMT", response.getResponse().getHeader("Last-Modified"));
+                assertEquals(mapper.writeValueAsString(commons), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_not_modified_when_the_etag_matches() throws Exception {
+                UCSBDiningCommons commons = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("name 1")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.401)
+                                .longitude(-119.801)
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                when(ucsbDiningCommonsRepository.findById(eq("de-la-guerra"))).thenReturn(Optional.of(commons));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=de-la-guerra")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_is_sent_again_after_the_row_changes() throws Exception {
+                UCSBDiningCommons commons = UCSBDiningCommons.builder()
+                                .code("de-la-guerra")
+                                .name("name 1")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.401)
+                                .longitude(-119.801)
+                                .version(3L)
+                                .lastModified(Instant.parse("2023-05-01T10:15:30Z"))
+                                .build();
+                commons.setVersion(4L);
+                when(ucsbDiningCommonsRepository.findById(eq("de-la-guerra"))).thenReturn(Optional.of(commons));
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=de-la-guerra")
+                                .header("If-None-Match", "\"3-1682936130000\""))
+                                .andExpect(status().isOk()).andReturn();
+
+                assertEquals("\"4-1682936130000\"", response.getResponse().getHeader("ETag"));
+                assertEquals(mapper.writeValueAsString(commons), response.getResponse().getContentAsString());
+        }
+
+        // Tests for location queries: /api/ucsbdiningcommons/nearest and /within
+
+        private UCSBDiningCommons ortega() {
+                return UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearest_commons() throws Exception {
+                // arrange
+                List<NearbyCommons> nearby = List.of(new NearbyCommons(ortega(), 92.5));
+                when(diningCommonsLocationService.nearest(34.41, -119.848, 5)).thenReturn(nearby);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.848"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.848, 5);
+                assertEquals(mapper.writeValueAsString(nearby), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_nearest_out_of_range() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=91&lon=-119.848"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("latitude must be between -90 and 90", responseToJson(response).get("message"));
+
+                response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-181"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("longitude must be between -180 and 180", responseToJson(response).get("message"));
+
+                response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.848&k=101"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("k must be between 1 and 100", responseToJson(response).get("message"));
+
+                verify(diningCommonsLocationService, never()).nearest(any(Double.class), any(Double.class), any(Integer.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_commons_within_a_box() throws Exception {
+                // arrange
+                List<UCSBDiningCommons> inside = List.of(ortega());
+                when(diningCommonsLocationService.within(34.4, -119.85, 34.42, -119.84)).thenReturn(inside);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdiningcommons/within?minLat=34.4&minLon=-119.85&maxLat=34.42&maxLon=-119.84"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(inside), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_bad_request_for_an_inside_out_box() throws Exception {
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdiningcommons/within?minLat=34.42&minLon=-119.85&maxLat=34.4&maxLon=-119.84"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                assertEquals("minLat and minLon must not be greater than maxLat and maxLon",
+                                responseToJson(response).get("message"));
+        }
+
+        // Tests for the cached /all response
+
+        private List<UCSBDiningCommons> commons() {
+                return List.of(
+                                UCSBDiningCommons.builder().code("ortega").name("Ortega").hasSackMeal(true).build(),
+                                UCSBDiningCommons.builder().code("portola").name("Portola").hasDiningCam(true).build());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_serializes_the_rows_once_per_table_version() throws Exception {
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-06-01T10:15:30Z")));
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(commons());
+
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk()).andReturn();
+
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(commons()), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_reloads_the_rows_after_a_write() throws Exception {
+                when(ucsbDiningCommonsRepository.tableVersion()).thenReturn(new TableVersion(2, Instant.parse("2023-06-02T10:15:30Z")));
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(commons());
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+                when(ucsbDiningCommonsRepository.deleteRow("portola")).thenReturn(true);
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=portola").with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+                verify(ucsbDiningCommonsRepository, times(2)).findAll();
+        }
 }
@@ -2,6 +2,8 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
@@ -9,10 +11,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,6 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -55,8 +63,9 @@ public class UsersControllerTests extends ControllerTestCase {
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
-    String expectedJson = mapper.writeValueAsString(expectedUsers);
+    when(userRepository.findByEmailLikeAfter(eq("%"), eq(""), eq(0L), eq(PageRequest.of(0, 101))))
+        .thenReturn(expectedUsers);
+    String expectedJson = mapper.writeValueAsString(KeysetPage.<User>builder().items(expectedUsers).build());
     
     // act
 
@@ -65,9 +74,51 @@ public class UsersControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userRepository, never()).findAll();
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertEquals("application/json", response.getResponse().getContentType());
 
   }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__pages_have_a_cursor_for_the_next_page() throws Exception {
+    User bo = User.builder().id(2L).email("bo@ucsb.edu").build();
+    User cgaucho = User.builder().id(9L).email("cgaucho@ucsb.edu").build();
+    User dana = User.builder().id(5L).email("dana@ucsb.edu").build();
+    String after = KeysetCursor.of("ari@ucsb.edu", 4L).encode();
+
+    when(userRepository.findByEmailLikeAfter(eq("%"), eq("ari@ucsb.edu"), eq(4L), eq(PageRequest.of(0, 3))))
+        .thenReturn(List.of(bo, cgaucho, dana));
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users?limit=2&after=" + after))
+        .andExpect(status().isOk()).andReturn();
+
+    String expectedJson = mapper.writeValueAsString(KeysetPage.<User>builder()
+        .items(List.of(bo, cgaucho))
+        .nextCursor(KeysetCursor.of("cgaucho@ucsb.edu", 9L).encode())
+        .build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__can_be_searched_by_email_prefix() throws Exception {
+    when(userRepository.findByEmailLikeAfter(any(), any(), anyLong(), any())).thenReturn(List.of());
+
+    mockMvc.perform(get("/api/admin/users").param("emailPrefix", "c_gaucho%"))
+        .andExpect(status().isOk());
+
+    verify(userRepository, times(1)).findByEmailLikeAfter(eq("c\\_gaucho\\%%"), eq(""), eq(0L), any());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__page_size_is_limited() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/admin/users?limit=1001"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    assertEquals("limit must be between 1 and 1000", responseToJson(response).get("message"));
+  }
 }
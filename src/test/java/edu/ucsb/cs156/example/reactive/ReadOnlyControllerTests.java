@@ -0,0 +1,161 @@
+package edu.ucsb.cs156.example.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockOAuth2Login;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * The reactive tier end to end (security, controllers, JsonArrayEncoder,
+ * the JPA naming of tables and columns) against an in-memory database
+ * with the tables Hibernate creates for the MVC app.
+ */
+@SpringBootTest(classes = ReactiveApplication.class, properties = {
+    "spring.main.web-application-type=reactive",
+    "spring.r2dbc.url=r2dbc:h2:mem:///reactive-tests",
+    "spring.r2dbc.username=sa",
+    "spring.r2dbc.password=",
+    "app.admin.emails=admin@ucsb.edu"
+})
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+public class ReadOnlyControllerTests {
+
+  @Autowired
+  WebTestClient webTestClient;
+
+  @Autowired
+  DatabaseClient databaseClient;
+
+  @Autowired
+  R2dbcEntityTemplate template;
+
+  @Autowired
+  ReactiveSecurityConfig securityConfig;
+
+  @BeforeEach
+  public void createTables() {
+    Flux.just(
+        "drop table if exists games",
+        "drop table if exists ucsbdates",
+        "drop table if exists ucsbdiningcommons",
+        "drop table if exists users",
+        "create table games (id bigint primary key, description varchar(255), genre varchar(255),"
+            + " last_modified timestamp, name varchar(255), version bigint default 0 not null)",
+        "create table ucsbdates (id bigint primary key, last_modified timestamp, local_date_time timestamp,"
+            + " name varchar(255), quarteryyyyq varchar(255), version bigint default 0 not null)",
+        "create table ucsbdiningcommons (code varchar(255) primary key, has_dining_cam boolean not null,"
+            + " has_sack_meal boolean not null, has_take_out_meal boolean not null, last_modified timestamp,"
+            + " latitude double, longitude double, name varchar(255), version bigint default 0 not null)",
+        "create table users (id bigint primary key, admin boolean not null, email varchar(255),"
+            + " email_verified boolean not null, family_name varchar(255), full_name varchar(255),"
+            + " given_name varchar(255), google_sub varchar(255), hosted_domain varchar(255), locale varchar(255),"
+            + " picture_url varchar(255))",
+        "insert into users (id, email, admin, email_verified) values (1, 'staff@ucsb.edu', true, true)",
+        "insert into users (id, email, admin, email_verified) values (2, 'student@ucsb.edu', false, true)",
+        "insert into games (id, name, description, genre, version, last_modified)"
+            + " values (2, 'Mario', 'Platformer', 'Platform', 3, timestamp '2023-05-01 12:00:00')",
+        "insert into games (id, name, description, genre, version) values (1, 'Zelda', 'Adventure', 'RPG', 0)",
+        "insert into ucsbdates (id, quarteryyyyq, name, local_date_time)"
+            + " values (1, '20231', 'first day', timestamp '2023-01-09 08:00:00')",
+        "insert into ucsbdiningcommons (code, name, has_sack_meal, has_take_out_meal, has_dining_cam)"
+            + " values ('ortega', 'Ortega', true, true, false)")
+        .concatMap(sql -> databaseClient.sql(sql).then())
+        .blockLast();
+  }
+
+  private WebTestClient user() {
+    return webTestClient.mutateWith(mockOAuth2Login().authorities(new SimpleGrantedAuthority("ROLE_USER")));
+  }
+
+  @Test
+  public void logged_out_users_get_403() {
+    webTestClient.get().uri("/api/games/all").exchange().expectStatus().isForbidden();
+    webTestClient.get().uri("/api/games?id=1").exchange().expectStatus().isForbidden();
+  }
+
+  @Test
+  public void all_streams_the_table_as_a_json_array_in_id_order() {
+    user().get().uri("/api/games/all").exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$[0].name").isEqualTo("Zelda")
+        .jsonPath("$[1].name").isEqualTo("Mario")
+        .jsonPath("$[1].version").isEqualTo(3);
+  }
+
+  @Test
+  public void all_of_an_empty_table_is_an_empty_array() {
+    databaseClient.sql("delete from games").then().block();
+
+    user().get().uri("/api/games/all").exchange()
+        .expectStatus().isOk()
+        .expectBody().json("[]");
+  }
+
+  @Test
+  public void all_as_ndjson_is_one_row_per_line() {
+    String body = user().get().uri("/api/games/all").accept(MediaType.APPLICATION_NDJSON).exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class).returnResult().getResponseBody();
+
+    assertEquals(2, body.trim().split("\n").length);
+  }
+
+  @Test
+  public void get_by_id_returns_the_row() {
+    user().get().uri("/api/games?id=2").exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Mario")
+        .jsonPath("$.lastModified").exists();
+  }
+
+  @Test
+  public void get_by_id_of_a_missing_row_is_404_with_the_mvc_message() {
+    user().get().uri("/api/games?id=7").exchange()
+        .expectStatus().isNotFound()
+        .expectBody()
+        .jsonPath("$.type").isEqualTo("EntityNotFoundException")
+        .jsonPath("$.message").isEqualTo("Game with id 7 not found");
+  }
+
+  @Test
+  public void columns_are_named_as_hibernate_names_them() {
+    user().get().uri("/api/ucsbdates/all").exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].quarterYYYYQ").isEqualTo("20231")
+        .jsonPath("$[0].localDateTime").isEqualTo("2023-01-09T08:00:00");
+  }
+
+  @Test
+  public void dining_commons_are_found_by_code() {
+    user().get().uri("/api/ucsbdiningcommons?code=ortega").exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.name").isEqualTo("Ortega")
+        .jsonPath("$.hasSackMeal").isEqualTo(true);
+  }
+
+  @Test
+  public void admins_are_listed_in_app_admin_emails_or_flagged_in_users() {
+    assertEquals(true, securityConfig.getAdmin(template, "admin@ucsb.edu").block());
+    assertEquals(true, securityConfig.getAdmin(template, "staff@ucsb.edu").block());
+    assertEquals(false, securityConfig.getAdmin(template, "student@ucsb.edu").block());
+    assertEquals(false, securityConfig.getAdmin(template, "nobody@ucsb.edu").block());
+  }
+}
@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+
+/**
+ * Runs outside a test transaction, so each call has to open (and commit)
+ * its own, as it does when a controller calls it.  Every SQL statement is
+ * recorded, to check which columns an UPDATE sets.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "edu.ucsb.cs156.example.repositories.BulkWriteRepositoryTests$RecordingInspector")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BulkWriteRepositoryTests {
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  MovieRepository movieRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  public static class RecordingInspector implements StatementInspector {
+    static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql);
+      return sql;
+    }
+  }
+
+  @BeforeEach
+  public void reset() {
+    gameRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  private Game game(String name) {
+    return gameRepository.save(Game.builder().name(name).description("an open world").genre("Adventure").build());
+  }
+
+  private Set<String> names() {
+    return StreamSupport.stream(gameRepository.findAll().spliterator(), false)
+        .map(Game::getName)
+        .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void delete_row_reports_whether_the_row_was_there() {
+    Game zelda = game("Zelda");
+    game("Portal");
+
+    assertTrue(gameRepository.deleteRow(zelda.getId()));
+    assertFalse(gameRepository.deleteRow(zelda.getId()));
+    assertEquals(Set.of("Portal"), names());
+  }
+
+  @Test
+  public void delete_rows_returns_the_ids_that_existed() {
+    Game zelda = game("Zelda");
+    Game portal = game("Portal");
+    Game tetris = game("Tetris");
+
+    List<Long> deleted = gameRepository.deleteRows(List.of(zelda.getId(), tetris.getId(), 999_999L));
+
+    assertEquals(Set.of(zelda.getId(), tetris.getId()), Set.copyOf(deleted));
+    assertEquals(Set.of("Portal"), names());
+    assertEquals(List.of(), gameRepository.deleteRows(List.of(zelda.getId())));
+    assertTrue(gameRepository.existsById(portal.getId()));
+  }
+
+  @Test
+  public void delete_rows_works_with_string_ids() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("dlg").name("De La Guerra").build());
+
+    assertEquals(List.of("ortega"), ucsbDiningCommonsRepository.deleteRows(List.of("ortega", "carrillo")));
+    assertTrue(ucsbDiningCommonsRepository.deleteRow("dlg"));
+    assertEquals(0, ucsbDiningCommonsRepository.count());
+  }
+
+  @Test
+  public void update_rows_changes_every_row_found_in_one_transaction() {
+    Game zelda = game("Zelda");
+    Game portal = game("Portal");
+
+    List<Game> updated = gameRepository.updateRows(List.of(zelda.getId(), portal.getId(), 999_999L),
+        row -> row.setName(row.getName() + " 2"));
+
+    assertEquals(2, updated.size());
+    assertEquals(Set.of("Zelda 2", "Portal 2"), names());
+    assertEquals(1L, gameRepository.findById(zelda.getId()).get().getVersion());
+  }
+
+  @Test
+  public void update_row_sets_only_the_changed_columns() {
+    Movie movie = movieRepository.save(Movie.builder().name("Heat").year("1995").summary("a very long summary").build());
+    RecordingInspector.statements.clear();
+
+    movieRepository.updateRow(movie.getId(), row -> row.setYear("1996"));
+
+    List<String> updates = RecordingInspector.statements.stream()
+        .filter(sql -> sql.startsWith("update movies"))
+        .collect(Collectors.toList());
+    assertEquals(1, updates.size());
+    assertTrue(updates.get(0).contains("year=?"), updates.get(0));
+    assertFalse(updates.get(0).contains("summary"), updates.get(0));
+    assertFalse(updates.get(0).contains("name"), updates.get(0));
+    assertTrue(updates.get(0).endsWith("where id=? and version=?"), updates.get(0));
+  }
+
+  @Test
+  public void update_row_fails_if_the_row_changes_before_it_commits() {
+    Game zelda = game("Zelda");
+    TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+    concurrent.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> gameRepository.updateRow(zelda.getId(), row -> {
+      concurrent.executeWithoutResult(status -> gameRepository.findById(zelda.getId()).get().setGenre("Action"));
+      row.setName("Zelda 2");
+    }));
+
+    Game stored = gameRepository.findById(zelda.getId()).get();
+    assertEquals("Zelda", stored.getName());
+    assertEquals("Action", stored.getGenre());
+  }
+}
@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+
+/**
+ * DiningCommonsLocationListener against the real (embedded) database,
+ * outside a test transaction, since the index only changes on commit.
+ */
+@DataJpaTest
+@Import(DiningCommonsLocationService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DiningCommonsLocationTests {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  DiningCommonsLocationService locations;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  ApplicationEventPublisher eventPublisher;
+
+  @BeforeEach
+  public void reset() {
+    ucsbDiningCommonsRepository.deleteAll();
+    locations.rebuild();
+  }
+
+  private List<String> everywhere() {
+    return locations.within(-90, -180, 90, 180).stream().map(UCSBDiningCommons::getCode).sorted()
+        .collect(Collectors.toList());
+  }
+
+  private UCSBDiningCommons commons(String code, double latitude, double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(latitude).longitude(longitude).build();
+  }
+
+  @Test
+  public void saves_updates_and_deletes_are_indexed() {
+    UCSBDiningCommons ortega = ucsbDiningCommonsRepository.save(commons("ortega", 34.410987, -119.84709));
+    ucsbDiningCommonsRepository.save(commons("portola", 34.417723, -119.867427));
+    assertEquals(List.of("ortega", "portola"), everywhere());
+
+    ortega.setLatitude(34.0);
+    ortega = ucsbDiningCommonsRepository.save(ortega);
+    assertEquals("portola", locations.nearest(34.41, -119.85, 1).get(0).getCommons().getCode());
+
+    ucsbDiningCommonsRepository.delete(ortega);
+    assertEquals(List.of("portola"), everywhere());
+  }
+
+  @Test
+  public void rolled_back_changes_are_not_indexed() {
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      ucsbDiningCommonsRepository.save(commons("ortega", 34.410987, -119.84709));
+      status.setRollbackOnly();
+    });
+
+    assertEquals(List.of(), everywhere());
+  }
+
+  @Test
+  public void rebuild_loads_existing_rows() {
+    ucsbDiningCommonsRepository.save(commons("carrillo", 34.409953, -119.85277));
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("food-truck").name("Food Truck").build());
+
+    locations.rebuild();
+
+    assertEquals(List.of("carrillo"), everywhere());
+  }
+
+  @Test
+  public void bulk_deletes_are_removed_when_the_event_is_published() {
+    ucsbDiningCommonsRepository.save(commons("ortega", 34.410987, -119.84709));
+    ucsbDiningCommonsRepository.save(commons("portola", 34.417723, -119.867427));
+
+    eventPublisher.publishEvent(new RowsDeletedEvent(UCSBDiningCommons.class,
+        ucsbDiningCommonsRepository.deleteRows(List.of("ortega", "carrillo"))));
+
+    assertEquals(List.of("portola"), everywhere());
+  }
+}
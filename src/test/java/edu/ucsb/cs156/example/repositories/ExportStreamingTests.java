@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.services.ExportService;
+
+/**
+ * ExportService.export over a real table, through the repository's
+ * streamAll, outside a test transaction as it runs for a controller.
+ * While the rows are written, the persistence context holds no more than
+ * the row being written: each one is detached once it is out, so memory
+ * doesn't grow with the table.
+ */
+@DataJpaTest
+@Import({ ExportService.class, JacksonAutoConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ExportStreamingTests {
+  private static final long ROWS = 20_000;
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  ExportService exportService;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  JdbcTemplate jdbc;
+
+  @BeforeEach
+  public void fill() {
+    jdbc.update("DELETE FROM games");
+    jdbc.batchUpdate("INSERT INTO games (id, name, description, genre, version) VALUES (?, ?, 'd', 'g', 0)",
+        LongStream.rangeClosed(1, ROWS).mapToObj(i -> new Object[] { i, "game " + i }).collect(Collectors.toList()));
+  }
+
+  /** Counts lines, and how many entities the export's persistence context held at most. */
+  private class Watcher extends OutputStream {
+    long lines;
+    long mostManaged;
+
+    @Override
+    public void write(int b) {
+      if (b == '\n') {
+        lines++;
+        mostManaged = Math.max(mostManaged,
+            entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        write(b[i]);
+      }
+    }
+  }
+
+  @Test
+  public void export_keeps_the_persistence_context_empty_however_many_rows() throws Exception {
+    for (ExportFormat format : ExportFormat.values()) {
+      Watcher out = new Watcher();
+
+      long count = exportService.export(format, gameRepository::streamAll, out);
+
+      assertEquals(ROWS, count);
+      assertEquals(format == ExportFormat.CSV ? ROWS + 1 : ROWS, out.lines);
+      assertTrue(out.mostManaged <= 1, format + " held " + out.mostManaged + " rows at once");
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.services.IdSequenceService;
+
+/**
+ * IdSequenceService against the real (embedded) database, with rows put
+ * in with SQL, as they were before the ids came from sequences.  Hibernate
+ * keeps the rest of each block of ids it takes from a sequence, so each
+ * test uses a table of its own.
+ */
+@DataJpaTest
+@Import(IdSequenceService.class)
+public class IdSequenceTests {
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  MovieRepository movieRepository;
+
+  @Autowired
+  IdSequenceService idSequences;
+
+  @Autowired
+  JdbcTemplate jdbc;
+
+  private long saveGame() {
+    return gameRepository.save(Game.builder().name("Mario").description("d").genre("g").build()).getId();
+  }
+
+  private long saveMovie() {
+    return movieRepository.save(Movie.builder().name("Up").year("2009").summary("s").build()).getId();
+  }
+
+  @Test
+  public void a_sequence_behind_the_table_is_moved_past_it() {
+    jdbc.update("INSERT INTO games (id, name, version) VALUES (1000, 'Zelda', 0)");
+
+    idSequences.align();
+
+    long id = saveGame();
+    assertTrue(id > 1000 && id <= 1050, "id " + id);
+  }
+
+  @Test
+  public void a_sequence_ahead_of_the_table_is_left_alone() {
+    jdbc.execute("ALTER SEQUENCE movies_seq RESTART WITH 5000");
+    jdbc.update("INSERT INTO movies (id, name, version) VALUES (1000, 'Heat', 0)");
+
+    idSequences.align();
+
+    assertTrue(saveMovie() > 4950);
+  }
+}
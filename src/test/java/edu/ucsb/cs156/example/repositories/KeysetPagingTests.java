@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.models.KeysetCursor;
+
+/**
+ * Paging through a table ordered by name, following the cursors the way
+ * the controllers do (see ApiController.nameOrderedRows), when some rows
+ * have no name.
+ */
+@DataJpaTest
+public class KeysetPagingTests {
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  JdbcTemplate jdbc;
+
+  /** One page as the controllers make it: named rows, then the NULL-name tail. */
+  private List<Game> page(KeysetCursor cursor, int limit) {
+    if (cursor.getKey() == null) {
+      return gameRepository.findByNameIsNullAndIdGreaterThanOrderByIdAsc(cursor.getLongId(), PageRequest.of(0, limit));
+    }
+    List<Game> rows = new ArrayList<>(
+        gameRepository.findByNameAfter(cursor.getKey(), cursor.getLongId(), PageRequest.of(0, limit)));
+    if (rows.size() < limit) {
+      rows.addAll(gameRepository.findByNameIsNullAndIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, limit - rows.size())));
+    }
+    return rows;
+  }
+
+  private List<Long> pageByName(int limit) {
+    List<Long> ids = new ArrayList<>();
+    KeysetCursor cursor = KeysetCursor.of("", 0L);
+    while (true) {
+      List<Game> page = page(cursor, limit);
+      page.forEach(g -> ids.add(g.getId()));
+      if (page.size() < limit) {
+        return ids;
+      }
+      Game last = page.get(page.size() - 1);
+      cursor = KeysetCursor.decode(KeysetCursor.of(last.getName(), last.getId()).encode(), null);
+    }
+  }
+
+  @Test
+  public void rows_without_a_name_come_last_and_every_row_comes_once() {
+    jdbc.update("INSERT INTO games (id, name, version) VALUES (1, 'Zelda', 0), (2, NULL, 0), (3, 'Asteroids', 0),"
+        + " (4, NULL, 0), (5, '', 0), (6, NULL, 0), (7, 'Zelda', 0)");
+
+    List<Long> expected = List.of(5L, 3L, 1L, 7L, 2L, 4L, 6L);
+    for (int limit = 1; limit <= 8; limit++) {
+      assertEquals(expected, pageByName(limit), "pages of " + limit);
+    }
+  }
+
+  @Test
+  public void the_name_seek_starts_part_way_and_leaves_out_null_names() {
+    jdbc.update("INSERT INTO games (id, name, version) VALUES (1, 'b', 0), (2, NULL, 0), (3, 'a', 0),"
+        + " (4, 'b', 0), (5, 'c', 0)");
+
+    List<Game> rows = gameRepository.findByNameAfter("b", 1L, PageRequest.of(0, 10));
+
+    assertEquals(List.of(4L, 5L), rows.stream().map(Game::getId).toList());
+  }
+}
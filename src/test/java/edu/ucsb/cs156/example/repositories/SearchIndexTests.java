@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Hotel;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.services.SearchIndexService;
+
+/**
+ * The entity listeners against the real (embedded) database, outside a test
+ * transaction, since the index only changes when a transaction commits.
+ */
+@DataJpaTest
+@Import(SearchIndexService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SearchIndexTests {
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  HotelRepository hotelRepository;
+
+  @Autowired
+  SearchIndexService searchIndex;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  ApplicationEventPublisher eventPublisher;
+
+  @BeforeEach
+  public void reset() {
+    gameRepository.deleteAll();
+    hotelRepository.deleteAll();
+    searchIndex.rebuild();
+  }
+
+  private long hits(String query) {
+    return searchIndex.search(query, List.of(), 0, 10).getTotal();
+  }
+
+  private Game game(String name) {
+    return Game.builder().name(name).description("an open world").genre("Adventure").build();
+  }
+
+  @Test
+  public void saves_updates_and_deletes_are_indexed() {
+    Game game = gameRepository.save(game("Zelda"));
+    assertEquals(1, hits("zelda open world"));
+
+    game.setName("Zelda Breath of the Wild");
+    game = gameRepository.save(game);
+    assertEquals(1, hits("breath wild"));
+
+    gameRepository.delete(game);
+    assertEquals(0, hits("zelda"));
+  }
+
+  @Test
+  public void rolled_back_changes_are_not_indexed() {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.executeWithoutResult(status -> {
+      gameRepository.save(game("Zelda"));
+      status.setRollbackOnly();
+    });
+
+    assertEquals(0, hits("zelda"));
+    assertEquals(0, gameRepository.count());
+  }
+
+  @Test
+  public void rebuild_indexes_existing_rows() {
+    gameRepository.saveAll(List.of(game("Zelda"), game("Metroid")));
+    hotelRepository.save(Hotel.builder().name("Hotel California").address("1 Sunset Blvd").description("lovely place").build());
+
+    searchIndex.rebuild();
+
+    assertEquals(3, searchIndex.size());
+    assertEquals(2, hits("open world"));
+    assertEquals(1, hits("sunset"));
+    assertEquals("Hotel California", searchIndex.search("california", List.of("hotels"), 0, 10).getHits().get(0).getName());
+  }
+
+  @Test
+  public void bulk_deletes_are_removed_when_the_event_is_published() {
+    Game zelda = gameRepository.save(game("Zelda"));
+    Game metroid = gameRepository.save(game("Metroid"));
+    gameRepository.save(game("Portal"));
+
+    List<Long> deleted = gameRepository.deleteRows(List.of(zelda.getId(), metroid.getId()));
+    assertEquals(3, hits("open world"));
+
+    eventPublisher.publishEvent(new RowsDeletedEvent(Game.class, deleted));
+    assertEquals(1, hits("open world"));
+    assertEquals(1, hits("portal"));
+  }
+}
@@ -0,0 +1,195 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.CacheRegionStats;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.models.ExportFormat;
+import edu.ucsb.cs156.example.services.CacheStatisticsService;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.ExportService;
+
+/**
+ * Runs against the real (embedded) database and cache, outside a test
+ * transaction, because the second-level cache is only written when a
+ * transaction commits.
+ */
+@DataJpaTest
+@Import({ CacheStatisticsService.class, ExportService.class, DiningCommonsLocationService.class,
+    JacksonAutoConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTests {
+
+  @Autowired
+  GameRepository gameRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  ExportService exportService;
+
+  @Autowired
+  CacheStatisticsService cacheStatisticsService;
+
+  Statistics statistics;
+
+  @BeforeEach
+  public void reset() {
+    gameRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+    entityManagerFactory.getCache().evictAll();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  private Game save(String name) {
+    return gameRepository.save(Game.builder().name(name).description("d").genre("g").build());
+  }
+
+  private List<String> names(Iterable<Game> games) {
+    return StreamSupport.stream(games.spliterator(), false).map(Game::getName).sorted().collect(Collectors.toList());
+  }
+
+  private long count(Iterable<?> rows) {
+    return StreamSupport.stream(rows.spliterator(), false).count();
+  }
+
+  @Test
+  public void find_by_id_is_served_from_the_cache_after_the_first_load() {
+    Game game = save("Zelda");
+    entityManagerFactory.getCache().evictAll();
+
+    gameRepository.findById(game.getId());
+    long statements = statistics.getPrepareStatementCount();
+    Game cached = gameRepository.findById(game.getId()).get();
+
+    assertEquals("Zelda", cached.getName());
+    assertEquals(statements, statistics.getPrepareStatementCount());
+    assertTrue(statistics.getDomainDataRegionStatistics("games").getHitCount() >= 1);
+  }
+
+  @Test
+  public void updates_replace_the_cached_row() {
+    Game game = save("Zelda");
+    gameRepository.findById(game.getId());
+
+    game.setName("Zelda II");
+    gameRepository.save(game);
+
+    Game cached = gameRepository.findById(game.getId()).get();
+    assertEquals("Zelda II", cached.getName());
+    assertEquals(1L, cached.getVersion());
+  }
+
+  @Test
+  public void deletes_evict_the_cached_row() {
+    Game game = save("Zelda");
+    gameRepository.findById(game.getId());
+
+    gameRepository.delete(game);
+
+    assertFalse(gameRepository.findById(game.getId()).isPresent());
+  }
+
+  @Test
+  public void find_all_on_a_large_table_is_one_select_every_time() {
+    save("Zelda");
+    save("Mario");
+    entityManagerFactory.getCache().evictAll();
+
+    gameRepository.findAll();
+    long statements = statistics.getPrepareStatementCount();
+    assertEquals(List.of("Mario", "Zelda"), names(gameRepository.findAll()));
+
+    assertEquals(statements + 1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getQueryCacheHitCount());
+  }
+
+  @Test
+  public void find_all_on_reference_data_is_query_cached_and_invalidated_by_writes() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("portola").name("Portola").build());
+
+    ucsbDiningCommonsRepository.findAll();
+    long statements = statistics.getPrepareStatementCount();
+    assertEquals(2, count(ucsbDiningCommonsRepository.findAll()));
+    assertEquals(statements, statistics.getPrepareStatementCount());
+    assertTrue(statistics.getQueryCacheHitCount() >= 1);
+
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build());
+
+    assertEquals(3, count(ucsbDiningCommonsRepository.findAll()));
+    assertTrue(statistics.getPrepareStatementCount() > statements);
+  }
+
+  @Test
+  public void table_version_is_query_cached_and_invalidated_by_writes() {
+    save("Zelda");
+
+    assertEquals(1, gameRepository.tableVersion().getRows());
+    long statements = statistics.getPrepareStatementCount();
+    assertEquals(1, gameRepository.tableVersion().getRows());
+    assertEquals(statements, statistics.getPrepareStatementCount());
+
+    save("Mario");
+
+    assertEquals(2, gameRepository.tableVersion().getRows());
+  }
+
+  @Test
+  public void exports_do_not_fill_the_cache() throws Exception {
+    Game game = save("Zelda");
+    entityManagerFactory.getCache().evictAll();
+
+    long count = exportService.export(ExportFormat.NDJSON, gameRepository::streamAll, OutputStream.nullOutputStream());
+
+    assertEquals(1, count);
+    assertFalse(entityManagerFactory.getCache().contains(Game.class, game.getId()));
+  }
+
+  @Test
+  public void statistics_cover_every_region_with_evictions_from_jcache() {
+    Game game = save("Zelda");
+    entityManagerFactory.getCache().evictAll();
+    gameRepository.findById(game.getId());
+    gameRepository.findById(game.getId());
+
+    CacheStats stats = cacheStatisticsService.getStatistics();
+
+    CacheRegionStats games = stats.getRegions().stream()
+        .filter(r -> r.getRegion().equals("games")).findFirst().get();
+    assertEquals(1, games.getHits());
+    assertEquals(1, games.getMisses());
+    assertEquals(0.5, games.getHitRatio());
+    assertNotNull(games.getEvictions());
+    assertTrue(stats.getRegions().stream().anyMatch(r -> r.getRegion().equals("ucsbdiningcommons")));
+    assertTrue(stats.getRegions().stream().anyMatch(r -> r.getRegion().equals("games-queries")));
+  }
+}
@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.RowsDeletedEvent;
+import edu.ucsb.cs156.example.services.UCSBDateTimelineService;
+
+/**
+ * The ucsbdates calendar queries, and UCSBDateTimelineListener, against the
+ * real (embedded) database, outside a test transaction since the timeline
+ * only changes on commit.
+ */
+@DataJpaTest
+@Import(UCSBDateTimelineService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UCSBDateTimelineTests {
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBDateTimelineService timeline;
+
+  @Autowired
+  ApplicationEventPublisher eventPublisher;
+
+  private static final LocalDateTime START = LocalDateTime.parse("2023-01-01T00:00:00");
+  private static final LocalDateTime END = LocalDateTime.parse("2024-01-01T00:00:00");
+
+  @BeforeEach
+  public void reset() {
+    ucsbDateRepository.deleteAll();
+    timeline.rebuild();
+  }
+
+  private UCSBDate save(String quarter, String name, String time) {
+    return ucsbDateRepository.save(
+        UCSBDate.builder().quarterYYYYQ(quarter).name(name).localDateTime(LocalDateTime.parse(time)).build());
+  }
+
+  private static List<String> names(List<UCSBDate> dates) {
+    return dates.stream().map(UCSBDate::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void saves_updates_and_deletes_reach_the_timeline() {
+    UCSBDate finals = save("20232", "finals", "2023-06-10T08:00:00");
+    save("20232", "first day", "2023-04-03T08:00:00");
+    assertEquals(List.of("first day", "finals"), names(timeline.upcoming(START, 10)));
+
+    finals.setLocalDateTime(LocalDateTime.parse("2023-03-01T08:00:00"));
+    finals = ucsbDateRepository.save(finals);
+    assertEquals(List.of("finals", "first day"), names(timeline.range(START, END, 10)));
+
+    ucsbDateRepository.delete(finals);
+    assertEquals(List.of("first day"), names(timeline.upcoming(START, 10)));
+  }
+
+  @Test
+  public void database_queries_match_the_timeline() {
+    save("20231", "winter", "2023-01-09T08:00:00");
+    save("20232", "finals", "2023-06-10T08:00:00");
+    save("20232", "first day", "2023-04-03T08:00:00");
+    save("20232", "deadline", "2023-04-21T17:00:00");
+    LocalDateTime april = LocalDateTime.parse("2023-04-01T00:00:00");
+    LocalDateTime june = LocalDateTime.parse("2023-06-10T08:00:00");
+
+    assertEquals(List.of("first day", "deadline", "finals"),
+        names(ucsbDateRepository.findByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20232")));
+    assertEquals(names(timeline.range(april, june, 10)),
+        names(ucsbDateRepository.findByLocalDateTimeRange(april, june, PageRequest.of(0, 10))));
+    assertEquals(names(timeline.upcoming(april, 2)),
+        names(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(april,
+            PageRequest.of(0, 2))));
+  }
+
+  @Test
+  public void bulk_deletes_are_removed_when_the_event_is_published() {
+    UCSBDate finals = save("20232", "finals", "2023-06-10T08:00:00");
+    save("20232", "first day", "2023-04-03T08:00:00");
+
+    eventPublisher.publishEvent(new RowsDeletedEvent(UCSBDate.class, ucsbDateRepository.deleteRows(List.of(finals.getId()))));
+
+    assertEquals(List.of("first day"), names(timeline.upcoming(START, 10)));
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.UserIndexService;
+
+/**
+ * UserIndexService on a users table left as it was before the unique
+ * indexes: without them, and with the duplicates racing logins made.
+ * Outside a test transaction, since the indexes are dropped and created.
+ */
+@DataJpaTest
+@Import(UserIndexService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserIndexTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  UserIndexService userIndexes;
+
+  @Autowired
+  JdbcTemplate jdbc;
+
+  @BeforeEach
+  public void withoutTheIndexes() {
+    jdbc.update("DELETE FROM users");
+    // Hibernate made them unique constraints; UserIndexService makes indexes
+    for (String index : List.of("users_email_idx", "users_google_sub_idx")) {
+      jdbc.execute("ALTER TABLE users DROP CONSTRAINT IF EXISTS " + index);
+      jdbc.execute("DROP INDEX IF EXISTS " + index);
+    }
+  }
+
+  @AfterEach
+  public void cleanup() {
+    userIndexes.ensureUnique();
+    jdbc.update("DELETE FROM users");
+  }
+
+  private void insert(long id, String sub, String email, boolean admin) {
+    jdbc.update("INSERT INTO users (id, google_sub, email, email_verified, admin) VALUES (?, ?, ?, TRUE, ?)",
+        id, sub, email, admin);
+  }
+
+  private User user(String sub, String email) {
+    return User.builder().googleSub(sub).email(email).fullName("Chris Gaucho").emailVerified(true).build();
+  }
+
+  @Test
+  public void duplicates_are_removed_keeping_the_oldest_row_and_any_admin_flag() {
+    insert(101, "123", "cgaucho@ucsb.edu", false);
+    insert(102, "123", "cgaucho@ucsb.edu", true);
+    insert(103, "456", "cgaucho@ucsb.edu", false);
+    insert(104, "789", "ldelplaya@ucsb.edu", false);
+    insert(105, "789", "ldelplaya+new@ucsb.edu", false);
+    insert(106, null, null, false);
+    insert(107, null, null, false);
+
+    userIndexes.ensureUnique();
+
+    assertEquals(List.of(101L, 104L, 106L, 107L),
+        jdbc.queryForList("SELECT id FROM users ORDER BY id", Long.class));
+    assertTrue(userRepository.findByEmail("cgaucho@ucsb.edu").orElseThrow().getAdmin());
+    assertFalse(userRepository.findByEmail("ldelplaya@ucsb.edu").orElseThrow().getAdmin());
+  }
+
+  @Test
+  public void once_the_indexes_exist_no_duplicate_can_be_inserted() {
+    insert(101, "123", "cgaucho@ucsb.edu", false);
+    insert(102, "123", "cgaucho@ucsb.edu", false);
+
+    userIndexes.ensureUnique();
+
+    assertFalse(userRepository.insertIfAbsent(user("123", "cgaucho@ucsb.edu")));
+    assertEquals(101L, userRepository.findByEmail("cgaucho@ucsb.edu").orElseThrow().getId());
+    assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    assertThrows(DataIntegrityViolationException.class, () -> insert(103, "123", "other@ucsb.edu", false));
+    assertThrows(DataIntegrityViolationException.class, () -> insert(104, "456", "cgaucho@ucsb.edu", false));
+  }
+}
@@ -0,0 +1,151 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/**
+ * Runs outside a test transaction so that each insert commits on its own,
+ * as concurrent logins would.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserRepositoryTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  ExecutorService threads = Executors.newFixedThreadPool(8);
+
+  @BeforeEach
+  public void reset() {
+    userRepository.deleteAll();
+  }
+
+  @AfterEach
+  public void stop() {
+    threads.shutdownNow();
+  }
+
+  private User user(String sub, String email) {
+    return User.builder().googleSub(sub).email(email).fullName("Chris Gaucho").emailVerified(true).build();
+  }
+
+  /**
+   * What CurrentUserServiceImpl does on a first login: insert, and if
+   * another login got there first, use its row.
+   */
+  private long firstLogin(User user) {
+    try {
+      userRepository.insertIfAbsent(user);
+    } catch (DataIntegrityViolationException e) {
+      // lost the race
+    }
+    return userRepository.findByEmail(user.getEmail()).get().getId();
+  }
+
+  @Test
+  public void insert_if_absent_inserts_once() {
+    assertTrue(userRepository.insertIfAbsent(user("123", "cgaucho@ucsb.edu")));
+    assertFalse(userRepository.insertIfAbsent(user("123", "cgaucho@ucsb.edu")));
+
+    User u = userRepository.findByEmail("cgaucho@ucsb.edu").get();
+    assertEquals("123", u.getGoogleSub());
+    assertEquals("Chris Gaucho", u.getFullName());
+    assertTrue(u.getEmailVerified());
+    assertEquals(null, u.getHostedDomain());
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  public void email_and_google_sub_are_unique() {
+    userRepository.save(user("123", "cgaucho@ucsb.edu"));
+
+    assertThrows(DataIntegrityViolationException.class, () -> userRepository.save(user("456", "cgaucho@ucsb.edu")));
+    assertThrows(DataIntegrityViolationException.class, () -> userRepository.save(user("123", "chris@ucsb.edu")));
+    assertEquals("cgaucho@ucsb.edu", userRepository.findByGoogleSub("123").get().getEmail());
+  }
+
+  @Test
+  public void parallel_first_logins_leave_one_row_per_user() throws Exception {
+    int users = 20;
+    int loginsPerUser = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    List<List<Future<Long>>> ids = new ArrayList<>();
+    for (int i = 0; i < users; i++) {
+      List<Future<Long>> logins = new ArrayList<>();
+      for (int j = 0; j < loginsPerUser; j++) {
+        User user = user("sub" + i, "user" + i + "@ucsb.edu");
+        logins.add(threads.submit(() -> {
+          start.await();
+          return firstLogin(user);
+        }));
+      }
+      ids.add(logins);
+    }
+
+    start.countDown();
+
+    for (List<Future<Long>> logins : ids) {
+      Set<Long> distinct = new HashSet<>();
+      for (Future<Long> login : logins) {
+        distinct.add(login.get());
+      }
+      assertEquals(1, distinct.size());
+    }
+    List<String> emails = StreamSupport.stream(userRepository.findAll().spliterator(), false)
+        .map(User::getEmail).collect(Collectors.toList());
+    assertEquals(users, emails.size());
+    assertEquals(users, Set.copyOf(emails).size());
+  }
+
+  private List<String> emailsLike(String pattern, String afterEmail, long afterId, int size) {
+    return userRepository.findByEmailLikeAfter(pattern, afterEmail, afterId, PageRequest.of(0, size)).stream()
+        .map(User::getEmail).collect(Collectors.toList());
+  }
+
+  @Test
+  public void users_are_listed_by_email_a_page_at_a_time() {
+    for (String email : List.of("dana@ucsb.edu", "ari@ucsb.edu", "cgaucho@ucsb.edu", "bo@ucsb.edu")) {
+      userRepository.save(user("sub-" + email, email));
+    }
+    User bo = userRepository.findByEmail("bo@ucsb.edu").get();
+
+    assertEquals(List.of("ari@ucsb.edu", "bo@ucsb.edu"), emailsLike("%", "", 0L, 2));
+    assertEquals(List.of("cgaucho@ucsb.edu", "dana@ucsb.edu"), emailsLike("%", bo.getEmail(), bo.getId(), 2));
+  }
+
+  @Test
+  public void users_can_be_found_by_email_prefix() {
+    for (String email : List.of("a_b@ucsb.edu", "axb@ucsb.edu", "a_c@ucsb.edu", "b@ucsb.edu")) {
+      userRepository.save(user("sub-" + email, email));
+    }
+
+    assertEquals(List.of("a_b@ucsb.edu", "a_c@ucsb.edu", "axb@ucsb.edu"), emailsLike("a%", "", 0L, 10));
+    assertEquals(List.of("a_b@ucsb.edu", "a_c@ucsb.edu"), emailsLike("a\\_%", "", 0L, 10));
+  }
+}
@@ -0,0 +1,282 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.entities.Grocery;
+import edu.ucsb.cs156.example.models.CsvRow;
+import edu.ucsb.cs156.example.models.ImportError;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.repositories.GroceryRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(CsvImportService.class)
+@TestPropertySource(properties = {
+    "app.import.batchSize=2",
+    "app.import.maxBatchesInFlight=2",
+    "app.import.maxErrors=3"
+})
+@ContextConfiguration
+class CsvImportServiceTests {
+
+  @MockBean
+  GroceryRepository groceryRepository;
+
+  @Autowired
+  CsvImportService csvImportService;
+
+  private static Grocery grocery(CsvRow row) {
+    return Grocery.builder()
+        .name(row.required("name"))
+        .price(row.required("price"))
+        .expiration(row.required("expiration"))
+        .build();
+  }
+
+  /** Like grocery, but a row named Boom kills the writer (an Error isn't a rejected row). */
+  private static Grocery groceryOrBoom(CsvRow row) {
+    if (row.required("name").equals("Boom")) {
+      throw new StackOverflowError();
+    }
+    return grocery(row);
+  }
+
+  private static InputStream csv(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<List<Grocery>> recordSaves() {
+    List<List<Grocery>> saves = Collections.synchronizedList(new ArrayList<>());
+    when(groceryRepository.saveAll(any())).thenAnswer(invocation -> {
+      List<Grocery> batch = invocation.getArgument(0);
+      saves.add(batch);
+      return batch;
+    });
+    return saves;
+  }
+
+  @Test
+  void test_rows_are_written_in_batches_in_file_order() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\r\n"
+            + "Banana,0.99,05-18-23\r\n"
+            + "Apple,1.29,06-01-23\r\n"
+            + "Milk,3.49,05-10-23\r\n"
+            + "Bread,2.99,05-12-23\r\n"
+            + "Eggs,4.99,05-30-23\r\n"),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(5, report.getRowsRead());
+    assertEquals(5, report.getRowsWritten());
+    assertEquals(0, report.getRowsRejected());
+    assertEquals(List.of(), report.getErrors());
+    assertEquals(3, saves.size());
+    assertEquals(List.of(2, 2, 1), saves.stream().map(List::size).collect(Collectors.toList()));
+    assertEquals(Grocery.builder().name("Banana").price("0.99").expiration("05-18-23").build(), saves.get(0).get(0));
+    assertEquals("Eggs", saves.get(2).get(0).getName());
+  }
+
+  @Test
+  void test_header_order_and_case_do_not_matter_and_extra_columns_are_ignored() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "id,Expiration,NAME,price\n"
+            + "7,05-18-23,Banana,0.99\n"),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(1, report.getRowsWritten());
+    assertEquals(Grocery.builder().name("Banana").price("0.99").expiration("05-18-23").build(), saves.get(0).get(0));
+  }
+
+  @Test
+  void test_quoted_fields_may_hold_commas_quotes_and_line_breaks() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\n"
+            + "\"Bananas, organic\",\"0.99\",\"05-18-23\"\n"
+            + "\"The \"\"good\"\"\nbread\",2.99,05-12-23\n"
+            + "Milk,,05-10-23\n"),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(3, report.getRowsRead());
+    assertEquals(2, report.getRowsWritten());
+    assertEquals("Bananas, organic", saves.get(0).get(0).getName());
+    assertEquals("The \"good\"\nbread", saves.get(0).get(1).getName());
+    // the quoted line break means Milk starts on line 5, not line 4
+    assertEquals(List.of(ImportError.builder().line(5).message("price is required").build()), report.getErrors());
+  }
+
+  @Test
+  void test_bad_rows_are_reported_by_line_and_the_rest_are_written() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\n"
+            + "Banana,0.99,05-18-23\n"
+            + "Apple,1.29\n"
+            + "\n"
+            + ",3.49,05-10-23\n"
+            + "Bread,2.99,05-12-23\n"),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(4, report.getRowsRead());
+    assertEquals(2, report.getRowsWritten());
+    assertEquals(2, report.getRowsRejected());
+    assertEquals(List.of(
+        ImportError.builder().line(3).message("expected 3 columns but found 2").build(),
+        ImportError.builder().line(5).message("name is required").build()), report.getErrors());
+    assertFalse(report.getErrorsTruncated());
+    assertEquals(List.of("Banana", "Bread"),
+        saves.stream().flatMap(List::stream).map(Grocery::getName).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test_only_the_first_errors_are_kept() throws Exception {
+    recordSaves();
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\n" + ",1,x\n".repeat(5)),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(5, report.getRowsRejected());
+    assertEquals(3, report.getErrors().size());
+    assertEquals(List.of(2L, 3L, 4L), report.getErrors().stream().map(ImportError::getLine).collect(Collectors.toList()));
+    assertTrue(report.getErrorsTruncated());
+    verify(groceryRepository, never()).saveAll(any());
+  }
+
+  @Test
+  void test_a_failed_batch_is_reported_and_later_batches_are_still_written() throws Exception {
+    List<List<Grocery>> saves = new ArrayList<>();
+    when(groceryRepository.saveAll(any()))
+        .thenThrow(new DataIntegrityViolationException("value too long"))
+        .thenAnswer(invocation -> {
+          List<Grocery> batch = invocation.getArgument(0);
+          saves.add(batch);
+          return batch;
+        });
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\n"
+            + "Banana,0.99,05-18-23\n"
+            + "Apple,1.29,06-01-23\n"
+            + "Milk,3.49,05-10-23\n"),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(3, report.getRowsRead());
+    assertEquals(1, report.getRowsWritten());
+    assertEquals(2, report.getRowsRejected());
+    assertEquals(List.of(ImportError.builder().line(2).message("rows on lines 2-3 not written: value too long").build()),
+        report.getErrors());
+    assertEquals("Milk", saves.get(0).get(0).getName());
+  }
+
+  @Test
+  void test_many_batches_through_a_small_queue_arrive_complete_and_in_order() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+    String rows = IntStream.range(0, 1001)
+        .mapToObj(i -> "item %d,%d.00,05-18-23\n".formatted(i, i))
+        .collect(Collectors.joining());
+
+    ImportReport report = csvImportService.importCsv(csv("name,price,expiration\n" + rows),
+        CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(1001, report.getRowsWritten());
+    verify(groceryRepository, times(501)).saveAll(any());
+    List<String> names = saves.stream().flatMap(List::stream).map(Grocery::getName).collect(Collectors.toList());
+    assertEquals(IntStream.range(0, 1001).mapToObj(i -> "item " + i).collect(Collectors.toList()), names);
+  }
+
+  @Test
+  void test_a_writer_that_dies_aborts_the_import_and_says_so() throws Exception {
+    List<List<Grocery>> saves = recordSaves();
+    String rows = IntStream.range(0, 20)
+        .mapToObj(i -> "item %d,%d.00,05-18-23\n".formatted(i, i))
+        .collect(Collectors.joining());
+
+    ImportReport report = csvImportService.importCsv(csv(
+        "name,price,expiration\n"
+            + "Banana,0.99,05-18-23\n"
+            + "Apple,1.29,06-01-23\n"
+            + "Boom,3.49,05-10-23\n"
+            + "Milk,3.49,05-10-23\n"
+            + rows),
+        CsvImportServiceTests::groceryOrBoom, groceryRepository);
+
+    assertTrue(report.getAborted());
+    assertEquals(2, report.getRowsRead());
+    assertEquals(2, report.getRowsWritten());
+    assertEquals(1, saves.size());
+    assertEquals(List.of(ImportError.builder().line(3)
+        .message("import aborted after line 3; the rest of the file was not imported").build()), report.getErrors());
+  }
+
+  @Test
+  void test_a_bad_file_is_still_reported_when_the_writer_has_died() {
+    recordSaves();
+
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> csvImportService.importCsv(csv(
+            "name,price,expiration\n"
+                + "Boom,0.99,05-18-23\n"
+                + "Apple,1.29,06-01-23\n"
+                + "\"Milk,3.49,05-10-23\n"),
+            CsvImportServiceTests::groceryOrBoom, groceryRepository));
+
+    assertEquals("line 4: unterminated quoted field", e.getMessage());
+    assertEquals(1, e.getSuppressed().length);
+    assertTrue(e.getSuppressed()[0] instanceof StackOverflowError);
+  }
+
+  @Test
+  void test_empty_file_imports_nothing() throws Exception {
+    ImportReport report = csvImportService.importCsv(csv(""), CsvImportServiceTests::grocery, groceryRepository);
+
+    assertEquals(0, report.getRowsRead());
+    assertEquals(0, report.getRowsWritten());
+    assertFalse(report.getAborted());
+    verify(groceryRepository, never()).saveAll(any());
+  }
+
+  @Test
+  void test_unterminated_quote_is_a_bad_request() {
+    recordSaves();
+
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> csvImportService.importCsv(csv("name,price,expiration\n\"Banana,0.99,05-18-23\n"),
+            CsvImportServiceTests::grocery, groceryRepository));
+
+    assertEquals("line 2: unterminated quoted field", e.getMessage());
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(CurrentUserServiceImpl.class)
+@TestPropertySource(properties = "app.admin.emails=admin@ucsb.edu")
+@ContextConfiguration
+class CurrentUserServiceImplTests {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  long nanos;
+
+  @BeforeEach
+  void setup() {
+    currentUserService.ticker = () -> nanos;
+    currentUserService.buildCache();
+  }
+
+  @AfterEach
+  void cleanup() {
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private void logIn(String sub, String email) {
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", sub, "email", email, "name", "Chris Gaucho", "email_verified", true),
+        "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  private void newRequest() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  private User user(String sub, String email, boolean admin) {
+    return User.builder().id(7L).googleSub(sub).email(email).admin(admin).build();
+  }
+
+  @Test
+  void test_not_logged_in_returns_null_without_a_lookup() {
+    assertNull(currentUserService.getUser());
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_first_login_inserts_a_new_user_and_reads_it_back() {
+    logIn("123", "cgaucho@ucsb.edu");
+    User stored = user("123", "cgaucho@ucsb.edu", false);
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty(), Optional.of(stored));
+
+    User u = currentUserService.getUser();
+
+    assertSame(stored, u);
+    ArgumentCaptor<User> inserted = ArgumentCaptor.forClass(User.class);
+    verify(userRepository, times(1)).insertIfAbsent(inserted.capture());
+    assertEquals("123", inserted.getValue().getGoogleSub());
+    assertEquals("Chris Gaucho", inserted.getValue().getFullName());
+    assertFalse(inserted.getValue().getAdmin());
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void test_first_login_that_loses_the_insert_race_reads_the_winning_row() {
+    logIn("123", "cgaucho@ucsb.edu");
+    User stored = user("123", "cgaucho@ucsb.edu", false);
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty(), Optional.of(stored));
+    when(userRepository.insertIfAbsent(any())).thenThrow(new DataIntegrityViolationException("users_email_idx"));
+
+    assertSame(stored, currentUserService.getUser());
+  }
+
+  @Test
+  void test_first_login_with_a_new_email_finds_the_row_by_sub() {
+    logIn("123", "chris@ucsb.edu");
+    User stored = user("123", "cgaucho@ucsb.edu", false);
+    when(userRepository.findByEmail("chris@ucsb.edu")).thenReturn(Optional.empty());
+    when(userRepository.findByGoogleSub("123")).thenReturn(Optional.of(stored));
+
+    assertSame(stored, currentUserService.getUser());
+  }
+
+  @Test
+  void test_admin_emails_are_promoted() {
+    logIn("456", "admin@ucsb.edu");
+    User stored = user("456", "admin@ucsb.edu", false);
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(stored));
+
+    User u = currentUserService.getUser();
+
+    assertTrue(u.getAdmin());
+    verify(userRepository, times(1)).save(stored);
+  }
+
+  @Test
+  void test_user_is_looked_up_once_per_request() {
+    logIn("123", "cgaucho@ucsb.edu");
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user("123", "cgaucho@ucsb.edu", false)));
+    newRequest();
+
+    User first = currentUserService.getUser();
+    assertTrue(currentUserService.isLoggedIn());
+    currentUserService.getCurrentUser();
+
+    assertSame(first, currentUserService.getUser());
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_later_requests_are_served_from_the_cache() {
+    logIn("123", "cgaucho@ucsb.edu");
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user("123", "cgaucho@ucsb.edu", false)));
+
+    newRequest();
+    currentUserService.getUser();
+    newRequest();
+    currentUserService.getUser();
+    currentUserService.getUser();
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_the_cache_is_keyed_by_sub() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user("123", "cgaucho@ucsb.edu", false)));
+    when(userRepository.findByEmail("ldelplaya@ucsb.edu")).thenReturn(Optional.of(user("789", "ldelplaya@ucsb.edu", false)));
+
+    logIn("123", "cgaucho@ucsb.edu");
+    assertEquals("cgaucho@ucsb.edu", currentUserService.getUser().getEmail());
+    logIn("789", "ldelplaya@ucsb.edu");
+    assertEquals("ldelplaya@ucsb.edu", currentUserService.getUser().getEmail());
+  }
+
+  @Test
+  void test_a_changed_admin_flag_is_seen_once_the_cached_row_expires() {
+    logIn("123", "cgaucho@ucsb.edu");
+    User before = user("123", "cgaucho@ucsb.edu", false);
+    User after = user("123", "cgaucho@ucsb.edu", true);
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(before), Optional.of(after));
+
+    newRequest();
+    assertFalse(currentUserService.getUser().getAdmin());
+    nanos += Duration.ofSeconds(299).toNanos();
+    newRequest();
+    assertFalse(currentUserService.getUser().getAdmin());
+    nanos += Duration.ofSeconds(2).toNanos();
+    newRequest();
+    assertTrue(currentUserService.getUser().getAdmin());
+
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+}
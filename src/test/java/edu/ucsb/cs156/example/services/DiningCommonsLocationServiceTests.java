@@ -0,0 +1,223 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(DiningCommonsLocationService.class)
+@ContextConfiguration
+class DiningCommonsLocationServiceTests {
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  DiningCommonsLocationService locations;
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code).latitude(latitude).longitude(longitude).build();
+  }
+
+  private static final UCSBDiningCommons CARRILLO = commons("carrillo", 34.409953, -119.85277);
+  private static final UCSBDiningCommons DE_LA_GUERRA = commons("de-la-guerra", 34.409811, -119.845026);
+  private static final UCSBDiningCommons ORTEGA = commons("ortega", 34.410987, -119.84709);
+  private static final UCSBDiningCommons PORTOLA = commons("portola", 34.417723, -119.867427);
+  private static final UCSBDiningCommons FOOD_TRUCK = commons("food-truck", null, null);
+
+  private void rebuildWith(UCSBDiningCommons... commons) {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(commons));
+    locations.rebuild();
+  }
+
+  private static List<String> codes(List<UCSBDiningCommons> commons) {
+    return commons.stream().map(UCSBDiningCommons::getCode).sorted().collect(Collectors.toList());
+  }
+
+  private static List<String> nearestCodes(List<NearbyCommons> nearby) {
+    return nearby.stream().map(n -> n.getCommons().getCode()).collect(Collectors.toList());
+  }
+
+  @Test
+  void nearest_returns_the_k_closest_nearest_first() {
+    rebuildWith(CARRILLO, DE_LA_GUERRA, ORTEGA, PORTOLA, FOOD_TRUCK);
+
+    // outside the Student Resource Building
+    List<NearbyCommons> nearby = locations.nearest(34.41238, -119.84775, 3);
+
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo"), nearestCodes(nearby));
+    assertEquals(165, nearby.get(0).getDistanceMeters(), 5);
+    assertTrue(nearby.get(1).getDistanceMeters() <= nearby.get(2).getDistanceMeters());
+  }
+
+  @Test
+  void nearest_finds_commons_far_from_the_query() {
+    rebuildWith(CARRILLO, DE_LA_GUERRA, ORTEGA, PORTOLA);
+
+    // Los Angeles
+    List<NearbyCommons> nearby = locations.nearest(34.0522, -118.2437, 10);
+
+    assertEquals(4, nearby.size());
+    assertEquals("de-la-guerra", nearby.get(0).getCommons().getCode());
+    assertEquals("portola", nearby.get(3).getCommons().getCode());
+  }
+
+  @Test
+  void within_returns_commons_inside_the_box() {
+    rebuildWith(CARRILLO, DE_LA_GUERRA, ORTEGA, PORTOLA, FOOD_TRUCK);
+
+    assertEquals(List.of("carrillo", "de-la-guerra", "ortega"),
+        codes(locations.within(34.405, -119.855, 34.415, -119.84)));
+    assertEquals(List.of("carrillo", "de-la-guerra", "ortega", "portola"),
+        codes(locations.within(-90, -180, 90, 180)));
+    assertEquals(List.of(), codes(locations.within(0, 0, 1, 1)));
+  }
+
+  @Test
+  void saves_and_removes_update_the_index() {
+    rebuildWith(CARRILLO, DE_LA_GUERRA);
+
+    locations.onSave(ORTEGA);
+    UCSBDiningCommons moved = commons("carrillo", 34.417723, -119.867427);
+    locations.onSave(moved);
+    locations.onRemove(DE_LA_GUERRA);
+    locations.onSave(commons("food-truck", null, null));
+
+    assertEquals(List.of("ortega"), codes(locations.within(34.405, -119.855, 34.415, -119.84)));
+    assertEquals(List.of("carrillo", "ortega"), codes(locations.within(-90, -180, 90, 180)));
+  }
+
+  @Test
+  void losing_its_location_takes_a_commons_out_of_the_index() {
+    rebuildWith(CARRILLO, ORTEGA);
+
+    locations.onSave(commons("ortega", null, null));
+
+    assertEquals(List.of("carrillo"), nearestCodes(locations.nearest(34.41, -119.85, 5)));
+  }
+
+  @Test
+  void requests_see_the_old_grid_until_the_rebuilt_one_is_ready() {
+    rebuildWith(CARRILLO, ORTEGA);
+    when(ucsbDiningCommonsRepository.findAll()).thenAnswer(invocation -> {
+      assertEquals(List.of("carrillo", "ortega"), codes(locations.within(-90, -180, 90, 180)));
+      return List.of(CARRILLO, DE_LA_GUERRA);
+    });
+
+    locations.rebuild();
+
+    assertEquals(List.of("carrillo", "de-la-guerra"), codes(locations.within(-90, -180, 90, 180)));
+  }
+
+  @Test
+  void saves_and_deletes_made_while_rebuilding_are_kept() {
+    UCSBDiningCommons ortegaBefore = commons("ortega", 34.410987, -119.84709);
+    ortegaBefore.setVersion(1L);
+    UCSBDiningCommons ortegaMoved = commons("ortega", 34.417723, -119.867427);
+    ortegaMoved.setVersion(2L);
+    when(ucsbDiningCommonsRepository.findAll()).thenAnswer(invocation -> {
+      // the rows were read, then these committed before rebuild() finished
+      locations.onSave(ortegaMoved);
+      locations.onRemove(DE_LA_GUERRA);
+      locations.onSave(PORTOLA);
+      return List.of(CARRILLO, DE_LA_GUERRA, ortegaBefore);
+    });
+
+    locations.rebuild();
+
+    assertEquals(List.of("carrillo", "ortega", "portola"), codes(locations.within(-90, -180, 90, 180)));
+    assertEquals(List.of("carrillo"), codes(locations.within(34.405, -119.855, 34.415, -119.84)));
+  }
+
+  @Test
+  void an_older_copy_does_not_replace_a_newer_one() {
+    UCSBDiningCommons newer = commons("ortega", 34.417723, -119.867427);
+    newer.setVersion(2L);
+    UCSBDiningCommons older = commons("ortega", 34.410987, -119.84709);
+    older.setVersion(1L);
+    rebuildWith(CARRILLO);
+
+    locations.onSave(newer);
+    locations.onSave(older);
+
+    assertEquals(List.of("carrillo"), codes(locations.within(34.405, -119.855, 34.415, -119.84)));
+  }
+
+  @Test
+  void results_are_copies_that_callers_cannot_change() {
+    rebuildWith(ORTEGA);
+
+    locations.within(-90, -180, 90, 180).get(0).setName("changed");
+    ORTEGA.setName("changed too");
+
+    assertEquals("ortega", locations.nearest(34.41, -119.85, 1).get(0).getCommons().getName());
+    ORTEGA.setName("ortega");
+  }
+
+  @Test
+  void grid_agrees_with_a_brute_force_search() {
+    GeoGrid<Integer, Integer> grid = new GeoGrid<>(0.01);
+    List<double[]> points = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      // mostly around campus, some anywhere in the world
+      double latitude = i % 10 == 0 ? random.nextDouble() * 180 - 90 : 34.41 + random.nextGaussian() * 0.05;
+      double longitude = i % 10 == 0 ? random.nextDouble() * 360 - 180 : -119.85 + random.nextGaussian() * 0.05;
+      points.add(new double[] { latitude, longitude });
+      grid.put(i, latitude, longitude, i);
+    }
+    for (int i = 0; i < 500; i += 2) {
+      grid.remove(i);
+    }
+    GeoGrid<Integer, Integer> replaced = new GeoGrid<>(0.01);
+    replaced.put(-1, 0, 0, -1);
+    List<GeoGrid.Point<Integer, Integer>> survivors = new ArrayList<>();
+    for (int i = 0; i < points.size(); i++) {
+      if (i >= 500 || i % 2 == 1) {
+        survivors.add(new GeoGrid.Point<>(i, points.get(i)[0], points.get(i)[1], i));
+      }
+    }
+    replaced.replaceAll(survivors);
+    assertEquals(grid.size(), replaced.size());
+
+    for (int q = 0; q < 50; q++) {
+      double latitude = q % 5 == 0 ? random.nextDouble() * 180 - 90 : 34.41 + random.nextGaussian() * 0.1;
+      double longitude = q % 5 == 0 ? random.nextDouble() * 360 - 180 : -119.85 + random.nextGaussian() * 0.1;
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < points.size(); i++) {
+        if (i >= 500 || i % 2 == 1) {
+          expected.add(i);
+        }
+      }
+      expected.sort(Comparator.comparingDouble(
+          i -> GeoGrid.distanceMeters(latitude, longitude, points.get(i)[0], points.get(i)[1])));
+
+      List<Integer> found = grid.nearest(latitude, longitude, 7).stream()
+          .map(GeoGrid.Nearby::value).collect(Collectors.toList());
+
+      assertEquals(expected.subList(0, 7), found, "nearest to " + latitude + "," + longitude);
+      List<Integer> foundReplaced = replaced.nearest(latitude, longitude, 7).stream()
+          .map(GeoGrid.Nearby::value).collect(Collectors.toList());
+
+      assertEquals(found, foundReplaced, "replaced, nearest to " + latitude + "," + longitude);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.models.ExportFormat;
+
+@ExtendWith(SpringExtension.class)
+@Import({ ExportService.class, JacksonAutoConfiguration.class })
+@ContextConfiguration
+class ExportServiceTests {
+
+  @MockBean
+  EntityManager entityManager;
+
+  @Autowired
+  ExportService exportService;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  private final Game zelda = Game.builder()
+      .id(1L)
+      .name("the Legend of Zelda")
+      .description("Play as \"Link\", save the princess")
+      .genre("open world")
+      .build();
+
+  private final Game lol = Game.builder()
+      .id(2L)
+      .name("League of Legends")
+      .description("Play as 5 and destroy the enemy nexus")
+      .genre("moba")
+      .build();
+
+  @Test
+  void test_export_ndjson_writes_one_line_per_row_and_detaches_each_row() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = exportService.export(ExportFormat.NDJSON, () -> Stream.of(zelda, lol), out);
+
+    String expected = mapper.writeValueAsString(zelda) + "\n" + mapper.writeValueAsString(lol) + "\n";
+    assertEquals(2, count);
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    verify(entityManager, times(1)).detach(zelda);
+    verify(entityManager, times(1)).detach(lol);
+    verify(entityManager, times(1)).setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+  }
+
+  @Test
+  void test_export_csv_writes_header_and_escapes_values() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = exportService.export(ExportFormat.CSV, () -> Stream.of(zelda, lol), out);
+
+    String expected = "id,name,description,genre,version,lastModified\r\n"
+        + "1,the Legend of Zelda,\"Play as \"\"Link\"\", save the princess\",open world,,\r\n"
+        + "2,League of Legends,Play as 5 and destroy the enemy nexus,moba,,\r\n";
+    assertEquals(2, count);
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void test_export_of_empty_table_writes_nothing() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = exportService.export(ExportFormat.NDJSON, Stream::empty, out);
+
+    assertEquals(0, count);
+    assertEquals(0, out.size());
+  }
+
+  @Test
+  void test_export_streams_a_million_rows_without_reading_ahead() throws Exception {
+    for (ExportFormat format : ExportFormat.values()) {
+      final long rows = 1_000_000;
+      AtomicLong produced = new AtomicLong();
+      AtomicLong written = new AtomicLong();
+      CountingOutputStream out = new CountingOutputStream();
+
+      // rows are generated lazily, the way a JDBC cursor hands them over;
+      // if the writer ever pulled a row before finishing the previous one
+      // (i.e. buffered the table), produced would run ahead of written
+      Stream<Game> table = Stream.iterate(1L, i -> i + 1)
+          .limit(rows)
+          .map(i -> {
+            produced.incrementAndGet();
+            return Game.builder().id(i).name("game " + i).description("d").genre("g").build();
+          });
+
+      long count = exportService.writeRows(format, table, row -> {
+        assertEquals(produced.get(), written.incrementAndGet());
+      }, out);
+
+      assertEquals(rows, count);
+      assertEquals(rows, written.get());
+      long expectedLines = format == ExportFormat.CSV ? rows + 1 : rows;
+      assertEquals(expectedLines, out.newlines);
+    }
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+    long newlines = 0;
+
+    @Override
+    public void write(int b) {
+      if (b == '\n') {
+        newlines++;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        write(b[i]);
+      }
+    }
+  }
+}
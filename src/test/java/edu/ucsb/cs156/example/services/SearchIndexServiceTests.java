@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.entities.Game;
+import edu.ucsb.cs156.example.entities.Movie;
+import edu.ucsb.cs156.example.entities.Song;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.models.SearchResults;
+import edu.ucsb.cs156.example.repositories.GameRepository;
+import edu.ucsb.cs156.example.repositories.GroceryRepository;
+import edu.ucsb.cs156.example.repositories.HotelRepository;
+import edu.ucsb.cs156.example.repositories.MovieRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.SongRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(SearchIndexService.class)
+@ContextConfiguration
+class SearchIndexServiceTests {
+
+  @MockBean
+  GameRepository gameRepository;
+
+  @MockBean
+  MovieRepository movieRepository;
+
+  @MockBean
+  SongRepository songRepository;
+
+  @MockBean
+  HotelRepository hotelRepository;
+
+  @MockBean
+  RestaurantRepository restaurantRepository;
+
+  @MockBean
+  GroceryRepository groceryRepository;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  SearchIndexService searchIndex;
+
+  @BeforeEach
+  void clear() {
+    // the mocked repositories are empty
+    searchIndex.rebuild();
+  }
+
+  private Game game(long id, String name, String description, String genre) {
+    return game(id, name, description, genre, 0);
+  }
+
+  private Game game(long id, String name, String description, String genre, long version) {
+    return Game.builder().id(id).name(name).description(description).genre(genre).version(version).build();
+  }
+
+  private List<String> names(SearchResults results) {
+    return results.getHits().stream().map(SearchHit::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  void test_every_word_must_match_and_case_and_accents_do_not_matter() {
+    searchIndex.onSave(game(1, "Pokémon Red", "catch them all", "RPG"));
+    searchIndex.onSave(game(2, "Pokemon Snap", "take photos", "Photography"));
+    searchIndex.onSave(game(3, "Red Dead Redemption", "western", "Action"));
+
+    assertEquals(List.of("Pokémon Red"), names(searchIndex.search("POKEMON red", List.of(), 0, 10)));
+    assertEquals(2, searchIndex.search("pokemon", List.of(), 0, 10).getTotal());
+    assertEquals(0, searchIndex.search("pokemon western", List.of(), 0, 10).getTotal());
+    assertEquals(0, searchIndex.search("zelda", List.of(), 0, 10).getTotal());
+  }
+
+  @Test
+  void test_stop_words_and_punctuation_are_ignored() {
+    searchIndex.onSave(game(1, "The Legend of Zelda", "", "Adventure"));
+
+    assertEquals(1, searchIndex.search("legend, of the zelda!", List.of(), 0, 10).getTotal());
+    assertEquals(0, searchIndex.search("the of", List.of(), 0, 10).getTotal());
+    assertEquals(0, searchIndex.search("", List.of(), 0, 10).getTotal());
+  }
+
+  @Test
+  void test_matches_in_the_name_rank_above_matches_elsewhere() {
+    searchIndex.onSave(game(1, "Tetris", "a puzzle game with falling blocks", "Puzzle"));
+    searchIndex.onSave(game(2, "Blocks", "a puzzle game", "Puzzle"));
+
+    SearchResults results = searchIndex.search("blocks", List.of(), 0, 10);
+
+    assertEquals(List.of("Blocks", "Tetris"), names(results));
+    assertTrue(results.getHits().get(0).getScore() > results.getHits().get(1).getScore());
+  }
+
+  @Test
+  void test_search_covers_each_type_and_can_be_filtered_by_type() {
+    searchIndex.onSave(game(1, "Ocean Adventure", "", ""));
+    searchIndex.onSave(Movie.builder().id(1).name("Finding Nemo").summary("a fish lost in the ocean").version(0L).build());
+    searchIndex.onSave(Song.builder().id(1).name("Ocean Eyes").artist("Billie Eilish").album("dont smile at me").version(0L).build());
+
+    assertEquals(3, searchIndex.search("ocean", List.of(), 0, 10).getTotal());
+    SearchResults songsAndMovies = searchIndex.search("ocean", List.of("songs", "movies"), 0, 10);
+    assertEquals(List.of("Ocean Eyes", "Finding Nemo"), names(songsAndMovies));
+    assertEquals("songs", songsAndMovies.getHits().get(0).getType());
+    assertEquals(1, searchIndex.search("billie", List.of("songs"), 0, 10).getTotal());
+  }
+
+  @Test
+  void test_unknown_types_are_rejected() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> searchIndex.search("ocean", List.of("books"), 0, 10));
+    assertTrue(e.getMessage().startsWith("unknown type books"));
+  }
+
+  @Test
+  void test_results_are_paged_in_rank_order() {
+    for (long id = 1; id <= 5; id++) {
+      searchIndex.onSave(game(id, "Mario " + id, "", ""));
+    }
+
+    SearchResults first = searchIndex.search("mario", List.of(), 0, 2);
+    SearchResults last = searchIndex.search("mario", List.of(), 2, 2);
+
+    assertEquals(5, first.getTotal());
+    // equal scores: lower ids first
+    assertEquals(List.of("Mario 1", "Mario 2"), names(first));
+    assertEquals(List.of("Mario 5"), names(last));
+    assertEquals(List.of(), names(searchIndex.search("mario", List.of(), 3, 2)));
+  }
+
+  @Test
+  void test_updates_replace_and_removes_drop_a_row() {
+    Game game = game(1, "Halo", "", "Shooter");
+    searchIndex.onSave(game);
+    game.setName("Halo 2");
+    game.setGenre("FPS");
+    game.setVersion(1L);
+    searchIndex.onSave(game);
+
+    assertEquals(List.of("Halo 2"), names(searchIndex.search("halo", List.of(), 0, 10)));
+    assertEquals(0, searchIndex.search("shooter", List.of(), 0, 10).getTotal());
+
+    searchIndex.onRemove(game);
+
+    assertEquals(0, searchIndex.search("halo", List.of(), 0, 10).getTotal());
+  }
+
+  @Test
+  void test_an_older_version_does_not_replace_a_newer_one() {
+    searchIndex.onSave(game(1, "Halo 2", "", "", 3));
+    searchIndex.onSave(game(1, "Halo", "", "", 2));
+
+    assertEquals(List.of("Halo 2"), names(searchIndex.search("halo", List.of(), 0, 10)));
+  }
+}
@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(UCSBDateTimelineService.class)
+@ContextConfiguration
+class UCSBDateTimelineServiceTests {
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  @MockBean
+  EntityManager entityManager;
+
+  @MockBean
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  UCSBDateTimelineService timeline;
+
+  private static UCSBDate date(long id, String name, String time) {
+    return date(id, name, time, 0);
+  }
+
+  private static UCSBDate date(long id, String name, String time, long version) {
+    return UCSBDate.builder().id(id).quarterYYYYQ("20232").name(name)
+        .localDateTime(time == null ? null : LocalDateTime.parse(time)).version(version).build();
+  }
+
+  private void rebuildWith(UCSBDate... dates) {
+    when(ucsbDateRepository.streamAll()).thenReturn(List.of(dates).stream());
+    timeline.rebuild();
+  }
+
+  private static List<String> names(List<UCSBDate> dates) {
+    return dates.stream().map(UCSBDate::getName).collect(Collectors.toList());
+  }
+
+  private static LocalDateTime at(String time) {
+    return LocalDateTime.parse(time);
+  }
+
+  @Test
+  void upcoming_returns_dates_in_time_order_from_the_given_time() {
+    rebuildWith(
+        date(1, "finals", "2023-06-10T08:00:00"),
+        date(2, "first day", "2023-04-03T08:00:00"),
+        date(4, "drop deadline", "2023-04-21T17:00:00"),
+        date(3, "add deadline", "2023-04-21T17:00:00"),
+        date(5, "no date yet", null));
+
+    assertEquals(List.of("add deadline", "drop deadline", "finals"),
+        names(timeline.upcoming(at("2023-04-21T17:00:00"), 10)));
+    assertEquals(List.of("first day", "add deadline"), names(timeline.upcoming(at("2023-01-01T00:00:00"), 2)));
+    assertEquals(List.of(), names(timeline.upcoming(at("2024-01-01T00:00:00"), 10)));
+    verify(ucsbDateRepository, never()).findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(any(), any());
+  }
+
+  @Test
+  void range_includes_from_and_excludes_to() {
+    rebuildWith(
+        date(1, "first day", "2023-04-03T08:00:00"),
+        date(2, "deadline", "2023-04-21T17:00:00"),
+        date(3, "finals", "2023-06-10T08:00:00"));
+
+    assertEquals(List.of("first day", "deadline"),
+        names(timeline.range(at("2023-04-03T08:00:00"), at("2023-06-10T08:00:00"), 1000)));
+    assertEquals(List.of("first day"),
+        names(timeline.range(at("2023-01-01T00:00:00"), at("2024-01-01T00:00:00"), 1)));
+    assertEquals(List.of(), names(timeline.range(at("2023-05-01T00:00:00"), at("2023-05-01T00:00:00"), 1000)));
+  }
+
+  @Test
+  void saves_and_removes_update_the_timeline() {
+    rebuildWith(date(1, "first day", "2023-04-03T08:00:00"), date(2, "deadline", "2023-04-21T17:00:00"));
+
+    timeline.onSave(date(3, "finals", "2023-06-10T08:00:00"));
+    timeline.onSave(date(1, "first day (moved)", "2023-06-20T08:00:00", 1));
+    timeline.onRemove(date(2, "deadline", "2023-04-21T17:00:00"));
+
+    assertEquals(List.of("finals", "first day (moved)"), names(timeline.upcoming(at("2023-01-01T00:00:00"), 10)));
+  }
+
+  @Test
+  void older_versions_do_not_replace_newer_ones() {
+    rebuildWith(date(1, "first day", "2023-04-03T08:00:00", 2));
+
+    timeline.onSave(date(1, "stale", "2023-05-03T08:00:00", 1));
+
+    assertEquals(List.of("first day"), names(timeline.upcoming(at("2023-01-01T00:00:00"), 10)));
+  }
+
+  @Test
+  void results_are_copies_that_callers_cannot_change() {
+    rebuildWith(date(1, "first day", "2023-04-03T08:00:00"));
+
+    timeline.upcoming(at("2023-01-01T00:00:00"), 10).get(0).setName("changed");
+
+    assertEquals(List.of("first day"), names(timeline.upcoming(at("2023-01-01T00:00:00"), 10)));
+  }
+
+  @Test
+  void queries_go_to_the_database_until_the_timeline_has_loaded() {
+    when(ucsbDateRepository.streamAll()).thenThrow(new IllegalStateException("database is down"));
+    assertThrows(IllegalStateException.class, () -> timeline.rebuild());
+    List<UCSBDate> fromDatabase = List.of(date(1, "first day", "2023-04-03T08:00:00"));
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualOrderByLocalDateTimeAscIdAsc(
+        at("2023-01-01T00:00:00"), PageRequest.of(0, 5))).thenReturn(fromDatabase);
+    when(ucsbDateRepository.findByLocalDateTimeRange(
+        at("2023-01-01T00:00:00"), at("2024-01-01T00:00:00"), PageRequest.of(0, 5))).thenReturn(fromDatabase);
+
+    assertEquals(fromDatabase, timeline.upcoming(at("2023-01-01T00:00:00"), 5));
+    assertEquals(fromDatabase, timeline.range(at("2023-01-01T00:00:00"), at("2024-01-01T00:00:00"), 5));
+  }
+}
@@ -0,0 +1,200 @@
+export function f0(x){return x+0;}
+export function f1(x){return x+1;}
+export function f2(x){return x+2;}
+export function f3(x){return x+3;}
+export function f4(x){return x+4;}
+export function f5(x){return x+5;}
+export function f6(x){return x+6;}
+export function f7(x){return x+7;}
+export function f8(x){return x+8;}
+export function f9(x){return x+9;}
+export function f10(x){return x+10;}
+export function f11(x){return x+11;}
+export function f12(x){return x+12;}
+export function f13(x){return x+13;}
+export function f14(x){return x+14;}
+export function f15(x){return x+15;}
+export function f16(x){return x+16;}
+export function f17(x){return x+17;}
+export function f18(x){return x+18;}
+export function f19(x){return x+19;}
+export function f20(x){return x+20;}
+export function f21(x){return x+21;}
+export function f22(x){return x+22;}
+export function f23(x){return x+23;}
+export function f24(x){return x+24;}
+export function f25(x){return x+25;}
+export function f26(x){return x+26;}
+export function f27(x){return x+27;}
+export function f28(x){return x+28;}
+export function f29(x){return x+29;}
+export function f30(x){return x+30;}
+export function f31(x){return x+31;}
+export function f32(x){return x+32;}
+export function f33(x){return x+33;}
+export function f34(x){return x+34;}
+export function f35(x){return x+35;}
+export function f36(x){return x+36;}
+export function f37(x){return x+37;}
+export function f38(x){return x+38;}
+export function f39(x){return x+39;}
+export function f40(x){return x+40;}
+export function f41(x){return x+41;}
+export function f42(x){return x+42;}
+export function f43(x){return x+43;}
+export function f44(x){return x+44;}
+export function f45(x){return x+45;}
+export function f46(x){return x+46;}
+export function f47(x){return x+47;}
+export function f48(x){return x+48;}
+export function f49(x){return x+49;}
+export function f50(x){return x+50;}
+export function f51(x){return x+51;}
+export function f52(x){return x+52;}
+export function f53(x){return x+53;}
+export function f54(x){return x+54;}
+export function f55(x){return x+55;}
+export function f56(x){return x+56;}
+export function f57(x){return x+57;}
+export function f58(x){return x+58;}
+export function f59(x){return x+59;}
+export function f60(x){return x+60;}
+export function f61(x){return x+61;}
+export function f62(x){return x+62;}
+export function f63(x){return x+63;}
+export function f64(x){return x+64;}
+export function f65(x){return x+65;}
+export function f66(x){return x+66;}
+export function f67(x){return x+67;}
+export function f68(x){return x+68;}
+export function f69(x){return x+69;}
+export function f70(x){return x+70;}
+export function f71(x){return x+71;}
+export function f72(x){return x+72;}
+export function f73(x){return x+73;}
+export function f74(x){return x+74;}
+export function f75(x){return x+75;}
+export function f76(x){return x+76;}
+export function f77(x){return x+77;}
+export function f78(x){return x+78;}
+export function f79(x){return x+79;}
+export function f80(x){return x+80;}
+export function f81(x){return x+81;}
+export function f82(x){return x+82;}
+export function f83(x){return x+83;}
+export function f84(x){return x+84;}
+export function f85(x){return x+85;}
+export function f86(x){return x+86;}
+export function f87(x){return x+87;}
+export function f88(x){return x+88;}
+export function f89(x){return x+89;}
+export function f90(x){return x+90;}
+export function f91(x){return x+91;}
+export function f92(x){return x+92;}
+export function f93(x){return x+93;}
+export function f94(x){return x+94;}
+export function f95(x){return x+95;}
+export function f96(x){return x+96;}
+export function f97(x){return x+97;}
+export function f98(x){return x+98;}
+export function f99(x){return x+99;}
+export function f100(x){return x+100;}
+export function f101(x){return x+101;}
+export function f102(x){return x+102;}
+export function f103(x){return x+103;}
+export function f104(x){return x+104;}
+export function f105(x){return x+105;}
+export function f106(x){return x+106;}
+export function f107(x){return x+107;}
+export function f108(x){return x+108;}
+export function f109(x){return x+109;}
+export function f110(x){return x+110;}
+export function f111(x){return x+111;}
+export function f112(x){return x+112;}
+export function f113(x){return x+113;}
+export function f114(x){return x+114;}
+export function f115(x){return x+115;}
+export function f116(x){return x+116;}
+export function f117(x){return x+117;}
+export function f118(x){return x+118;}
+export function f119(x){return x+119;}
+export function f120(x){return x+120;}
+export function f121(x){return x+121;}
+export function f122(x){return x+122;}
+export function f123(x){return x+123;}
+export function f124(x){return x+124;}
+export function f125(x){return x+125;}
+export function f126(x){return x+126;}
+export function f127(x){return x+127;}
+export function f128(x){return x+128;}
+export function f129(x){return x+129;}
+export function f130(x){return x+130;}
+export function f131(x){return x+131;}
+export function f132(x){return x+132;}
+export function f133(x){return x+133;}
+export function f134(x){return x+134;}
+export function f135(x){return x+135;}
+export function f136(x){return x+136;}
+export function f137(x){return x+137;}
+export function f138(x){return x+138;}
+export function f139(x){return x+139;}
+export function f140(x){return x+140;}
+export function f141(x){return x+141;}
+export function f142(x){return x+142;}
+export function f143(x){return x+143;}
+export function f144(x){return x+144;}
+export function f145(x){return x+145;}
+export function f146(x){return x+146;}
+export function f147(x){return x+147;}
+export function f148(x){return x+148;}
+export function f149(x){return x+149;}
+export function f150(x){return x+150;}
+export function f151(x){return x+151;}
+export function f152(x){return x+152;}
+export function f153(x){return x+153;}
+export function f154(x){return x+154;}
+export function f155(x){return x+155;}
+export function f156(x){return x+156;}
+export function f157(x){return x+157;}
+export function f158(x){return x+158;}
+export function f159(x){return x+159;}
+export function f160(x){return x+160;}
+export function f161(x){return x+161;}
+export function f162(x){return x+162;}
+export function f163(x){return x+163;}
+export function f164(x){return x+164;}
+export function f165(x){return x+165;}
+export function f166(x){return x+166;}
+export function f167(x){return x+167;}
+export function f168(x){return x+168;}
+export function f169(x){return x+169;}
+export function f170(x){return x+170;}
+export function f171(x){return x+171;}
+export function f172(x){return x+172;}
+export function f173(x){return x+173;}
+export function f174(x){return x+174;}
+export function f175(x){return x+175;}
+export function f176(x){return x+176;}
+export function f177(x){return x+177;}
+export function f178(x){return x+178;}
+export function f179(x){return x+179;}
+export function f180(x){return x+180;}
+export function f181(x){return x+181;}
+export function f182(x){return x+182;}
+export function f183(x){return x+183;}
+export function f184(x){return x+184;}
+export function f185(x){return x+185;}
+export function f186(x){return x+186;}
+export function f187(x){return x+187;}
+export function f188(x){return x+188;}
+export function f189(x){return x+189;}
+export function f190(x){return x+190;}
+export function f191(x){return x+191;}
+export function f192(x){return x+192;}
+export function f193(x){return x+193;}
+export function f194(x){return x+194;}
+export function f195(x){return x+195;}
+export function f196(x){return x+196;}
+export function f197(x){return x+197;}
+export function f198(x){return x+198;}
+export function f199(x){return x+199;}